@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class provides the executor that the library uses to run blocking
+ * network and resource I/O in the background, e.g. for {@link Base#loadAsync()}
+ * and the async getters in {@link ClsRestApi}.
+ * <br><br>
+ * This is the Java 21 version of the class, which is packaged in META-INF/versions/21
+ * of the multi-release jar. Each task runs on its own virtual thread, so blocking
+ * I/O doesn't tie up a platform thread. The public API must stay identical to the
+ * Java 8 version in the src directory.
+ * @author Ken Lowrie
+ */
+public final class IoExecutors {
+    private static final ExecutorService IO = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("clsrestapi-io-", 0).factory());
+    
+    /*
+    What callers get: it only runs tasks, and can't be cast back to the pool.
+    */
+    private static final Executor VIEW = IO::execute;
+    
+    /**
+     * Get the executor used for background I/O. The executor is shared by the
+     * whole process, so it is only handed out as an {@link Executor}, which can't
+     * be shut down; a shutdown would fail every later background load.
+     * @return the shared I/O executor.
+     */
+    public static Executor get(){
+        return VIEW;
+    }
+    
+    /**
+     * Indicates whether the I/O executor runs tasks on virtual threads.
+     * @return true for the Java 21 version of the class.
+     */
+    public static boolean isVirtual(){
+        return true;
+    }
+    
+    /**
+     * Prevent the caller from constructing objects of this class.
+     */
+    private IoExecutors(){
+    }
+}
@@ -0,0 +1,669 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * This annotation processor generates the codecs and the immutable value classes
+ * for the classes marked with clsrestapi.GenerateCodec. See the docs on that
+ * annotation for what is generated, and BinaryCodecs for the binary format.
+ * <br><br>
+ * It is compiled by the -pre-compile target in build.xml, and found by javac through
+ * META-INF/services on the processor path. It refers to the annotation by name, so
+ * it doesn't depend on the library itself.
+ * @author Ken Lowrie
+ */
+@SupportedAnnotationTypes(CodecProcessor.ANNOTATION)
+public class CodecProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "clsrestapi.GenerateCodec";
+    
+    /**
+     * The kinds of field the codecs support.
+     */
+    private enum Kind {
+        STRING, INT, LONG, BOOLEAN, DOUBLE, OBJECT, LIST
+    }
+    
+    /**
+     * A field of a marked class, as seen by the generator.
+     */
+    private static class Field {
+        String name;
+        Kind kind;
+        /**
+         * For an OBJECT field, the codec of its class. For a LIST field, the codec
+         * of its element class, or null for a List of Strings.
+         */
+        String codec;
+        /**
+         * For an OBJECT field, the simple name of its class. For a LIST field, the
+         * simple name of its element class, or null for a List of Strings.
+         */
+        String type;
+        
+        /**
+         * The tag of the field in the binary format. This must match BinaryCodecs.tag():
+         * the hash code of the name, folded to 14 bits.
+         */
+        int tag(){
+            int hash = name.hashCode();
+            return (hash ^ (hash >>> 14) ^ (hash >>> 28)) & 0x3FFF;
+        }
+        
+        String getter(){
+            return "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        
+        String value(){
+            return type + "Value";
+        }
+    }
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion(){
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round){
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null){
+            return false;
+        }
+        for (Element e : round.getElementsAnnotatedWith(annotation)){
+            if (e.getKind() != ElementKind.CLASS){
+                error(e, "@GenerateCodec can only be used on a class");
+                continue;
+            }
+            TypeElement type = (TypeElement)e;
+            List<Field> fields = getFields(type, annotation);
+            if (fields != null){
+                write(type, fields);
+                writeValue(type, fields);
+            }
+        }
+        return true;
+    }
+    
+    private void error(Element e, String msg){
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, e);
+    }
+    
+    /**
+     * Collect the fields of the class, the subclass fields first, the way Gson
+     * orders them.
+     * @return the fields, or null if one of them can't be handled.
+     */
+    private List<Field> getFields(TypeElement type, TypeElement annotation){
+        List<Field> fields = new ArrayList<>();
+        Map<Integer, String> tags = new HashMap<>();
+        boolean ok = true;
+        
+        for (TypeElement t = type; t != null; t = superclass(t)){
+            for (VariableElement v : ElementFilter.fieldsIn(t.getEnclosedElements())){
+                Set<Modifier> mods = v.getModifiers();
+                if (!mods.contains(Modifier.PUBLIC) || mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT)){
+                    continue;
+                }
+                Field f = new Field();
+                f.name = v.getSimpleName().toString();
+                if (!classify(f, v.asType(), type, annotation)){
+                    error(v, "@GenerateCodec doesn't support the type of field " + f.name + ": " + v.asType());
+                    ok = false;
+                    continue;
+                }
+                String other = tags.put(f.tag(), f.name);
+                if (other != null){
+                    error(v, "Fields " + other + " and " + f.name + " have the same binary tag " + f.tag() + ", rename one of them");
+                    ok = false;
+                }
+                fields.add(f);
+            }
+        }
+        return ok ? fields : null;
+    }
+    
+    private TypeElement superclass(TypeElement t){
+        TypeMirror s = t.getSuperclass();
+        if (s.getKind() != TypeKind.DECLARED){
+            return null;
+        }
+        TypeElement e = (TypeElement)((DeclaredType)s).asElement();
+        return e.getQualifiedName().contentEquals("java.lang.Object") ? null : e;
+    }
+    
+    private boolean classify(Field f, TypeMirror t, TypeElement owner, TypeElement annotation){
+        switch (t.getKind()){
+            case INT: f.kind = Kind.INT; return true;
+            case LONG: f.kind = Kind.LONG; return true;
+            case BOOLEAN: f.kind = Kind.BOOLEAN; return true;
+            case DOUBLE: f.kind = Kind.DOUBLE; return true;
+            case DECLARED: break;
+            default: return false;
+        }
+        DeclaredType d = (DeclaredType)t;
+        TypeElement e = (TypeElement)d.asElement();
+        String name = e.getQualifiedName().toString();
+        if (name.equals("java.lang.String")){
+            f.kind = Kind.STRING;
+            return true;
+        }
+        if (name.equals("java.util.List")){
+            if (d.getTypeArguments().size() != 1 || d.getTypeArguments().get(0).getKind() != TypeKind.DECLARED){
+                return false;
+            }
+            TypeElement elem = (TypeElement)((DeclaredType)d.getTypeArguments().get(0)).asElement();
+            f.kind = Kind.LIST;
+            if (elem.getQualifiedName().contentEquals("java.lang.String")){
+                return true;
+            }
+            f.codec = codecOf(elem, owner, annotation);
+            f.type = elem.getSimpleName().toString();
+            return f.codec != null;
+        }
+        f.kind = Kind.OBJECT;
+        f.codec = codecOf(e, owner, annotation);
+        f.type = e.getSimpleName().toString();
+        return f.codec != null;
+    }
+    
+    /**
+     * The codecs are package-private, so a field can only refer to a marked class
+     * in the same package.
+     */
+    private String codecOf(TypeElement e, TypeElement owner, TypeElement annotation){
+        boolean marked = false;
+        for (AnnotationMirror m : e.getAnnotationMirrors()){
+            marked |= m.getAnnotationType().asElement().equals(annotation);
+        }
+        if (!marked || !packageOf(e).equals(packageOf(owner))){
+            return null;
+        }
+        return e.getSimpleName() + "Codec";
+    }
+    
+    private String packageOf(Element e){
+        while (!(e instanceof PackageElement)){
+            e = e.getEnclosingElement();
+        }
+        return ((PackageElement)e).getQualifiedName().toString();
+    }
+    
+    /**
+     * Build the expression that creates an empty instance of the class. The no-arg
+     * constructor is used if there is one, otherwise the first constructor is passed
+     * default values, and the fields are filled in afterwards.
+     */
+    private String newInstance(TypeElement type){
+        ExecutableElement first = null;
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())){
+            if (c.getModifiers().contains(Modifier.PRIVATE)){
+                continue;
+            }
+            if (c.getParameters().isEmpty()){
+                return "new " + type.getSimpleName() + "()";
+            }
+            if (first == null){
+                first = c;
+            }
+        }
+        StringBuilder sb = new StringBuilder("new " + type.getSimpleName() + "(");
+        if (first != null){
+            String sep = "";
+            for (VariableElement p : first.getParameters()){
+                sb.append(sep).append(defaultValue(p.asType()));
+                sep = ", ";
+            }
+        }
+        return sb.append(")").toString();
+    }
+    
+    private String defaultValue(TypeMirror t){
+        switch (t.getKind()){
+            case BOOLEAN: return "false";
+            case BYTE: case SHORT: case INT: case LONG: case CHAR: case FLOAT: case DOUBLE:
+                return "(" + t + ")0";
+            default: return "(" + processingEnv.getTypeUtils().erasure(t) + ")null";
+        }
+    }
+    
+    private void write(TypeElement type, List<Field> fields){
+        String pkg = packageOf(type);
+        String cls = type.getSimpleName().toString();
+        String codec = cls + "Codec";
+        
+        try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createSourceFile(pkg + "." + codec, type).openWriter())){
+            w.println("package " + pkg + ";");
+            w.println();
+            w.println("import com.google.gson.TypeAdapter;");
+            w.println("import com.google.gson.stream.JsonReader;");
+            w.println("import com.google.gson.stream.JsonToken;");
+            w.println("import com.google.gson.stream.JsonWriter;");
+            w.println("import java.io.DataInput;");
+            w.println("import java.io.DataOutput;");
+            w.println("import java.io.IOException;");
+            w.println();
+            w.println("/**");
+            w.println(" * The JSON and binary codecs for {@link " + cls + "}.");
+            w.println(" * Generated by " + getClass().getName() + " from the fields of " + cls + ". Do not edit.");
+            w.println(" */");
+            w.println("final class " + codec + " {");
+            w.println("    static final TypeAdapter<" + cls + "> JSON = new TypeAdapter<" + cls + ">(){");
+            w.println("        @Override");
+            w.println("        public " + cls + " read(JsonReader in) throws IOException {");
+            w.println("            return readJson(in);");
+            w.println("        }");
+            w.println();
+            w.println("        @Override");
+            w.println("        public void write(JsonWriter out, " + cls + " obj) throws IOException {");
+            w.println("            writeJson(out, obj);");
+            w.println("        }");
+            w.println("    };");
+            w.println();
+            w.println("    private " + codec + "(){");
+            w.println("    }");
+            w.println();
+            
+            writeReadJson(w, type, cls, fields);
+            writeReadJsonProjected(w, type, cls, fields);
+            writeWriteJson(w, cls, fields);
+            writeWriteBinary(w, cls, fields);
+            writeReadBinary(w, type, cls, fields);
+            
+            w.println("}");
+        } catch (IOException E){
+            error(type, "Unable to write " + codec + ": " + E.getMessage());
+        }
+    }
+    
+    private void writeReadJson(PrintWriter w, TypeElement type, String cls, List<Field> fields){
+        w.println("    static " + cls + " readJson(JsonReader in) throws IOException {");
+        w.println("        if (in.peek() == JsonToken.NULL){");
+        w.println("            in.nextNull();");
+        w.println("            return null;");
+        w.println("        }");
+        w.println("        " + cls + " obj = " + newInstance(type) + ";");
+        w.println("        in.beginObject();");
+        w.println("        while (in.hasNext()){");
+        w.println("            switch (in.nextName()){");
+        for (Field f : fields){
+            w.println("                case \"" + f.name + "\": obj." + f.name + " = " + jsonReader(f) + "; break;");
+        }
+        w.println("                default: in.skipValue();");
+        w.println("            }");
+        w.println("        }");
+        w.println("        in.endObject();");
+        w.println("        return obj;");
+        w.println("    }");
+        w.println();
+    }
+    
+    private void writeReadJsonProjected(PrintWriter w, TypeElement type, String cls, List<Field> fields){
+        w.println("    static " + cls + " readJson(JsonReader in, Projection projection) throws IOException {");
+        w.println("        if (projection == null){");
+        w.println("            return readJson(in);");
+        w.println("        }");
+        w.println("        if (in.peek() == JsonToken.NULL){");
+        w.println("            in.nextNull();");
+        w.println("            return null;");
+        w.println("        }");
+        w.println("        boolean filter = projection.appliesTo(" + cls + ".class);");
+        w.println("        " + cls + " obj = " + newInstance(type) + ";");
+        w.println("        in.beginObject();");
+        w.println("        while (in.hasNext()){");
+        w.println("            String name = in.nextName();");
+        w.println("            if (filter && !projection.includes(name)){");
+        w.println("                in.skipValue();");
+        w.println("                continue;");
+        w.println("            }");
+        w.println("            switch (name){");
+        for (Field f : fields){
+            w.println("                case \"" + f.name + "\": obj." + f.name + " = " + projectedJsonReader(f) + "; break;");
+        }
+        w.println("                default: in.skipValue();");
+        w.println("            }");
+        w.println("        }");
+        w.println("        in.endObject();");
+        w.println("        return obj;");
+        w.println("    }");
+        w.println();
+    }
+    
+    /*
+    The projection is passed down to nested objects and list elements, since that is
+    where the projected class usually is, e.g. the Videos in the reelList of ApiObjReels.
+    */
+    private String projectedJsonReader(Field f){
+        switch (f.kind){
+            case OBJECT: return f.codec + ".readJson(in, projection)";
+            case LIST: return f.codec == null ? jsonReader(f) : "JsonCodecs.readList(in, r -> " + f.codec + ".readJson(r, projection))";
+            default: return jsonReader(f);
+        }
+    }
+    
+    private String jsonReader(Field f){
+        switch (f.kind){
+            case STRING: return "JsonCodecs.readString(in)";
+            case INT: return "JsonCodecs.readInt(in)";
+            case LONG: return "JsonCodecs.readLong(in)";
+            case BOOLEAN: return "JsonCodecs.readBoolean(in)";
+            case DOUBLE: return "JsonCodecs.readDouble(in)";
+            case OBJECT: return f.codec + ".readJson(in)";
+            default: return "JsonCodecs.readList(in, " + (f.codec == null ? "JsonCodecs.STRING" : f.codec + ".JSON") + ")";
+        }
+    }
+    
+    private void writeWriteJson(PrintWriter w, String cls, List<Field> fields){
+        w.println("    static void writeJson(JsonWriter out, " + cls + " obj) throws IOException {");
+        w.println("        if (obj == null){");
+        w.println("            out.nullValue();");
+        w.println("            return;");
+        w.println("        }");
+        w.println("        out.beginObject();");
+        for (Field f : fields){
+            switch (f.kind){
+                case OBJECT:
+                    w.println("        out.name(\"" + f.name + "\");");
+                    w.println("        " + f.codec + ".writeJson(out, obj." + f.name + ");");
+                    break;
+                case LIST:
+                    w.println("        out.name(\"" + f.name + "\");");
+                    w.println("        JsonCodecs.writeList(out, obj." + f.name + ", " + (f.codec == null ? "JsonCodecs.STRING" : f.codec + ".JSON") + ");");
+                    break;
+                default:
+                    w.println("        out.name(\"" + f.name + "\").value(obj." + f.name + ");");
+            }
+        }
+        w.println("        out.endObject();");
+        w.println("    }");
+        w.println();
+    }
+    
+    private boolean isPrimitive(Field f){
+        return f.kind == Kind.INT || f.kind == Kind.LONG || f.kind == Kind.BOOLEAN || f.kind == Kind.DOUBLE;
+    }
+    
+    private void writeWriteBinary(PrintWriter w, String cls, List<Field> fields){
+        int primitives = 0;
+        for (Field f : fields){
+            primitives += isPrimitive(f) ? 1 : 0;
+        }
+        w.println("    static void writeBinary(DataOutput out, " + cls + " obj) throws IOException {");
+        w.println("        if (obj == null){");
+        w.println("            out.writeByte(BinaryCodecs.T_NULL);");
+        w.println("            return;");
+        w.println("        }");
+        w.println("        int count = " + primitives + ";");
+        for (Field f : fields){
+            if (!isPrimitive(f)){
+                w.println("        if (obj." + f.name + " != null) count++;");
+            }
+        }
+        w.println("        out.writeByte(BinaryCodecs.T_OBJECT);");
+        w.println("        BinaryCodecs.writeVarInt(out, count);");
+        for (Field f : fields){
+            String indent = "        ";
+            if (!isPrimitive(f)){
+                w.println("        if (obj." + f.name + " != null){");
+                indent += "    ";
+            }
+            w.println(indent + "BinaryCodecs.writeTag(out, " + f.tag() + ");");
+            w.println(indent + binaryWriter(f) + ";");
+            if (!isPrimitive(f)){
+                w.println("        }");
+            }
+        }
+        w.println("    }");
+        w.println();
+    }
+    
+    private String binaryWriter(Field f){
+        String v = "obj." + f.name;
+        switch (f.kind){
+            case STRING: return "BinaryCodecs.writeString(out, " + v + ")";
+            case INT: return "BinaryCodecs.writeInt(out, " + v + ")";
+            case LONG: return "BinaryCodecs.writeLong(out, " + v + ")";
+            case BOOLEAN: return "BinaryCodecs.writeBoolean(out, " + v + ")";
+            case DOUBLE: return "BinaryCodecs.writeDouble(out, " + v + ")";
+            case OBJECT: return f.codec + ".writeBinary(out, " + v + ")";
+            default: return "BinaryCodecs.writeList(out, " + v + ", " + (f.codec == null ? "BinaryCodecs::writeString" : f.codec + "::writeBinary") + ")";
+        }
+    }
+    
+    private void writeReadBinary(PrintWriter w, TypeElement type, String cls, List<Field> fields){
+        w.println("    static " + cls + " readBinary(DataInput in) throws IOException {");
+        w.println("        byte type = in.readByte();");
+        w.println("        if (type != BinaryCodecs.T_OBJECT){");
+        w.println("            BinaryCodecs.skip(in, type);");
+        w.println("            return null;");
+        w.println("        }");
+        w.println("        return readBinaryPayload(in);");
+        w.println("    }");
+        w.println();
+        w.println("    static " + cls + " readBinaryPayload(DataInput in) throws IOException {");
+        w.println("        " + cls + " obj = " + newInstance(type) + ";");
+        w.println("        for (int i = BinaryCodecs.readVarInt(in); i > 0; i--){");
+        w.println("            int tag = BinaryCodecs.readTag(in);");
+        w.println("            byte type = in.readByte();");
+        w.println("            switch (tag){");
+        for (Field f : fields){
+            w.println("                case " + f.tag() + ":");
+            w.println("                    if (type == BinaryCodecs.T_" + f.kind.name() + "){");
+            w.println("                        obj." + f.name + " = " + binaryReader(f) + ";");
+            w.println("                        continue;");
+            w.println("                    }");
+            w.println("                    break;");
+        }
+        w.println("            }");
+        w.println("            BinaryCodecs.skip(in, type);");
+        w.println("        }");
+        w.println("        return obj;");
+        w.println("    }");
+    }
+    
+    /*
+    The type tag of the field has already been read, so these read only the payload.
+    */
+    private String binaryReader(Field f){
+        switch (f.kind){
+            case STRING: return "BinaryCodecs.readStringPayload(in)";
+            case INT: return "BinaryCodecs.readIntPayload(in)";
+            case LONG: return "BinaryCodecs.readLongPayload(in)";
+            case BOOLEAN: return "in.readBoolean()";
+            case DOUBLE: return "in.readDouble()";
+            case OBJECT: return f.codec + ".readBinaryPayload(in)";
+            default: return "BinaryCodecs.readListPayload(in, " + (f.codec == null ? "BinaryCodecs::readString" : f.codec + "::readBinary") + ")";
+        }
+    }
+    
+    private String fieldType(Field f){
+        switch (f.kind){
+            case STRING: return "String";
+            case INT: return "int";
+            case LONG: return "long";
+            case BOOLEAN: return "boolean";
+            case DOUBLE: return "double";
+            case OBJECT: return f.value();
+            default: return f.type == null ? "List<String>" : "List<" + f.value() + ">";
+        }
+    }
+    
+    private String hashOf(Field f){
+        switch (f.kind){
+            case INT: return f.name;
+            case LONG: return "Long.hashCode(" + f.name + ")";
+            case BOOLEAN: return "Boolean.hashCode(" + f.name + ")";
+            case DOUBLE: return "Double.hashCode(" + f.name + ")";
+            default: return "Objects.hashCode(" + f.name + ")";
+        }
+    }
+    
+    private String equalsOf(Field f){
+        switch (f.kind){
+            case INT: case LONG: case BOOLEAN: return f.name + " == v." + f.name;
+            case DOUBLE: return "Double.compare(" + f.name + ", v." + f.name + ") == 0";
+            default: return "Objects.equals(" + f.name + ", v." + f.name + ")";
+        }
+    }
+    
+    /*
+    The value classes are public, unlike the codecs, since they are meant to be used
+    by the clients of the library.
+    */
+    private void writeValue(TypeElement type, List<Field> fields){
+        String pkg = packageOf(type);
+        String cls = type.getSimpleName().toString();
+        String value = cls + "Value";
+        
+        try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createSourceFile(pkg + "." + value, type).openWriter())){
+            w.println("package " + pkg + ";");
+            w.println();
+            w.println("import java.util.List;");
+            w.println("import java.util.Objects;");
+            w.println();
+            w.println("/**");
+            w.println(" * An immutable copy of {@link " + cls + "}, with a precomputed hash code. Nested");
+            w.println(" * objects and lists are immutable values too, so a value can be shared between");
+            w.println(" * threads and used as a key in a hash map or set. {@link #equals(java.lang.Object)}");
+            w.println(" * compares the hash codes first, and only compares the fields when they match.");
+            w.println(" * Generated by " + getClass().getName() + " from the fields of " + cls + ". Do not edit.");
+            w.println(" */");
+            w.println("public final class " + value + " {");
+            for (Field f : fields){
+                w.println("    private final " + fieldType(f) + " " + f.name + ";");
+            }
+            w.println("    private final int hash;");
+            w.println();
+            
+            w.println("    private " + value + "(" + cls + " obj){");
+            for (Field f : fields){
+                String v = "obj." + f.name;
+                switch (f.kind){
+                    case OBJECT:
+                        w.println("        " + f.name + " = " + f.value() + ".of(" + v + ");");
+                        break;
+                    case LIST:
+                        w.println("        " + f.name + " = Values.freeze(" + v + ", " + (f.type == null ? "s -> s" : f.value() + "::of") + ");");
+                        break;
+                    default:
+                        w.println("        " + f.name + " = " + v + ";");
+                }
+            }
+            w.println("        int h = 1;");
+            for (Field f : fields){
+                w.println("        h = 31 * h + " + hashOf(f) + ";");
+            }
+            w.println("        hash = h;");
+            w.println("    }");
+            w.println();
+            
+            w.println("    /**");
+            w.println("     * Make an immutable copy of a {@link " + cls + "}.");
+            w.println("     * @param obj The object to copy.");
+            w.println("     * @return The value, or null if obj is null.");
+            w.println("     */");
+            w.println("    public static " + value + " of(" + cls + " obj){");
+            w.println("        return obj == null ? null : new " + value + "(obj);");
+            w.println("    }");
+            w.println();
+            
+            for (Field f : fields){
+                w.println("    /**");
+                w.println("     * @return See {@link " + cls + "#" + f.name + "}." + (f.kind == Kind.LIST ? " The list is unmodifiable." : ""));
+                w.println("     */");
+                w.println("    public " + fieldType(f) + " " + f.getter() + "(){");
+                w.println("        return " + f.name + ";");
+                w.println("    }");
+                w.println();
+            }
+            
+            w.println("    /**");
+            w.println("     * Make a mutable copy of this value.");
+            w.println("     * @return A new {@link " + cls + "}.");
+            w.println("     */");
+            w.println("    public " + cls + " toMutable(){");
+            w.println("        " + cls + " obj = " + newInstance(type) + ";");
+            for (Field f : fields){
+                switch (f.kind){
+                    case OBJECT:
+                        w.println("        obj." + f.name + " = " + f.name + " == null ? null : " + f.name + ".toMutable();");
+                        break;
+                    case LIST:
+                        w.println("        obj." + f.name + " = Values.thaw(" + f.name + ", " + (f.type == null ? "s -> s" : f.value() + "::toMutable") + ");");
+                        break;
+                    default:
+                        w.println("        obj." + f.name + " = " + f.name + ";");
+                }
+            }
+            w.println("        return obj;");
+            w.println("    }");
+            w.println();
+            
+            w.println("    @Override");
+            w.println("    public int hashCode(){");
+            w.println("        return hash;");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public boolean equals(Object o){");
+            w.println("        if (o == this){");
+            w.println("            return true;");
+            w.println("        }");
+            w.println("        if (!(o instanceof " + value + ")){");
+            w.println("            return false;");
+            w.println("        }");
+            w.println("        " + value + " v = (" + value + ")o;");
+            StringBuilder sb = new StringBuilder("        return hash == v.hash");
+            for (Field f : fields){
+                sb.append(" &&").append(System.lineSeparator()).append("                ").append(equalsOf(f));
+            }
+            w.println(sb.append(";"));
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public String toString(){");
+            w.println("        return toMutable().toString();");
+            w.println("    }");
+            w.println("}");
+        } catch (IOException E){
+            error(type, "Unable to write " + value + ": " + E.getMessage());
+        }
+    }
+}
@@ -15,8 +15,8 @@
  */
 package clsrestapi;
 
-import com.google.gson.Gson;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the about-us REST API call.  All CLS REST APIs
@@ -54,10 +54,7 @@ public class AboutUs extends Base<AboutUs> implements Serializable{
     @Override
     public AboutUs load(){
         try{
-            String json = loadJSONfromWebService();
-            Gson gson = new Gson();
-
-            return gson.fromJson(json, this.getClass());
+            return loadFromWebService();
         } catch (CRAException e) {
             //e.printStackTrace();
         }
@@ -89,6 +86,16 @@ public class AboutUs extends Base<AboutUs> implements Serializable{
         
         return dbgObj.equals(au.dbgObj) && apiVer.equals(au.apiVer) && apiObj.equals(au.apiObj) ;
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(dbgObj, apiVer, apiObj);
+    }
     
     /**
      * This method prints a nicely formatted string that shows the current object's
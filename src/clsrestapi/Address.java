@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements a US format mailing address. The {@link ContactInfo} class
  * contains one of these objects.
  * @author ken
  */
+@GenerateCodec
 public class Address implements Serializable{
     /**
      * The name of the entity.
@@ -83,6 +85,16 @@ public class Address implements Serializable{
                 state.equals(addr.state) &&
                 zipcode.equals(addr.zipcode);
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(name, street, city, state, zipcode);
+    }
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
@@ -16,6 +16,7 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of about-us. The common data is
@@ -23,6 +24,7 @@ import java.io.Serializable;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjAboutUs implements Serializable{
     /**
      * Holds the text returned by the about-us API.
@@ -51,6 +53,16 @@ public class ApiObjAboutUs implements Serializable{
         return  aboutus.equals(auo.aboutus);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(aboutus);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
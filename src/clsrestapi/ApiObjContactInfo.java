@@ -18,6 +18,7 @@ package clsrestapi;
 import java.io.Serializable;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of contact-info. The common data is
@@ -25,6 +26,7 @@ import java.util.ListIterator;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjContactInfo implements Serializable {
     /**
      * a short description of where the business is located.
@@ -47,23 +49,26 @@ public class ApiObjContactInfo implements Serializable {
      */
     public List<SocialNetwork> socialNetworks;
     
+    private transient volatile LookupIndex<String> index;
+    
     /**
-     * Lookup the URL for the specified social network.
+     * Lookup the URL for the specified social network. The lookup is made in a hash
+     * index that is built the first time it is needed.
+     * <b>The index sees a new list, and elements that were added or removed, but not
+     * an element that was replaced in place, or whose key was changed.</b> Assign a
+     * new list to make such changes visible.
      * @param network This String specifies the social network whose URL you want. It can be
      * Facebook, Twitter, Instagram or Vimeo.
      * @return URL for the companies social media page on the specified network. null if no
      * URL was found for the specified network.
      */
     public String getSocialNetworkUrl(String network){
-        for(ListIterator<SocialNetwork> iter = socialNetworks.listIterator(); iter.hasNext();){
-            SocialNetwork sn = iter.next();
-            
-            if( sn.network.equals(network)){
-                return sn.url;
-            }
+        LookupIndex<String> idx = index;
+        if (idx == null || !idx.isOf(socialNetworks)){
+            idx = LookupIndex.build(socialNetworks, sn -> sn.network, sn -> sn.url);
+            index = idx;
         }
-        
-        return null;
+        return idx.get(network);
     }
     /**
      * This method tests to see if the passed object is an instance of
@@ -91,6 +96,16 @@ public class ApiObjContactInfo implements Serializable {
                 socialNetworks.equals(ci.socialNetworks);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(location, address, email, phone, socialNetworks);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
@@ -19,6 +19,7 @@ import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of image-paths. The common data is
@@ -26,6 +27,7 @@ import java.util.ListIterator;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjImagePaths implements Serializable{
     /**
      * the number of ImagePath objects that are in the {@link ApiObjImagePaths#imagePaths} list.
@@ -36,26 +38,59 @@ public class ApiObjImagePaths implements Serializable{
      */
     public List<ImagePath> imagePaths;
     
+    private transient volatile LookupIndex<ImagePathValue> index;
+    
+    /**
+     * Get the index of the imagePaths by client ID, building it if needed.
+     * See {@link LookupIndex}.
+     */
+    private LookupIndex<ImagePathValue> index(){
+        LookupIndex<ImagePathValue> idx = index;
+        if (idx == null || !idx.isOf(imagePaths)){
+            idx = LookupIndex.build(imagePaths, imgPath -> imgPath.clientID, ImagePathValue::of);
+            index = idx;
+        }
+        return idx;
+    }
+    
     /**
      * Return the ImagePath object of the specified clientID. This is a cloned version of
-     * the object that's stored in the object's imagePaths vector.
+     * the object that's stored in the object's imagePaths vector. The lookup is made
+     * in a hash index that is built the first time it is needed.
+     * <b>The index sees a new list, and elements that were added or removed, but not
+     * an element that was replaced in place, or whose key was changed.</b> Assign a
+     * new list to make such changes visible.
      * @param clientID The name of the client whose image path object you want.
      * @return ImagePath for specified API or null if not found.
      */
     public ImagePath getImagePath(String clientID){
-        int counter = 0;
-        
-        for (ImagePath imgPath : imagePaths) {
-            if( clientID.equals(imgPath.clientID)){
-                try {
-                    return (ImagePath) imgPath.clone();
-                } catch(CloneNotSupportedException ex){
-                    
-                }
-            }
-        }
-        return null;
+        ImagePathValue imgPath = index().get(clientID);
+        return imgPath == null ? null : imgPath.toMutable();
+    }
+    
+    /**
+     * Return the image path of the specified clientID as an immutable {@link ImagePathValue}.
+     * The same instance is returned on every call, so unlike {@link #getImagePath(java.lang.String)},
+     * this doesn't allocate anything. It uses the same index, with the same limits.
+     * @param clientID The name of the client whose image path object you want.
+     * @return ImagePathValue for specified client or null if not found.
+     */
+    public ImagePathValue getImagePathValue(String clientID){
+        return index().get(clientID);
+    }
+    
+    /**
+     * Return the image path on the server of the specified clientID. Unlike
+     * {@link #getImagePath(java.lang.String)}, this doesn't allocate anything. It uses
+     * the same index, with the same limits.
+     * @param clientID The name of the client whose image path you want.
+     * @return the imagePath for specified client or null if not found.
+     */
+    public String getPathFor(String clientID){
+        ImagePathValue imgPath = index().get(clientID);
+        return imgPath == null ? null : imgPath.getImagePath();
     }
+    
     /**
      * This method tests to see if the passed object is an instance of
      * this class, and if it is, the object instance data is compared to
@@ -79,6 +114,16 @@ public class ApiObjImagePaths implements Serializable{
                 imagePaths.equals(ip.imagePaths);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(numPaths, imagePaths);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
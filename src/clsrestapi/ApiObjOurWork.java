@@ -15,9 +15,14 @@
  */
 package clsrestapi;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of our-work. The common data is
@@ -25,6 +30,7 @@ import java.util.ListIterator;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjOurWork implements Serializable{
     /**
      * the number of showcase videos stored in the {@link ApiObjOurWork#videoList} list.
@@ -35,6 +41,24 @@ public class ApiObjOurWork implements Serializable{
      */
     public List<ShowCaseVideo> videoList;
     
+    /*
+    Only numVideos is serialized by default. The videoList is written by writeObject(),
+    with its media URLs prefix compressed by VideoListSerializer.
+    */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("numVideos", int.class)
+    };
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        VideoListSerializer.write(out, videoList);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        videoList = VideoListSerializer.read(in, ShowCaseVideo.class);
+    }
+    
      /**
      * Get the showcase video at the index specified by 'showCaseVideo'. TODO: Should this be a clone???
      * @param showCaseVideo The showcase video position in the list.
@@ -69,6 +93,16 @@ public class ApiObjOurWork implements Serializable{
         return  numVideos == wi.numVideos &&
                 videoList.equals(wi.videoList);
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(numVideos, videoList);
+    }
     
     /**
      * Converts the current object instance data to a formatted string.
@@ -15,9 +15,14 @@
  */
 package clsrestapi;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of reels. The common data is
@@ -25,6 +30,7 @@ import java.util.ListIterator;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjReels implements Serializable{
     /**
      * the number of reels that are contained in the {@link ApiObjReels#reelList} array.
@@ -35,6 +41,24 @@ public class ApiObjReels implements Serializable{
      */
     public List<Video> reelList;
     
+    /*
+    Only numReels is serialized by default. The reelList is written by writeObject(),
+    with its media URLs prefix compressed by VideoListSerializer.
+    */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("numReels", int.class)
+    };
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        VideoListSerializer.write(out, reelList);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        reelList = VideoListSerializer.read(in, Video.class);
+    }
+    
     /**
      * Get the demo reel at the index specified by 'reel'. TODO: Should this be a clone???
      * @param reel The demo reel position in the list.
@@ -68,6 +92,16 @@ public class ApiObjReels implements Serializable{
         return  numReels == ri.numReels &&
                 reelList.equals(ri.reelList);
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(numReels, reelList);
+    }
     
     /**
      * Converts the current object instance data to a formatted string.
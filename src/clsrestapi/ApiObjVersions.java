@@ -19,6 +19,7 @@ import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Objects;
 
 /**
  * This class implements the API specific data of versions. The common data is
@@ -26,6 +27,7 @@ import java.util.ListIterator;
  * and a {@link DbgObj} object.
  * @author ken
  */
+@GenerateCodec
 public class ApiObjVersions implements Serializable{
     /**
      * the number of API objects that are in the {@link ApiObjVersions#apiList} list.
@@ -36,26 +38,75 @@ public class ApiObjVersions implements Serializable{
      */
     public List<ApiVer> apiList;
     
+    private transient volatile LookupIndex<ApiVerValue> index;
+    
+    /**
+     * Get the index of the apiList by API name, building it if needed.
+     * See {@link LookupIndex}.
+     */
+    private LookupIndex<ApiVerValue> index(){
+        LookupIndex<ApiVerValue> idx = index;
+        if (idx == null || !idx.isOf(apiList)){
+            idx = LookupIndex.build(apiList, version -> version.apiName, ApiVerValue::of);
+            index = idx;
+        }
+        return idx;
+    }
+    
     /**
      * Return the ApiVer object of the specified API. This is a cloned version of
-     * the object that's stored in the object's apiList vector.
+     * the object that's stored in the object's apiList vector. The lookup is made
+     * in a hash index that is built the first time it is needed.
+     * <b>The index sees a new list, and elements that were added or removed, but not
+     * an element that was replaced in place, or whose key was changed.</b> Assign a
+     * new list to make such changes visible.
      * @param apiName The name of the API whose version object you want.
      * @return ApiVer for specified API or null if not found/present.
      */
     public ApiVer getApiVersion(String apiName){
-        int counter = 0;
-        
-        for (ApiVer version : apiList) {
-            if( apiName.equals(version.apiName)){
-                try {
-                    return (ApiVer) version.clone();
-                } catch(CloneNotSupportedException ex){
-                    
-                }
-            }
-        }
-        return null;
+        ApiVerValue version = index().get(apiName);
+        return version == null ? null : version.toMutable();
+    }
+    
+    /**
+     * Return the version of the specified API as an immutable {@link ApiVerValue}.
+     * The same instance is returned on every call, so unlike {@link #getApiVersion(java.lang.String)},
+     * this doesn't allocate anything. It uses the same index, with the same limits.
+     * @param apiName The name of the API whose version object you want.
+     * @return ApiVerValue for specified API or null if not found/present.
+     */
+    public ApiVerValue getApiVersionValue(String apiName){
+        return index().get(apiName);
     }
+    
+    /**
+     * Return the data version of the specified API. Unlike {@link #getApiVersion(java.lang.String)},
+     * this doesn't allocate anything. It uses the same index, with the same limits.
+     * @param apiName The name of the API whose data version you want.
+     * @return the apiDataVersion for specified API or null if not found/present.
+     */
+    public String getApiDataVersion(String apiName){
+        ApiVerValue version = index().get(apiName);
+        return version == null ? null : version.getApiDataVersion();
+    }
+    
+    /**
+     * Check if an ApiVer object is the same as the version of the specified API
+     * in this object. This is the check the cache makes to decide if a cached API
+     * object is out of date, and it doesn't allocate anything. It uses the same index
+     * as {@link #getApiVersion(java.lang.String)}, with the same limits.
+     * @param apiName The name of the API.
+     * @param apiVer The version to check, e.g. of a cached object.
+     * @return true if the API is present, and its version equals apiVer.
+     */
+    public boolean isCurrent(String apiName, ApiVer apiVer){
+        ApiVerValue version = index().get(apiName);
+        return version != null && apiVer != null &&
+                Objects.equals(version.getApiName(), apiVer.apiName) &&
+                Objects.equals(version.getApiVersion(), apiVer.apiVersion) &&
+                Objects.equals(version.getApiDataVersion(), apiVer.apiDataVersion);
+    }
+    
     /**
      * This method tests to see if the passed object is an instance of
      * this class, and if it is, the object instance data is compared to
@@ -79,6 +130,16 @@ public class ApiObjVersions implements Serializable{
                 apiList.equals(vi.apiList);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(numApis, apiList);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
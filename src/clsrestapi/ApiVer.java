@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the ApiVer object.  All CLS REST APIs
  * contain two common objects, an ApiVer (this class) and a {@link DbgObj}.
  * @author ken
  */
+@GenerateCodec
 public class ApiVer implements Serializable, Cloneable{
     /**
      * the API name
@@ -77,6 +79,16 @@ public class ApiVer implements Serializable, Cloneable{
                 apiDataVersion.equals(ai.apiDataVersion);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(apiName, apiVersion, apiDataVersion);
+    }
+
     /**
      * Implement support for cloning of the ApiVer object.
      * @return Object that is a duplicate of the current instance
@@ -15,9 +15,34 @@
  */
 package clsrestapi;
 
-import java.net.*;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * This is the base class for the CLS REST API set. Each API contains three
@@ -58,6 +83,71 @@ public abstract class Base<T extends Base> implements Serializable{
      */
     public ApiVer apiVer;
     
+    /**
+     * The ETag validator the server sent with this object, or null if none was sent.
+     */
+    protected String eTag;
+    
+    /**
+     * The Last-Modified validator the server sent with this object, or null if none was sent.
+     */
+    protected String lastModified;
+    
+    /**
+     * The time this object was loaded or last revalidated by the server, in milliseconds
+     * since the epoch, or 0 if it isn't known. It is kept in the cache file by {@link CacheCodec}.
+     */
+    protected transient long fetchedAt;
+    
+    /**
+     * Set by {@link Compactor#compact(clsrestapi.Base, java.lang.String)}, so that an
+     * object is only compacted once.
+     */
+    transient boolean compacted;
+    
+    /**
+     * The transport used by all API instances that haven't been assigned their own.
+     */
+    private static volatile Transport defaultTransport = new HttpTransport();
+    
+    /**
+     * The transport used by this API instance. If null, the default transport is used.
+     * This is transient so that it is not serialized with the object.
+     */
+    private transient Transport transport;
+    
+    /**
+     * The retry policy used by all API instances that haven't been assigned their own.
+     */
+    private static volatile RetryPolicy defaultRetryPolicy = RetryPolicy.DEFAULT;
+    
+    /**
+     * The retry policy used by this API instance. If null, the default policy is used.
+     */
+    private transient RetryPolicy retryPolicy;
+    
+    /**
+     * The hedge policy used by all API instances that haven't been assigned their own.
+     * Null means hedging is off, which is the default.
+     */
+    private static volatile HedgePolicy defaultHedgePolicy = null;
+    
+    /**
+     * The hedge policy used by this API instance. If null, the default policy is used.
+     */
+    private transient HedgePolicy hedgePolicy;
+    
+    /**
+     * The deadline for network calls made by this API instance. If null, there is no deadline.
+     */
+    private transient Deadline deadline;
+    
+    /**
+     * The projection used when this API instance is loaded, or null to read every field.
+     * In a loaded object, this is the projection it was loaded with.
+     */
+    private transient Projection projection;
+    
     /**
      * This is the constructor for the Base class. You pass in the host path
      * and the apiName, and the fully qualified name is constructed on the fly.
@@ -103,6 +193,156 @@ public abstract class Base<T extends Base> implements Serializable{
         return this.webHost;
     }
     
+    /**
+     * Set the {@link Transport} used by all API instances that have not been
+     * assigned a transport via {@link #setTransport(clsrestapi.Transport)}.
+     * @param transport the new default transport. Cannot be null.
+     */
+    public static void setDefaultTransport(Transport transport){
+        if (transport == null) throw new IllegalArgumentException("transport cannot be null");
+        defaultTransport = transport;
+    }
+    
+    /**
+     * Get the {@link Transport} used by API instances that have not been
+     * assigned their own.
+     * @return the default transport.
+     */
+    public static Transport getDefaultTransport(){
+        return defaultTransport;
+    }
+    
+    /**
+     * Set the {@link Transport} used by this API instance.
+     * @param transport the transport to use, or null to use the default transport.
+     */
+    public void setTransport(Transport transport){
+        this.transport = transport;
+    }
+    
+    /**
+     * Get the {@link Transport} used by this API instance.
+     * @return the transport for this instance, or the default transport if none was set.
+     */
+    public Transport getTransport(){
+        return transport != null ? transport : defaultTransport;
+    }
+    
+    /**
+     * Set the {@link RetryPolicy} used by all API instances that have not been
+     * assigned a policy via {@link #setRetryPolicy(clsrestapi.RetryPolicy)}.
+     * @param policy the new default retry policy. Cannot be null.
+     */
+    public static void setDefaultRetryPolicy(RetryPolicy policy){
+        if (policy == null) throw new IllegalArgumentException("policy cannot be null");
+        defaultRetryPolicy = policy;
+    }
+    
+    /**
+     * Set the {@link RetryPolicy} used by this API instance.
+     * @param policy the retry policy to use, or null to use the default policy.
+     */
+    public void setRetryPolicy(RetryPolicy policy){
+        this.retryPolicy = policy;
+    }
+    
+    /**
+     * Get the {@link RetryPolicy} used by this API instance.
+     * @return the retry policy for this instance, or the default policy if none was set.
+     */
+    public RetryPolicy getRetryPolicy(){
+        return retryPolicy != null ? retryPolicy : defaultRetryPolicy;
+    }
+    
+    /**
+     * Set the {@link HedgePolicy} used by all API instances that have not been
+     * assigned a policy via {@link #setHedgePolicy(clsrestapi.HedgePolicy)}.
+     * @param policy the new default hedge policy, or null to turn hedging off.
+     */
+    public static void setDefaultHedgePolicy(HedgePolicy policy){
+        defaultHedgePolicy = policy;
+    }
+    
+    /**
+     * Set the {@link HedgePolicy} used by this API instance.
+     * @param policy the hedge policy to use, or null to use the default policy.
+     */
+    public void setHedgePolicy(HedgePolicy policy){
+        this.hedgePolicy = policy;
+    }
+    
+    /**
+     * Get the {@link HedgePolicy} used by this API instance.
+     * @return the hedge policy for this instance, the default policy if none
+     * was set, or null if hedging is off.
+     */
+    public HedgePolicy getHedgePolicy(){
+        return hedgePolicy != null ? hedgePolicy : defaultHedgePolicy;
+    }
+    
+    /**
+     * Set the {@link Deadline} for the network calls made by this API instance.
+     * Retries and hedges stop once it has passed, and the connect/read timeouts
+     * of each connection are bounded by the time left.
+     * @param deadline the deadline, or null for no deadline.
+     */
+    public void setDeadline(Deadline deadline){
+        this.deadline = deadline;
+    }
+    
+    /**
+     * Get the {@link Deadline} for the network calls made by this API instance.
+     * @return the deadline, or {@link Deadline#none()} if none was set.
+     */
+    public Deadline getDeadline(){
+        return deadline != null ? deadline : Deadline.none();
+    }
+    
+    /**
+     * Set the {@link Projection} used when this API instance is loaded. The fields
+     * that are not part of the projection are skipped by the parser, and left
+     * unset in the loaded object.
+     * @param projection the projection, or null to read every field.
+     */
+    public void setProjection(Projection projection){
+        this.projection = projection;
+    }
+    
+    /**
+     * Get the {@link Projection} used when this API instance is loaded. For a
+     * loaded object, this is the projection that it was loaded with.
+     * @return the projection, or null if every field is read.
+     */
+    public Projection getProjection(){
+        return projection;
+    }
+    
+    /**
+     * Get the ETag validator that the server sent when this object was loaded.
+     * @return the ETag, or null if the server did not send one.
+     */
+    public String getETag(){
+        return eTag;
+    }
+    
+    /**
+     * Get the Last-Modified validator that the server sent when this object was loaded.
+     * @return the Last-Modified date, or null if the server did not send one.
+     */
+    public String getLastModified(){
+        return lastModified;
+    }
+    
+    /**
+     * Get the time this object was loaded or last revalidated by the server. This
+     * is the time the age of a cached object is measured from, see {@link FreshnessPolicy}.
+     * @return the time in milliseconds since the epoch, or 0 if it isn't known, e.g.
+     * for an object that was cached by an older version of the library.
+     */
+    public long getFetchedAt(){
+        return fetchedAt;
+    }
+    
     /**
      * 
      * @param wsUrlRoot
@@ -128,37 +368,625 @@ public abstract class Base<T extends Base> implements Serializable{
     
     /**
      * This method loads the JSON data from a web service. If it does not see
-     * a header of Content-Type == application/json, it will throw an 
-     * AssertionError.
+     * a header of Content-Type == application/json, it will throw a 
+     * CRAException. The body is always decoded as UTF-8.
      * 
      * @return String containing the JSON data from the web service.
      * @throws clsrestapi.CRAException
      */
     public String loadJSONfromWebService() throws CRAException {
-        try{
-            URL url = new URL(webServiceUrl);
+        /*
+        The Content-Type check and the body both come from the same response, so
+        that we only make one round trip to the server.
+        */
+        return fetch(getRequestHeaders(null), rsp -> {
+            try (InputStream body = openBody(rsp)){
+                Reader in = new InputStreamReader(body, StandardCharsets.UTF_8);
+                StringBuilder json = new StringBuilder();
+                char[] buf = new char[4096];
+                int count;
+
+                while((count = in.read(buf)) != -1) {
+                   json.append(buf, 0, count);
+                }
+                return json.toString();
+            }
+        });
+    }
+    
+    /**
+     * This method loads the object directly from the web service response. The
+     * response stream is decoded as UTF-8 and fed straight into the JSON parser,
+     * so the body is never materialized as a String. This is the method that
+     * the derived classes use to implement {@link #load()}.
+     * 
+     * @return A new instance of the class that extends this class.
+     * @throws clsrestapi.CRAException if the web service is not available, or
+     * the response could not be parsed.
+     */
+    protected T loadFromWebService() throws CRAException {
+        return loadFromWebService(null);
+    }
+    
+    /**
+     * This method works like {@link #loadFromWebService()}, but if a previously
+     * loaded copy of the object is passed, the request is made conditional on the
+     * validators (ETag and Last-Modified) stored in that copy. If the server
+     * responds with 304 (Not Modified), the cached copy is returned as is, and
+     * nothing is parsed.
+     * 
+     * @param cached A previously loaded copy of this API object, or null.
+     * @return Either the cached object, or a new instance of the class that extends this class.
+     * @throws clsrestapi.CRAException if the web service is not available, or
+     * the response could not be parsed.
+     */
+    protected T loadFromWebService(T cached) throws CRAException {
+        return fetch(getRequestHeaders(cached), rsp -> {
+            if (cached != null && rsp.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED){
+                cached.fetchedAt = System.currentTimeMillis();
+                return cached;
+            }
+            try (InputStream body = openBody(rsp)){
+                JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+                T craObj;
+                if (projection == null){
+                    craObj = GsonRegistry.get().fromJson(reader, this.getClass());
+                } else {
+                    JsonCodecs.makeLenient(reader);
+                    craObj = GsonRegistry.read(this.getClass(), reader, projection);
+                }
+
+                if (craObj == null){
+                    throw new CRAException("URL [" + webServiceUrl + "] returned an empty response.");
+                }
+                craObj.fetchedAt = System.currentTimeMillis();
+                if (projection == null){
+                    craObj.eTag = rsp.getHeader("ETag");
+                    craObj.lastModified = rsp.getHeader("Last-Modified");
+                } else {
+                    /*
+                    A projected object is incomplete, so it doesn't get the validators.
+                    Revalidating it would otherwise let a 304 pass it off as a full object.
+                    */
+                    craObj.setProjection(projection);
+                }
+
+                return craObj;
+            } catch (JsonParseException | EOFException | MalformedJsonException | IllegalStateException e){
+                throw new CRAException("URL [" + webServiceUrl + "] returned invalid JSON.", e);
+            }
+        });
+    }
+    
+    /**
+     * This method makes the same call as {@link #loadFromWebService()}, but only
+     * reads the apiVer object, and optionally the dbgObj object, of the response.
+     * It stops reading as soon as it has them, so the apiObj object, which holds
+     * the bulk of the data, is never materialized.
+     * 
+     * @param withDbgObj true to read the dbgObj object as well.
+     * @return A new instance of the class that extends this class, with only the
+     * apiVer (and dbgObj) set.
+     * @throws clsrestapi.CRAException if the web service is not available, or
+     * the response could not be parsed.
+     */
+    protected T loadHeadersFromWebService(boolean withDbgObj) throws CRAException {
+        return fetch(getRequestHeaders(null), rsp -> {
+            try (InputStream body = openBody(rsp)){
+                JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+                JsonCodecs.makeLenient(reader);
+
+                T craObj = GsonRegistry.readHeaders(this.getClass(), reader, withDbgObj);
+
+                if (craObj == null){
+                    throw new CRAException("URL [" + webServiceUrl + "] returned an empty response.");
+                }
+                craObj.eTag = rsp.getHeader("ETag");
+                craObj.lastModified = rsp.getHeader("Last-Modified");
+
+                return craObj;
+            } catch (EOFException | MalformedJsonException | IllegalStateException e){
+                /*
+                These are problems with the document, not the connection, so they
+                must not be retried like the other IOExceptions.
+                */
+                throw new CRAException("URL [" + webServiceUrl + "] returned invalid JSON.", e);
+            }
+        });
+    }
+    
+    /**
+     * Open a {@link CatalogIterator} over a list in the apiObj object of this API,
+     * e.g. the reelList of {@link Reels}. The response is read up to the start of the
+     * list, and the iterator reads the elements from there. If the response has no such
+     * list, the iterator is empty. This is what the derived classes use to implement
+     * their catalog iterators.
+     * 
+     * @param <V> The class of the list elements.
+     * @param listName The name of the list in the apiObj object.
+     * @param countName The name of the field that holds the number of elements, e.g.
+     * numReels. If it comes before the list, the iterator knows its size.
+     * @param elementReader Reads one element of the list.
+     * @return The iterator, which must be closed by the caller.
+     * @throws clsrestapi.CRAException if the web service is not available, or
+     * the response could not be parsed.
+     */
+    <V> CatalogIterator<V> openCatalog(String listName, String countName, JsonCodecs.Reader<V> elementReader) throws CRAException {
+        return fetch(getRequestHeaders(null), rsp -> {
+            InputStream body = openBody(rsp);
+            JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            JsonCodecs.makeLenient(reader);
+            Closeable resources = () -> {
+                try {
+                    body.close();
+                } finally {
+                    rsp.close();
+                }
+            };
+            
+            try {
+                reader.beginObject();
+                while (reader.hasNext()){
+                    if (!reader.nextName().equals("apiObj") || reader.peek() != JsonToken.BEGIN_OBJECT){
+                        reader.skipValue();
+                        continue;
+                    }
+                    long count = -1;
+                    reader.beginObject();
+                    while (reader.hasNext()){
+                        String name = reader.nextName();
+                        if (name.equals(listName) && reader.peek() == JsonToken.BEGIN_ARRAY){
+                            reader.beginArray();
+                            return CatalogIterator.of(reader, elementReader, resources, count);
+                        }
+                        if (name.equals(countName) && reader.peek() == JsonToken.NUMBER){
+                            count = Math.max(-1, reader.nextLong());
+                            continue;
+                        }
+                        reader.skipValue();
+                    }
+                    reader.endObject();
+                }
+                return CatalogIterator.empty(resources);
+            } catch (EOFException | MalformedJsonException | IllegalStateException e){
+                resources.close();
+                throw new CRAException("URL [" + webServiceUrl + "] returned invalid JSON.", e);
+            } catch (IOException e){
+                resources.close();
+                throw e;
+            }
+        }, true);
+    }
+    
+    /**
+     * Open a {@link CatalogIterator} over the video list of a cache file written by
+     * {@link #serialize(java.lang.String)}. The file is mapped into memory, and the
+     * packed list (see {@link VideoListSerializer}) is decoded one element at a time,
+     * without reading the rest of the object. A file written with Java serialization
+     * by an older version of the library is read in full instead. This is what the
+     * derived classes use to implement their cached catalog iterators.
+     * 
+     * @param <V> The class of the list elements.
+     * @param filename The name of the cache file.
+     * @param type The class of the list elements.
+     * @param list Gets the list from an object read in full.
+     * @return The iterator, which should be closed by the caller.
+     * @throws clsrestapi.CRAException if the file can't be read, or doesn't hold an
+     * object of the type of this instance.
+     */
+    <V extends Video> CatalogIterator<V> openCachedCatalog(String filename, Class<V> type, Function<T, List<V>> list) throws CRAException {
+        ByteBuffer buf;
+        
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)){
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new CRAException(ex.getMessage());
+        }
+        if (buf.remaining() >= 2 && (buf.get(0) & 0xFF) == 0xAC && (buf.get(1) & 0xFF) == 0xED){
+            return CatalogIterator.of(list.apply(fromCacheBuffer(buf)));
+        }
+        try {
+            return CacheCodec.openVideoList(new ByteBufferDataInput(buf), this.getClass(), type);
+        } catch (IOException ex) {
+            throw new CRAException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Load a {@link LazyCatalog} over a list in the apiObj object of this API, e.g.
+     * the reelList of {@link Reels}. The whole response is read into one buffer, and
+     * only the offsets of the fields of the list elements are recorded; see
+     * {@link LazyCatalog}. This is what the derived classes use to implement their
+     * lazy loads.
+     * 
+     * @param listName The name of the list in the apiObj object.
+     * @param showCase true if the elements are {@link ShowCaseVideo} objects.
+     * @param direct true to hold the response in a direct (off-heap) buffer.
+     * @return The catalog.
+     * @throws clsrestapi.CRAException if the web service is not available, or
+     * the response could not be parsed.
+     */
+    LazyCatalog loadLazyCatalog(String listName, boolean showCase, boolean direct) throws CRAException {
+        return fetch(getRequestHeaders(null), rsp -> {
+            try (InputStream body = openBody(rsp)){
+                ByteBuffer buffer = readFully(body, direct);
+                if (buffer.limit() == 0){
+                    throw new CRAException("URL [" + webServiceUrl + "] returned an empty response.");
+                }
+                return LazyCatalog.scan(buffer, listName, showCase);
+            } catch (MalformedJsonException e){
+                throw new CRAException("URL [" + webServiceUrl + "] returned invalid JSON.", e);
+            }
+        });
+    }
+    
+    /**
+     * Read a stream to the end into one buffer.
+     * @param in The stream.
+     * @param direct true for a direct buffer, false for a heap buffer.
+     * @return The buffer, with the limit set to the number of bytes read.
+     * @throws IOException if the stream could not be read.
+     */
+    private static ByteBuffer readFully(InputStream in, boolean direct) throws IOException {
+        byte[] bytes = new byte[8192];
+        int count = 0;
+        int n;
+        
+        while ((n = in.read(bytes, count, bytes.length - count)) >= 0){
+            count += n;
+            if (count == bytes.length){
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+        if (direct){
+            ByteBuffer buffer = ByteBuffer.allocateDirect(count);
+            buffer.put(bytes, 0, count);
+            buffer.flip();
+            return buffer;
+        }
+        /*
+        Trim the array unless it is nearly full, so the catalog doesn't hold on to
+        up to twice the size of the response.
+        */
+        return ByteBuffer.wrap(count > bytes.length - bytes.length / 8 ? bytes : Arrays.copyOf(bytes, count), 0, count);
+    }
+    
+    /**
+     * This interface is implemented by the code that processes a response
+     * in {@link Base#fetch(java.util.Map, clsrestapi.Base.ResponseHandler)}.
+     * @param <R> The type of the result.
+     */
+    private interface ResponseHandler<R> {
+        R handle(TransportResponse rsp) throws IOException, CRAException;
+    }
+    
+    /**
+     * Issue the request for this API instance, and pass the response to the
+     * handler. Connection failures, I/O errors and 5xx responses are retried
+     * according to the {@link RetryPolicy} of this instance, and every attempt
+     * is reported to the {@link CircuitBreaker} for the host. When the breaker
+     * is open, this fails fast without making a request. No attempt is started
+     * or retried once the {@link Deadline} of this instance has passed.
+     * @param headers The request headers.
+     * @param handler The code that processes the response.
+     * @return The result of the handler.
+     * @throws CRAException if all attempts failed, the breaker is open, the
+     * deadline passed, or the handler threw a CRAException (which is not retried).
+     */
+    private <R> R fetch(Map<String, String> headers, ResponseHandler<R> handler) throws CRAException {
+        return fetch(headers, handler, false);
+    }
+    
+    /**
+     * This holds the response of an attempt in {@link Base#fetch(java.util.Map, clsrestapi.Base.ResponseHandler, boolean)},
+     * and closes it at the end of the attempt, unless it was handed off to the result of the handler.
+     */
+    private static final class OwnedResponse implements Closeable {
+        private TransportResponse rsp;
+        
+        OwnedResponse(TransportResponse rsp){
+            this.rsp = rsp;
+        }
+        
+        void handOff(){
+            rsp = null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (rsp != null){
+                rsp.close();
+            }
+        }
+    }
+    
+    /**
+     * This works like {@link Base#fetch(java.util.Map, clsrestapi.Base.ResponseHandler)}, but
+     * if handOff is true, the response isn't closed when the handler returns successfully,
+     * and the result of the handler becomes responsible for closing it. This is used for
+     * results that keep reading the response, e.g. a {@link CatalogIterator}.
+     */
+    private <R> R fetch(Map<String, String> headers, ResponseHandler<R> handler, boolean handOff) throws CRAException {
+        CircuitBreaker breaker = CircuitBreaker.forHost(webHost);
+        RetryPolicy policy = getRetryPolicy();
+        Exception lastError = null;
+        
+        Deadline budget = getDeadline();
+        
+        for (int attempt = 0; attempt < policy.getMaxAttempts(); attempt++){
+            if (attempt > 0){
+                long delay = policy.getDelay(attempt);
+                
+                if (delay >= budget.remainingMillis()){
+                    // No point in sleeping if the deadline will have passed when we wake up.
+                    break;
+                }
+                try{
+                    Thread.sleep(delay);
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new CRAException("Interrupted while retrying URL [" + webServiceUrl + "]", e);
+                }
+            }
+            if (budget.isExpired()){
+                break;
+            }
+            if (!breaker.allowRequest()){
+                throw new CRAException("URL [" + webServiceUrl + "] not available, circuit breaker is open.", lastError);
+            }
             
-            URLConnection conn = url.openConnection();
+            boolean recorded = false;
             
-            if(!"application/json".equals(conn.getHeaderField("Content-Type"))){
-                throw new CRAException("Wrong Content-Type");
+            try (OwnedResponse owned = new OwnedResponse(openResponse(webServiceUrl, headers, apiName, budget))){
+                TransportResponse rsp = owned.rsp;
+                int status = rsp.getStatusCode();
+                
+                if (status >= HttpURLConnection.HTTP_INTERNAL_ERROR){
+                    breaker.recordFailure();
+                    recorded = true;
+                    lastError = new CRAException("URL [" + webServiceUrl + "] returned status " + status);
+                    continue;
+                }
+                if (status >= HttpURLConnection.HTTP_BAD_REQUEST){
+                    // The server is up, but didn't like the request. Retrying won't help.
+                    breaker.recordSuccess();
+                    recorded = true;
+                    throw new CRAException("URL [" + webServiceUrl + "] returned status " + status);
+                }
+                /*
+                The request only counts as a success once the handler has read the body.
+                A body that is cut short fails with an IOException, which is counted and
+                retried below, and one that can't be parsed counts as a failure too.
+                */
+                R result;
+                try {
+                    result = handler.handle(rsp);
+                } catch (CRAException E){
+                    breaker.recordFailure();
+                    recorded = true;
+                    throw E;
+                }
+                breaker.recordSuccess();
+                recorded = true;
+                
+                if (handOff){
+                    owned.handOff();
+                }
+                return result;
+            } catch (IOException e){
+                // Catch the exception thrown by the transport, and retry
+                if (!recorded){
+                    /*
+                    If we ran out of time, it was probably our deadline that cut the
+                    request short, so don't hold that against the host.
+                    */
+                    if (budget.isExpired()){
+                        breaker.recordCancelled();
+                    } else {
+                        breaker.recordFailure();
+                    }
+                }
+                lastError = e;
             }
+        }
+        /*
+        Report what actually went wrong. When we stop early because the next backoff
+        wouldn't fit in the budget, the deadline hasn't passed, and the last failure
+        is the real reason the URL isn't available.
+        */
+        if (lastError == null){
+            throw new CRAException("URL [" + webServiceUrl + "] not available, deadline exceeded.");
+        }
+        if (budget.isExpired()){
+            throw new CRAException("URL [" + webServiceUrl + "] not available, deadline exceeded after: " + lastError.getMessage(), lastError);
+        }
+        throw new CRAException("URL [" + webServiceUrl + "] not available: " + lastError.getMessage(), lastError);
+    }
+    
+    /**
+     * Revalidate a previously loaded copy of this API object with the server.
+     * The request carries If-None-Match and If-Modified-Since headers built from
+     * the validators stored in the cached copy, so if nothing changed on the
+     * server, the cached copy is returned without downloading or parsing it again.
+     * 
+     * @param cached A previously loaded copy of this API object.
+     * @return The cached object if it's still current, a freshly loaded object
+     * if it changed, or null if the load failed.
+     */
+    public T loadIfModified(T cached){
+        try{
+            return loadFromWebService(cached);
+        } catch (CRAException e) {
+            //e.printStackTrace();
+        }
+        return null;
+    }
+    
+    /**
+     * Load only the apiVer object, and optionally the dbgObj object, of this API
+     * from the server. This is much cheaper than {@link #load()}, and it is meant
+     * for checking whether a cached copy is still current, or for monitoring.
+     * The object that is returned has no apiObj, so it must not be cached or
+     * used in place of a fully loaded one.
+     * @param withDbgObj true to read the dbgObj object as well.
+     * @return An API object with only apiVer (and dbgObj) set, or null if the load failed.
+     */
+    public T loadHeaders(boolean withDbgObj){
+        try{
+            return loadHeadersFromWebService(withDbgObj);
+        } catch (CRAException e) {
+            //e.printStackTrace();
+        }
+        return null;
+    }
+    
+    /**
+     * Load only the apiVer object of this API from the server. See
+     * {@link #loadHeaders(boolean)} for the details.
+     * @return An API object with only apiVer set, or null if the load failed.
+     */
+    public T loadHeaders(){
+        return loadHeaders(false);
+    }
+    
+    /**
+     * Open the response for the specified URL using the transport of this
+     * instance. If a {@link HedgePolicy} is in effect, the request is hedged,
+     * and the outcome is tracked in the {@link HedgeStats} with the specified name.
+     * @param url The URL to fetch.
+     * @param headers The request headers.
+     * @param statsName The name the hedge stats are kept under.
+     * @param deadline The deadline for the request.
+     * @return The response. The caller is responsible for closing it.
+     * @throws IOException if the request failed.
+     */
+    TransportResponse openResponse(String url, Map<String, String> headers, String statsName, Deadline deadline) throws IOException {
+        HedgePolicy policy = getHedgePolicy();
         
-            InputStream is = url.openStream();
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(is));
-            String json = "";
-            String current;
-
-            while((current = in.readLine()) != null) {
-               json += current;
+        if (policy == null){
+            return getTransport().get(url, headers, deadline);
+        }
+        return new Hedger(getTransport(), policy, HedgeStats.forName(statsName), CircuitBreaker.forHost(webHost)).get(url, headers, deadline);
+    }
+    
+    /**
+     * Open the response for the specified URL without any extra request headers.
+     * See {@link #openResponse(java.lang.String, java.util.Map, java.lang.String, clsrestapi.Deadline)}.
+     * @param url The URL to fetch.
+     * @param statsName The name the hedge stats are kept under.
+     * @param deadline The deadline for the request.
+     * @return The response. The caller is responsible for closing it.
+     * @throws IOException if the request failed.
+     */
+    TransportResponse openResponse(String url, String statsName, Deadline deadline) throws IOException {
+        return openResponse(url, Collections.<String, String>emptyMap(), statsName, deadline);
+    }
+    
+    /**
+     * Build the request headers for the passed object. We always ask for a
+     * compressed response, and if a cached copy is passed, its validators are
+     * sent to make the request conditional.
+     * @param cached The object whose validators should be sent, or null.
+     * @return The request headers.
+     */
+    private Map<String, String> getRequestHeaders(T cached){
+        Map<String, String> headers = new HashMap<>();
+        
+        headers.put("Accept-Encoding", "gzip, deflate");
+        
+        if (cached != null){
+            if (cached.eTag != null) headers.put("If-None-Match", cached.eTag);
+            if (cached.lastModified != null) headers.put("If-Modified-Since", cached.lastModified);
+        }
+        return headers;
+    }
+    
+    /**
+     * Verify that the response is JSON, and open its body, decompressing it on
+     * the fly if the server sent it gzip or deflate encoded. When the returned
+     * stream is closed, the number of bytes read from the wire and the number
+     * of bytes they decoded to are recorded in the {@link TransferStats} for this API.
+     * @param rsp The response to read.
+     * @return The decoded body. The caller is responsible for closing it.
+     * @throws IOException if the body could not be opened.
+     * @throws CRAException if the response is not Content-Type == application/json.
+     */
+    private InputStream openBody(TransportResponse rsp) throws IOException, CRAException {
+        checkContentType(rsp);
+        
+        final CountingInputStream wire = new CountingInputStream(rsp.getBody());
+        String encoding = rsp.getHeader("Content-Encoding");
+        InputStream decoded;
+        
+        if (encoding == null || encoding.trim().isEmpty() || "identity".equalsIgnoreCase(encoding.trim())){
+            decoded = wire;
+        } else if ("gzip".equalsIgnoreCase(encoding.trim()) || "x-gzip".equalsIgnoreCase(encoding.trim())){
+            decoded = new GZIPInputStream(wire);
+        } else if ("deflate".equalsIgnoreCase(encoding.trim())){
+            decoded = openDeflate(wire);
+        } else {
+            throw new CRAException("Unsupported Content-Encoding: " + encoding);
+        }
+        
+        return new CountingInputStream(decoded){
+            private boolean recorded = false;
+            
+            @Override
+            public void close() throws IOException {
+                if (!recorded){
+                    recorded = true;
+                    TransferStats.forApi(apiName).record(wire.getCount(), getCount());
+                }
+                super.close();
+            }
+        };
+    }
+    
+    /**
+     * The deflate content encoding is supposed to be zlib wrapped, but some
+     * servers send raw deflate data. Peek at the first two bytes to see if
+     * there is a zlib header, and pick the right inflater.
+     * @param in The encoded stream.
+     * @return The decoded stream.
+     * @throws IOException if the stream could not be read.
+     */
+    private static InputStream openDeflate(InputStream in) throws IOException {
+        PushbackInputStream pb = new PushbackInputStream(in, 2);
+        int b0 = pb.read();
+        int b1 = b0 == -1 ? -1 : pb.read();
+        
+        if (b1 != -1) pb.unread(b1);
+        if (b0 != -1) pb.unread(b0);
+        
+        boolean zlib = b0 != -1 && b1 != -1 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+        
+        final Inflater inflater = new Inflater(!zlib);
+        
+        return new InflaterInputStream(pb, inflater){
+            @Override
+            public void close() throws IOException {
+                try{
+                    super.close();
+                } finally {
+                    // We supplied the inflater, so we have to release it ourselves.
+                    inflater.end();
+                }
             }
-            return json;
-        }catch(IOException e){
-            // Catch the exception thrown by url.openStream() and translate it
+        };
+    }
+    
+    /**
+     * Verify that the server responded with JSON.
+     * @param rsp The response to check.
+     * @throws CRAException if the response is not Content-Type == application/json.
+     */
+    private void checkContentType(TransportResponse rsp) throws CRAException {
+        if(!"application/json".equals(rsp.getContentType())){
+            throw new CRAException("Wrong Content-Type");
         }
-        throw new CRAException("URL [" + webServiceUrl + "] not available.");
     }
+    
     /**
      * This method returns a string heading used by the derived class in
      * the toString() override. Basically just a dashed line, the name of
@@ -184,56 +1012,142 @@ public abstract class Base<T extends Base> implements Serializable{
     }
     
     /**
-     * This method serializes an object instance to the specified disk file.
+     * This method serializes an object instance to the specified disk file. The
+     * object is written in the compact binary format of the cache, see {@link CacheCodec}.
+     * The file is replaced atomically, so a reader never sees a partly written file.
      * @param filename is the name of the file to write to. It is overwritten
      * if it already exists.
      * @return boolean indicating whether the serialization was successful.
-     * @throws clsrestapi.CRAException
+     * @throws clsrestapi.CRAException if the file can't be written, or the object
+     * was loaded with a {@link Projection}.
      */
     public boolean serialize(String filename) throws CRAException {
-        boolean retVal = true;
+        writeCacheFile(filename, toCacheBytes());
+        return true;
+    }
+    
+    /**
+     * Encode this object in the binary format of the cache, see {@link CacheCodec}.
+     * @return The bytes of the cache file.
+     * @throws clsrestapi.CRAException if the object was loaded with a {@link Projection},
+     * or can't be encoded.
+     */
+    byte[] toCacheBytes() throws CRAException {
+        if (projection != null){
+            throw new CRAException("A projected object (" + projection + ") can't be serialized.");
+        }
+        try {
+            ByteArrayDataOutput out = new ByteArrayDataOutput(64 * 1024);
+            CacheCodec.write(out, this);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new CRAException("Unable to encode the object for the cache: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Write a cache file atomically. The bytes are written to a temporary file in the
+     * same directory, which is then renamed over the target, so readers see either the
+     * old file or the new one, never a torn one.
+     * @param filename The name of the file.
+     * @param bytes The bytes to write, e.g. from {@link #toCacheBytes()}.
+     * @throws clsrestapi.CRAException if the file can't be written.
+     */
+    static void writeCacheFile(String filename, byte[] bytes) throws CRAException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path tmp = null;
         
-        // save the object to file
-        FileOutputStream fos;
-        ObjectOutputStream out;
         try {
-            fos = new FileOutputStream(filename);
-            out = new ObjectOutputStream(fos);
-            out.writeObject(this);
-
-            out.close();
-        } catch (FileNotFoundException ex){
+            tmp = Files.createTempFile(target.getParent(), target.getFileName().toString() + ".", ".tmp");
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex){
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (NoSuchFileException ex){
             throw new CRAException("File or Directory does not exist.");
         } catch (IOException ex) {
             throw new CRAException("IO error writing to serialization file.");
+        } finally {
+            if (tmp != null){
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex){
+                    /* Nothing more we can do, and the file is harmless. */
+                }
+            }
         }
-        return retVal;
     }
     
     /**
      * This method de-serializes an object instance from the specified disk file.
      * The type of object returned is the type of the instance that it is invoked
-     * from.
+     * from. Files in the binary format of the cache are read with {@link CacheCodec},
+     * and files that were written with Java serialization by older versions of the
+     * library are still read with an ObjectInputStream.
      * @param filename is the name of the file to read from.
      * @return T instance
      * @throws clsrestapi.CRAException
      */
     public T deSerialize(String filename) throws CRAException {
+        byte[] bytes;
+        
+        try {
+            bytes = Files.readAllBytes(Paths.get(filename));
+        } catch (IOException ex) {
+            throw new CRAException(ex.getMessage());
+        }
+        return fromCacheBytes(bytes);
+    }
+    
+    /**
+     * Decode an object of the type of this instance from the bytes of a cache file.
+     * @param bytes The bytes, e.g. from {@link #toCacheBytes()}.
+     * @return T instance
+     * @throws clsrestapi.CRAException if the bytes can't be decoded, or hold another class.
+     */
+    T fromCacheBytes(byte[] bytes) throws CRAException {
+        return fromCacheBuffer(ByteBuffer.wrap(bytes));
+    }
+    
+    /**
+     * Decode an object of the type of this instance from the remaining bytes of a
+     * buffer, e.g. an item of a {@link MappedCache}. A buffer that isn't backed by an
+     * array is decoded in place, without copying it to the heap first. The position
+     * of the buffer is not changed.
+     * @param buf The buffer.
+     * @return T instance
+     * @throws clsrestapi.CRAException if the bytes can't be decoded, or hold another class.
+     */
+    T fromCacheBuffer(ByteBuffer buf) throws CRAException {
         Object obj;
-        // save the object to file
-        FileInputStream fis;
-        ObjectInputStream in;
+        int p = buf.position();
+        
         try {
-            fis = new FileInputStream(filename);
-            in = new ObjectInputStream(fis);
-            obj = in.readObject();
-            in.close();
+            /*
+            Look at the first two bytes to see which format the file is in.
+            */
+            if (buf.remaining() >= 2 && (buf.get(p) & 0xFF) == 0xAC && (buf.get(p + 1) & 0xFF) == 0xED){
+                ByteArrayInputStream bis;
+                if (buf.hasArray()){
+                    bis = new ByteArrayInputStream(buf.array(), buf.arrayOffset() + p, buf.remaining());
+                } else {
+                    byte[] bytes = new byte[buf.remaining()];
+                    buf.duplicate().get(bytes);
+                    bis = new ByteArrayInputStream(bytes);
+                }
+                obj = new ObjectInputStream(bis).readObject();
+            } else if (buf.hasArray()){
+                obj = CacheCodec.read(new ByteArrayDataInput(buf.array(), buf.arrayOffset() + p, buf.remaining()), this.getClass());
+            } else {
+                obj = CacheCodec.read(new ByteBufferDataInput(buf), this.getClass());
+            }
             if( ! obj.getClass().isInstance(this) ){
                 throw new CRAException("Got unexpected class from readObject: " + obj.getClass().toString());
             }
             
-        } catch (InvalidClassException | FileNotFoundException ex){
-            throw new CRAException(ex.getMessage());
         } catch (IOException | ClassNotFoundException ex) {
             throw new CRAException(ex.getMessage());
         }
@@ -253,6 +1167,37 @@ public abstract class Base<T extends Base> implements Serializable{
      */
     public abstract T load();
     
+    /**
+     * Asynchronously load the object by running {@link #load()} on the specified
+     * executor. This allows the caller to start several API loads at once, instead
+     * of waiting on each in turn.
+     * 
+     * @param executor The executor to run the load on.
+     * @return A future that completes with the loaded object, or completes
+     * exceptionally with a {@link CRAException} if {@link #load()} failed.
+     */
+    public CompletableFuture<T> loadAsync(Executor executor){
+        return CompletableFuture.supplyAsync(() -> {
+            T craObj = load();
+            
+            if (craObj == null){
+                throw new CompletionException(new CRAException("URL [" + webServiceUrl + "] failed to load."));
+            }
+            return craObj;
+        }, executor);
+    }
+    
+    /**
+     * Asynchronously load the object using the shared I/O executor from
+     * {@link IoExecutors}, which runs on virtual threads on Java 21 and later. See
+     * {@link #loadAsync(java.util.concurrent.Executor)} for details.
+     * 
+     * @return A future that completes with the loaded object.
+     */
+    public CompletableFuture<T> loadAsync(){
+        return loadAsync(IoExecutors.get());
+    }
+    
     /**
      * Override the built-in toString and properly dump this instance.
      * @return String containing the dbgObj and apiVer instance data for this object.
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the helpers that the generated binary codecs are built on
+ * (see {@link GenerateCodec}).
+ * <br><br>
+ * Every value starts with a one byte type tag, followed by its payload:
+ * <ul>
+ * <li>{@link #T_NULL}: no payload.</li>
+ * <li>{@link #T_STRING}: the length as a varint, then the UTF-8 bytes.</li>
+ * <li>{@link #T_INT} and {@link #T_LONG}: a zigzag varint.</li>
+ * <li>{@link #T_BOOLEAN}: one byte.</li>
+ * <li>{@link #T_DOUBLE}: eight bytes.</li>
+ * <li>{@link #T_OBJECT}: the number of fields as a varint, then for each field
+ * its tag as a varint (see {@link #tag(java.lang.String)}), and its value.</li>
+ * <li>{@link #T_LIST}: the number of elements as a varint, then the elements.</li>
+ * <li>{@link #T_BYTES}: the length as a varint, then the bytes of a value written in
+ * a format of its own, e.g. a video list packed by {@link VideoListSerializer}.</li>
+ * </ul>
+ * Null fields are left out. Since every value carries its type, a reader can skip
+ * a field it does not know, or one whose type has changed, so a class can gain and
+ * lose fields without breaking data written by an older or newer version.
+ * @author Ken Lowrie
+ */
+final class BinaryCodecs {
+    static final byte T_NULL = 0;
+    static final byte T_STRING = 1;
+    static final byte T_INT = 2;
+    static final byte T_LONG = 3;
+    static final byte T_BOOLEAN = 4;
+    static final byte T_DOUBLE = 5;
+    static final byte T_OBJECT = 6;
+    static final byte T_LIST = 7;
+    static final byte T_BYTES = 8;
+    
+    /**
+     * The mask of a field tag. A tag fits in 14 bits, so it is written as a varint
+     * of at most two bytes.
+     */
+    static final int TAG_MASK = 0x3FFF;
+    
+    /**
+     * Reads a value, including its type tag, from the input.
+     * @param <T> The type of the value.
+     */
+    interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+    
+    /**
+     * Writes a value, including its type tag, to the output.
+     * @param <T> The type of the value.
+     */
+    interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+    
+    private BinaryCodecs(){
+    }
+    
+    /**
+     * Get the tag of a field, which is the hash code of its name folded to 14 bits.
+     * The code generator computes the same tags, and fails the build if two fields
+     * of a class end up with the same one.
+     * @param name The name of the field.
+     * @return The tag.
+     */
+    static int tag(String name){
+        return fold(name.hashCode());
+    }
+    
+    private static int fold(int hash){
+        return (hash ^ (hash >>> 14) ^ (hash >>> 28)) & TAG_MASK;
+    }
+    
+    static void writeTag(DataOutput out, int tag) throws IOException {
+        writeVarInt(out, tag);
+    }
+    
+    /**
+     * Read a field tag. Version 1 of the cache format wrote the full hash code of
+     * the name as an int; when reading through a {@link LegacyTags} input, that
+     * is read instead, and folded into the tag of the field.
+     * @param in The input.
+     * @return The tag.
+     * @throws IOException if the tag could not be read.
+     */
+    static int readTag(DataInput in) throws IOException {
+        if (in instanceof LegacyTags){
+            return fold(in.readInt());
+        }
+        return readVarInt(in);
+    }
+    
+    static void writeVarInt(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0){
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+    
+    static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7){
+            byte b = in.readByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0){
+                return v;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+    
+    static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0){
+            out.writeByte((int)(v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+    
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7){
+            byte b = in.readByte();
+            v |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0){
+                return v;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+    
+    static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null){
+            out.writeByte(T_NULL);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(T_STRING);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readStringPayload(DataInput in) throws IOException {
+        if (in instanceof ByteArrayDataInput){
+            return ((ByteArrayDataInput)in).readUtf8(readVarInt(in));
+        }
+        if (in instanceof ByteBufferDataInput){
+            return ((ByteBufferDataInput)in).readUtf8(readVarInt(in));
+        }
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Read a String value, e.g. an element of a List of Strings. A value of any
+     * other type is skipped, and read as null.
+     */
+    static String readString(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type == T_STRING){
+            return readStringPayload(in);
+        }
+        skip(in, type);
+        return null;
+    }
+    
+    static void writeInt(DataOutput out, int v) throws IOException {
+        out.writeByte(T_INT);
+        writeVarInt(out, (v << 1) ^ (v >> 31));
+    }
+    
+    static int readIntPayload(DataInput in) throws IOException {
+        int v = readVarInt(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+    
+    static void writeLong(DataOutput out, long v) throws IOException {
+        out.writeByte(T_LONG);
+        writeVarLong(out, (v << 1) ^ (v >> 63));
+    }
+    
+    static long readLongPayload(DataInput in) throws IOException {
+        long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+    
+    static void writeBoolean(DataOutput out, boolean v) throws IOException {
+        out.writeByte(T_BOOLEAN);
+        out.writeBoolean(v);
+    }
+    
+    static void writeDouble(DataOutput out, double v) throws IOException {
+        out.writeByte(T_DOUBLE);
+        out.writeDouble(v);
+    }
+    
+    static <E> void writeList(DataOutput out, List<E> list, Writer<E> writer) throws IOException {
+        if (list == null){
+            out.writeByte(T_NULL);
+            return;
+        }
+        out.writeByte(T_LIST);
+        writeVarInt(out, list.size());
+        for (E e : list){
+            writer.write(out, e);
+        }
+    }
+    
+    static <E> List<E> readListPayload(DataInput in, Reader<E> reader) throws IOException {
+        int size = readVarInt(in);
+        List<E> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++){
+            list.add(reader.read(in));
+        }
+        return list;
+    }
+    
+    /**
+     * Skip the payload of a value whose type tag has already been read.
+     * @param in The input.
+     * @param type The type tag of the value.
+     * @throws IOException if the type tag is not valid.
+     */
+    static void skip(DataInput in, byte type) throws IOException {
+        switch (type){
+            case T_NULL:
+                break;
+            case T_STRING:
+            case T_BYTES:
+                for (int n = readVarInt(in); n > 0; ){
+                    int skipped = in.skipBytes(n);
+                    if (skipped <= 0){
+                        in.readByte();
+                        skipped = 1;
+                    }
+                    n -= skipped;
+                }
+                break;
+            case T_INT:
+            case T_LONG:
+                readVarLong(in);
+                break;
+            case T_BOOLEAN:
+                in.readByte();
+                break;
+            case T_DOUBLE:
+                in.readLong();
+                break;
+            case T_OBJECT:
+                for (int i = readVarInt(in); i > 0; i--){
+                    readTag(in);
+                    skip(in, in.readByte());
+                }
+                break;
+            case T_LIST:
+                for (int i = readVarInt(in); i > 0; i--){
+                    skip(in, in.readByte());
+                }
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown type tag " + type);
+        }
+    }
+    
+    /**
+     * An input holding data whose field tags are ints, as written by version 1
+     * of the cache format. See {@link #readTag(java.io.DataInput)}.
+     */
+    static final class LegacyTags implements DataInput {
+        private final DataInput in;
+        
+        LegacyTags(DataInput in){
+            this.in = in;
+        }
+        
+        @Override
+        public void readFully(byte[] b) throws IOException {
+            in.readFully(b);
+        }
+        
+        @Override
+        public void readFully(byte[] b, int off, int len) throws IOException {
+            in.readFully(b, off, len);
+        }
+        
+        @Override
+        public int skipBytes(int n) throws IOException {
+            return in.skipBytes(n);
+        }
+        
+        @Override
+        public boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+        
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+        
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return in.readUnsignedByte();
+        }
+        
+        @Override
+        public short readShort() throws IOException {
+            return in.readShort();
+        }
+        
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return in.readUnsignedShort();
+        }
+        
+        @Override
+        public char readChar() throws IOException {
+            return in.readChar();
+        }
+        
+        @Override
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+        
+        @Override
+        public long readLong() throws IOException {
+            return in.readLong();
+        }
+        
+        @Override
+        public float readFloat() throws IOException {
+            return in.readFloat();
+        }
+        
+        @Override
+        public double readDouble() throws IOException {
+            return in.readDouble();
+        }
+        
+        @Override
+        public String readLine() throws IOException {
+            return in.readLine();
+        }
+        
+        @Override
+        public String readUTF() throws IOException {
+            return in.readUTF();
+        }
+    }
+}
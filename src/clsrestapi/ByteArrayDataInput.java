@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is a {@link DataInput} that reads from a byte array. It is the reading
+ * side of {@link ByteArrayDataOutput}: the {@link CacheCodec} reads a whole file into
+ * memory, and decodes it from there without taking a lock for each byte.
+ * @author Ken Lowrie
+ */
+final class ByteArrayDataInput implements DataInput {
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+    
+    ByteArrayDataInput(byte[] buf){
+        this(buf, 0, buf.length);
+    }
+    
+    ByteArrayDataInput(byte[] buf, int off, int len){
+        this.buf = buf;
+        this.pos = off;
+        this.limit = off + len;
+    }
+    
+    private int next(int n) throws EOFException {
+        if (limit - pos < n){
+            throw new EOFException();
+        }
+        int p = pos;
+        pos += n;
+        return p;
+    }
+    
+    /**
+     * Read UTF-8 bytes as a String, straight from the array.
+     * @param len The number of bytes.
+     * @return The String.
+     * @throws EOFException if there are not enough bytes left.
+     */
+    String readUtf8(int len) throws EOFException {
+        return new String(buf, next(len), len, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Make an input over the next bytes, and skip them in this input.
+     * @param len The number of bytes.
+     * @return The new input.
+     * @throws EOFException if there are not enough bytes left.
+     */
+    ByteArrayDataInput slice(int len) throws EOFException {
+        return new ByteArrayDataInput(buf, next(len), len);
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        System.arraycopy(buf, next(len), b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n){
+        int skipped = Math.max(0, Math.min(n, limit - pos));
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return buf[next(1)] != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return buf[next(1)];
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return buf[next(1)] & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        int p = next(2);
+        return (short)((buf[p] << 8) | (buf[p + 1] & 0xFF));
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return (char)readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int p = next(4);
+        return (buf[p] << 24) | ((buf[p + 1] & 0xFF) << 16) | ((buf[p + 2] & 0xFF) << 8) | (buf[p + 3] & 0xFF);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine(){
+        if (pos >= limit){
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (pos < limit){
+            char c = (char)(buf[pos++] & 0xFF);
+            if (c == '\n'){
+                break;
+            }
+            if (c == '\r'){
+                if (pos < limit && buf[pos] == '\n'){
+                    pos++;
+                }
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
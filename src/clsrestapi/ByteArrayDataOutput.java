@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * This class is a {@link DataOutput} that writes to a growable byte array. Unlike a
+ * DataOutputStream over a ByteArrayOutputStream or a BufferedOutputStream, it takes no
+ * lock for each byte, which is most of the cost of writing the many small values of the
+ * binary codecs. The {@link CacheCodec} writes a whole file into one, and then writes
+ * it out with {@link #writeTo(java.io.OutputStream)}.
+ * @author Ken Lowrie
+ */
+final class ByteArrayDataOutput implements DataOutput {
+    private byte[] buf;
+    private int count;
+    
+    ByteArrayDataOutput(int size){
+        buf = new byte[Math.max(size, 16)];
+    }
+    
+    private void ensure(int n){
+        if (count + n > buf.length){
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+        }
+    }
+    
+    /**
+     * Get the number of bytes written so far.
+     * @return The size.
+     */
+    int size(){
+        return count;
+    }
+    
+    /**
+     * Get a copy of the bytes written so far.
+     * @return The bytes.
+     */
+    byte[] toByteArray(){
+        return Arrays.copyOf(buf, count);
+    }
+    
+    /**
+     * Write the bytes written so far to a stream, in one call.
+     * @param out The stream.
+     * @throws IOException if the stream could not be written.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+    
+    /**
+     * Write the bytes written so far to another output, in one call.
+     * @param out The output.
+     * @throws IOException if the output could not be written.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.write(buf, 0, count);
+    }
+    
+    @Override
+    public void write(int b){
+        ensure(1);
+        buf[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b){
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len){
+        ensure(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void writeBoolean(boolean v){
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v){
+        write(v);
+    }
+
+    @Override
+    public void writeShort(int v){
+        ensure(2);
+        buf[count++] = (byte)(v >>> 8);
+        buf[count++] = (byte)v;
+    }
+
+    @Override
+    public void writeChar(int v){
+        writeShort(v);
+    }
+
+    @Override
+    public void writeInt(int v){
+        ensure(4);
+        buf[count++] = (byte)(v >>> 24);
+        buf[count++] = (byte)(v >>> 16);
+        buf[count++] = (byte)(v >>> 8);
+        buf[count++] = (byte)v;
+    }
+
+    @Override
+    public void writeLong(long v){
+        writeInt((int)(v >>> 32));
+        writeInt((int)v);
+    }
+
+    @Override
+    public void writeFloat(float v){
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v){
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s){
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++){
+            buf[count++] = (byte)s.charAt(i);
+        }
+    }
+
+    @Override
+    public void writeChars(String s){
+        for (int i = 0; i < s.length(); i++){
+            writeChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        /*
+        The codecs don't use modified UTF-8, so this doesn't need to be fast.
+        */
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+}
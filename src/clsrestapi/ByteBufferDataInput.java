@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is a {@link DataInput} that reads from a ByteBuffer, e.g. a file of the
+ * {@link MappedCache} that is mapped into memory. It works like {@link ByteArrayDataInput},
+ * and the {@link CacheCodec} decodes straight from the mapped pages with it.
+ * <br><br>
+ * The buffer is read with absolute gets, so its position is never moved, and inputs
+ * over the same buffer can be used by different threads at once.
+ * @author Ken Lowrie
+ */
+final class ByteBufferDataInput implements DataInput {
+    private final ByteBuffer buf;
+    private final int limit;
+    private int pos;
+    
+    /**
+     * Create an input over the remaining bytes of a buffer.
+     * @param buf The buffer.
+     */
+    ByteBufferDataInput(ByteBuffer buf){
+        this(buf.duplicate().order(ByteOrder.BIG_ENDIAN), buf.position(), buf.remaining());
+    }
+    
+    private ByteBufferDataInput(ByteBuffer buf, int off, int len){
+        this.buf = buf;
+        this.pos = off;
+        this.limit = off + len;
+    }
+    
+    private int next(int n) throws EOFException {
+        if (limit - pos < n){
+            throw new EOFException();
+        }
+        int p = pos;
+        pos += n;
+        return p;
+    }
+    
+    /**
+     * Read UTF-8 bytes as a String.
+     * @param len The number of bytes.
+     * @return The String.
+     * @throws EOFException if there are not enough bytes left.
+     */
+    String readUtf8(int len) throws EOFException {
+        int p = next(len);
+        if (buf.hasArray()){
+            return new String(buf.array(), buf.arrayOffset() + p, len, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[len];
+        copy(p, bytes, 0, len);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Make an input over the next bytes, and skip them in this input.
+     * @param len The number of bytes.
+     * @return The new input.
+     * @throws EOFException if there are not enough bytes left.
+     */
+    ByteBufferDataInput slice(int len) throws EOFException {
+        return new ByteBufferDataInput(buf, next(len), len);
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        copy(next(len), b, off, len);
+    }
+    
+    private void copy(int p, byte[] b, int off, int len){
+        ByteBuffer src = buf.duplicate();
+        src.position(p);
+        src.get(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n){
+        int skipped = Math.max(0, Math.min(n, limit - pos));
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return buf.get(next(1)) != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return buf.get(next(1));
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return buf.get(next(1)) & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return buf.getShort(next(2));
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return buf.getChar(next(2));
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return buf.getInt(next(4));
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return buf.getLong(next(8));
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return buf.getFloat(next(4));
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return buf.getDouble(next(8));
+    }
+
+    @Override
+    public String readLine(){
+        if (pos >= limit){
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (pos < limit){
+            char c = (char)(buf.get(pos++) & 0xFF);
+            if (c == '\n'){
+                break;
+            }
+            if (c == '\r'){
+                if (pos < limit && buf.get(pos) == '\n'){
+                    pos++;
+                }
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
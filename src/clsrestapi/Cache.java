@@ -18,6 +18,7 @@ package clsrestapi;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -77,6 +78,32 @@ public class Cache {
         return Paths.get(this.cacheDir.toString(),itemName).toString();
     }
     
+    /**
+     * Read the contents of an item. This cache keeps each item in its own file,
+     * which is read into a buffer on the heap.
+     * @param itemName The name of the item.
+     * @return A buffer with the contents of the item.
+     * @throws CRAException if the item doesn't exist, or can't be read.
+     */
+    public ByteBuffer readItem(String itemName) throws CRAException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(Paths.get(this.cacheDir.toString(),itemName)));
+        } catch (IOException E){
+            throw new CRAException(E.getMessage());
+        }
+    }
+    
+    /**
+     * Write the contents of an item, replacing it if it exists. This cache replaces
+     * the file of the item atomically, so readers never see a partly written item.
+     * @param itemName The name of the item.
+     * @param bytes The new contents.
+     * @throws CRAException if the item can't be written.
+     */
+    public void writeItem(String itemName, byte[] bytes) throws CRAException {
+        Base.writeCacheFile(absolutePath(itemName), bytes);
+    }
+    
     public boolean flush() {
         boolean retVal = true;
         
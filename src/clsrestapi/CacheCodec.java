@@ -0,0 +1,472 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reads and writes the API objects in the format of the "objects"
+ * cache, see {@link Base#serialize(java.lang.String)}. It replaces Java serialization,
+ * which is slow, bloated, and can't read a file once a class has changed.
+ * <br><br>
+ * A file starts with {@link #MAGIC}, the version of the format as a varint, and the
+ * name of the API class. Then comes the API object in the tagged format of
+ * {@link BinaryCodecs}, with the common fields, the dbgObj and apiVer objects, and
+ * the apiObj object written by the generated codecs. The video lists of {@link Reels}
+ * and {@link OurWork} are packed by {@link VideoListSerializer} instead, since their
+ * media URLs compress so well. Since every field is tagged, the model classes can gain
+ * and lose fields without a change to the version. A change to the layout itself must
+ * bump {@link #VERSION}, and {@link #read(java.io.DataInput, java.lang.Class)} must keep
+ * reading the older versions, so that a cache survives an upgrade of the library.
+ * @author Ken Lowrie
+ */
+final class CacheCodec {
+    /**
+     * The first four bytes of a cache file, "CLSC". A file written with Java
+     * serialization starts with 0xACED instead.
+     */
+    static final int MAGIC = 0x434C5343;
+    /**
+     * The version of the format that is written. Version 1 wrote each field tag
+     * as the full hash code of the field name; version 2 writes the short tags of
+     * {@link BinaryCodecs#tag(java.lang.String)}.
+     */
+    static final int VERSION = 2;
+    
+    private static final int WEB_HOST = BinaryCodecs.tag("webHost");
+    private static final int WEB_SERVICE_URL = BinaryCodecs.tag("webServiceUrl");
+    private static final int API_NAME = BinaryCodecs.tag("apiName");
+    private static final int ETAG = BinaryCodecs.tag("eTag");
+    private static final int LAST_MODIFIED = BinaryCodecs.tag("lastModified");
+    private static final int DBG_OBJ = BinaryCodecs.tag("dbgObj");
+    private static final int API_VER = BinaryCodecs.tag("apiVer");
+    private static final int API_OBJ = BinaryCodecs.tag("apiObj");
+    private static final int FETCHED_AT = BinaryCodecs.tag("fetchedAt");
+    private static final int FIELDS = 9;
+    
+    /**
+     * This is the base class for the codecs of the API classes. The common fields
+     * are handled by {@link CacheCodec}, and the subclass handles the apiObj object.
+     * @param <T> The API class.
+     */
+    private abstract static class Entry<T extends Base<?>> {
+        final Class<T> cls;
+        
+        Entry(Class<T> cls){
+            this.cls = cls;
+        }
+        
+        /**
+         * Create an empty instance of the class.
+         * @return The new instance.
+         */
+        abstract T create();
+        
+        /**
+         * Write the apiObj object of the API object, including its type tag.
+         */
+        abstract void writeApiObj(DataOutput out, T obj) throws IOException;
+        
+        /**
+         * Read the apiObj object, including its type tag, into the API object.
+         */
+        abstract void readApiObj(T obj, DataInput in) throws IOException;
+    }
+    
+    private static final Entry<AboutUs> ABOUT_US = new Entry<AboutUs>(AboutUs.class){
+        @Override
+        AboutUs create(){
+            return new AboutUs();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, AboutUs obj) throws IOException {
+            ApiObjAboutUsCodec.writeBinary(out, obj.apiObj);
+        }
+
+        @Override
+        void readApiObj(AboutUs obj, DataInput in) throws IOException {
+            obj.apiObj = ApiObjAboutUsCodec.readBinary(in);
+        }
+    };
+    
+    private static final Entry<Versions> VERSIONS = new Entry<Versions>(Versions.class){
+        @Override
+        Versions create(){
+            return new Versions();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, Versions obj) throws IOException {
+            ApiObjVersionsCodec.writeBinary(out, obj.apiObj);
+        }
+
+        @Override
+        void readApiObj(Versions obj, DataInput in) throws IOException {
+            obj.apiObj = ApiObjVersionsCodec.readBinary(in);
+        }
+    };
+    
+    private static final Entry<ImagePaths> IMAGE_PATHS = new Entry<ImagePaths>(ImagePaths.class){
+        @Override
+        ImagePaths create(){
+            return new ImagePaths();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, ImagePaths obj) throws IOException {
+            ApiObjImagePathsCodec.writeBinary(out, obj.apiObj);
+        }
+
+        @Override
+        void readApiObj(ImagePaths obj, DataInput in) throws IOException {
+            obj.apiObj = ApiObjImagePathsCodec.readBinary(in);
+        }
+    };
+    
+    private static final Entry<ContactInfo> CONTACT_INFO = new Entry<ContactInfo>(ContactInfo.class){
+        @Override
+        ContactInfo create(){
+            return new ContactInfo();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, ContactInfo obj) throws IOException {
+            ApiObjContactInfoCodec.writeBinary(out, obj.apiObj);
+        }
+
+        @Override
+        void readApiObj(ContactInfo obj, DataInput in) throws IOException {
+            obj.apiObj = ApiObjContactInfoCodec.readBinary(in);
+        }
+    };
+    
+    private static final int NUM_REELS = BinaryCodecs.tag("numReels");
+    private static final int REEL_LIST = BinaryCodecs.tag("reelList");
+    
+    private static final Entry<Reels> REELS = new Entry<Reels>(Reels.class){
+        @Override
+        Reels create(){
+            return new Reels();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, Reels obj) throws IOException {
+            if (obj.apiObj == null){
+                out.writeByte(BinaryCodecs.T_NULL);
+                return;
+            }
+            out.writeByte(BinaryCodecs.T_OBJECT);
+            BinaryCodecs.writeVarInt(out, 2);
+            BinaryCodecs.writeTag(out, NUM_REELS);
+            BinaryCodecs.writeInt(out, obj.apiObj.numReels);
+            BinaryCodecs.writeTag(out, REEL_LIST);
+            writePacked(out, obj.apiObj.reelList);
+        }
+
+        @Override
+        void readApiObj(Reels obj, DataInput in) throws IOException {
+            byte type = in.readByte();
+            if (type != BinaryCodecs.T_OBJECT){
+                BinaryCodecs.skip(in, type);
+                return;
+            }
+            obj.apiObj = new ApiObjReels();
+            for (int i = BinaryCodecs.readVarInt(in); i > 0; i--){
+                int tag = BinaryCodecs.readTag(in);
+                type = in.readByte();
+                if (tag == NUM_REELS && type == BinaryCodecs.T_INT){
+                    obj.apiObj.numReels = BinaryCodecs.readIntPayload(in);
+                } else if (tag == REEL_LIST && type == BinaryCodecs.T_BYTES){
+                    obj.apiObj.reelList = readPacked(in, Video.class);
+                } else {
+                    BinaryCodecs.skip(in, type);
+                }
+            }
+        }
+    };
+    
+    private static final int NUM_VIDEOS = BinaryCodecs.tag("numVideos");
+    private static final int VIDEO_LIST = BinaryCodecs.tag("videoList");
+    
+    private static final Entry<OurWork> OUR_WORK = new Entry<OurWork>(OurWork.class){
+        @Override
+        OurWork create(){
+            return new OurWork();
+        }
+
+        @Override
+        void writeApiObj(DataOutput out, OurWork obj) throws IOException {
+            if (obj.apiObj == null){
+                out.writeByte(BinaryCodecs.T_NULL);
+                return;
+            }
+            out.writeByte(BinaryCodecs.T_OBJECT);
+            BinaryCodecs.writeVarInt(out, 2);
+            BinaryCodecs.writeTag(out, NUM_VIDEOS);
+            BinaryCodecs.writeInt(out, obj.apiObj.numVideos);
+            BinaryCodecs.writeTag(out, VIDEO_LIST);
+            writePacked(out, obj.apiObj.videoList);
+        }
+
+        @Override
+        void readApiObj(OurWork obj, DataInput in) throws IOException {
+            byte type = in.readByte();
+            if (type != BinaryCodecs.T_OBJECT){
+                BinaryCodecs.skip(in, type);
+                return;
+            }
+            obj.apiObj = new ApiObjOurWork();
+            for (int i = BinaryCodecs.readVarInt(in); i > 0; i--){
+                int tag = BinaryCodecs.readTag(in);
+                type = in.readByte();
+                if (tag == NUM_VIDEOS && type == BinaryCodecs.T_INT){
+                    obj.apiObj.numVideos = BinaryCodecs.readIntPayload(in);
+                } else if (tag == VIDEO_LIST && type == BinaryCodecs.T_BYTES){
+                    obj.apiObj.videoList = readPacked(in, ShowCaseVideo.class);
+                } else {
+                    BinaryCodecs.skip(in, type);
+                }
+            }
+        }
+    };
+    
+    private static final Map<Class<?>, Entry<?>> ENTRIES = new HashMap<>();
+    static {
+        for (Entry<?> entry : Arrays.asList(ABOUT_US, VERSIONS, IMAGE_PATHS, CONTACT_INFO, REELS, OUR_WORK)){
+            ENTRIES.put(entry.cls, entry);
+        }
+    }
+    
+    private CacheCodec(){
+    }
+    
+    /**
+     * Write an API object.
+     * @param out The output.
+     * @param api The API object.
+     * @throws IOException if the object could not be written, or its class is not supported.
+     */
+    static void write(DataOutput out, Base<?> api) throws IOException {
+        Entry<?> entry = ENTRIES.get(api.getClass());
+        if (entry == null){
+            throw new InvalidClassException(api.getClass().getName(), "The cache format doesn't support this class");
+        }
+        out.writeInt(MAGIC);
+        BinaryCodecs.writeVarInt(out, VERSION);
+        BinaryCodecs.writeString(out, api.getClass().getName());
+        
+        out.writeByte(BinaryCodecs.T_OBJECT);
+        BinaryCodecs.writeVarInt(out, FIELDS);
+        BinaryCodecs.writeTag(out, WEB_HOST);
+        BinaryCodecs.writeString(out, api.webHost);
+        BinaryCodecs.writeTag(out, WEB_SERVICE_URL);
+        BinaryCodecs.writeString(out, api.webServiceUrl);
+        BinaryCodecs.writeTag(out, API_NAME);
+        BinaryCodecs.writeString(out, api.apiName);
+        BinaryCodecs.writeTag(out, ETAG);
+        BinaryCodecs.writeString(out, api.eTag);
+        BinaryCodecs.writeTag(out, LAST_MODIFIED);
+        BinaryCodecs.writeString(out, api.lastModified);
+        BinaryCodecs.writeTag(out, DBG_OBJ);
+        DbgObjCodec.writeBinary(out, api.dbgObj);
+        BinaryCodecs.writeTag(out, API_VER);
+        ApiVerCodec.writeBinary(out, api.apiVer);
+        BinaryCodecs.writeTag(out, FETCHED_AT);
+        BinaryCodecs.writeLong(out, api.fetchedAt);
+        BinaryCodecs.writeTag(out, API_OBJ);
+        writeApiObj(out, entry, api);
+    }
+    
+    /*
+    Write the apiObj object with the entry that was looked up by the class of the
+    API object, so the cast can't fail.
+    */
+    private static <T extends Base<?>> void writeApiObj(DataOutput out, Entry<T> entry, Base<?> api) throws IOException {
+        entry.writeApiObj(out, entry.cls.cast(api));
+    }
+    
+    /**
+     * Read an API object.
+     * @param <T> The API class.
+     * @param in The input, positioned at the start of the file.
+     * @param cls The API class the file must hold.
+     * @return The API object.
+     * @throws IOException if the object could not be read, the file holds another
+     * class, or it was written by a newer version of the library.
+     */
+    static <T> T read(DataInput in, Class<?> cls) throws IOException {
+        in = readHeader(in, cls);
+        Entry<?> entry = ENTRIES.get(cls);
+        if (entry == null){
+            throw new InvalidClassException(cls.getName(), "The cache format doesn't support this class");
+        }
+        @SuppressWarnings("unchecked")
+        T craObj = (T)readFields(in, entry);
+        return craObj;
+    }
+    
+    /*
+    Read the fields of an API object of the class of an entry.
+    */
+    private static <T extends Base<?>> T readFields(DataInput in, Entry<T> entry) throws IOException {
+        T api = entry.create();
+        for (int i = BinaryCodecs.readVarInt(in); i > 0; i--){
+            int tag = BinaryCodecs.readTag(in);
+            if (tag == WEB_HOST){
+                api.webHost = BinaryCodecs.readString(in);
+            } else if (tag == WEB_SERVICE_URL){
+                api.webServiceUrl = BinaryCodecs.readString(in);
+            } else if (tag == API_NAME){
+                api.apiName = BinaryCodecs.readString(in);
+            } else if (tag == ETAG){
+                api.eTag = BinaryCodecs.readString(in);
+            } else if (tag == LAST_MODIFIED){
+                api.lastModified = BinaryCodecs.readString(in);
+            } else if (tag == DBG_OBJ){
+                api.dbgObj = DbgObjCodec.readBinary(in);
+            } else if (tag == API_VER){
+                api.apiVer = ApiVerCodec.readBinary(in);
+            } else if (tag == FETCHED_AT){
+                byte valueType = in.readByte();
+                if (valueType == BinaryCodecs.T_LONG){
+                    api.fetchedAt = BinaryCodecs.readLongPayload(in);
+                } else {
+                    BinaryCodecs.skip(in, valueType);
+                }
+            } else if (tag == API_OBJ){
+                entry.readApiObj(api, in);
+            } else {
+                BinaryCodecs.skip(in, in.readByte());
+            }
+        }
+        return api;
+    }
+    
+    /**
+     * Read the start of a file, up to the number of fields of the API object.
+     * @return The input to read the rest of the file from.
+     */
+    private static DataInput readHeader(DataInput in, Class<?> cls) throws IOException {
+        if (in.readInt() != MAGIC){
+            throw new StreamCorruptedException("Not a cache file");
+        }
+        int version = BinaryCodecs.readVarInt(in);
+        if (version < 1 || version > VERSION){
+            throw new InvalidObjectException("Unsupported cache format " + version);
+        }
+        if (version == 1){
+            in = new BinaryCodecs.LegacyTags(in);
+        }
+        String name = BinaryCodecs.readString(in);
+        if (!cls.getName().equals(name)){
+            throw new InvalidClassException(name, "Expected a " + cls.getName() + " in the cache file");
+        }
+        if (in.readByte() != BinaryCodecs.T_OBJECT){
+            throw new StreamCorruptedException("Expected an object in the cache file");
+        }
+        return in;
+    }
+    
+    /**
+     * Open an iterator over the video list of a {@link Reels} or {@link OurWork} file,
+     * which decodes one element at a time. The other fields are skipped.
+     * @param <V> The class of the list elements.
+     * @param in The input, positioned at the start of the file.
+     * @param cls The API class the file must hold.
+     * @param type The class of the list elements.
+     * @return The iterator, which is empty if the file has no list.
+     * @throws IOException if the start of the list could not be read, or the file holds another class.
+     */
+    static <V extends Video> CatalogIterator<V> openVideoList(DataInput in, Class<?> cls, Class<V> type) throws IOException {
+        int listTag;
+        if (cls == Reels.class){
+            listTag = REEL_LIST;
+        } else if (cls == OurWork.class){
+            listTag = VIDEO_LIST;
+        } else {
+            throw new InvalidClassException(cls.getName(), "The class has no video list");
+        }
+        in = readHeader(in, cls);
+        
+        for (int i = BinaryCodecs.readVarInt(in); i > 0; i--){
+            int tag = BinaryCodecs.readTag(in);
+            byte valueType = in.readByte();
+            if (tag != API_OBJ || valueType != BinaryCodecs.T_OBJECT){
+                BinaryCodecs.skip(in, valueType);
+                continue;
+            }
+            for (int j = BinaryCodecs.readVarInt(in); j > 0; j--){
+                tag = BinaryCodecs.readTag(in);
+                valueType = in.readByte();
+                if (tag == listTag && valueType == BinaryCodecs.T_BYTES){
+                    return new CatalogIterator<>(VideoListSerializer.open(packed(in), type));
+                }
+                BinaryCodecs.skip(in, valueType);
+            }
+        }
+        return new CatalogIterator<>(null);
+    }
+    
+    /**
+     * Write a video list packed by {@link VideoListSerializer}, as a {@link BinaryCodecs#T_BYTES} value.
+     */
+    private static void writePacked(DataOutput out, List<? extends Video> videos) throws IOException {
+        if (videos == null){
+            out.writeByte(BinaryCodecs.T_NULL);
+            return;
+        }
+        ByteArrayDataOutput packed = new ByteArrayDataOutput(videos.size() * 128);
+        VideoListSerializer.write(packed, videos);
+        out.writeByte(BinaryCodecs.T_BYTES);
+        BinaryCodecs.writeVarInt(out, packed.size());
+        packed.writeTo(out);
+    }
+    
+    /**
+     * Read the payload of a video list written by {@link #writePacked(java.io.DataOutput, java.util.List)}.
+     * The list is read in place when the input is a {@link ByteArrayDataInput} or
+     * a {@link ByteBufferDataInput}.
+     */
+    private static <V extends Video> List<V> readPacked(DataInput in, Class<V> type) throws IOException {
+        return VideoListSerializer.read(packed(in), type);
+    }
+    
+    /*
+    The packed bytes of a video list, read in place when possible.
+    */
+    private static DataInput packed(DataInput in) throws IOException {
+        int len = BinaryCodecs.readVarInt(in);
+        if (in instanceof ByteArrayDataInput){
+            return ((ByteArrayDataInput)in).slice(len);
+        }
+        if (in instanceof ByteBufferDataInput){
+            return ((ByteBufferDataInput)in).slice(len);
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new ByteArrayDataInput(bytes);
+    }
+}
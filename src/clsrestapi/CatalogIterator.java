@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class reads the elements of a catalog list, such as {@link ApiObjReels#reelList}
+ * or {@link ApiObjOurWork#videoList}, one at a time, either from the response of the
+ * server or from a cache file. Only the current element is held in memory, so a
+ * catalog of any size can be processed with a small heap. Get one with
+ * {@link Reels#reelIterator()} or {@link OurWork#videoIterator()}, or for a cache file
+ * written by {@link Base#serialize(java.lang.String)}, with
+ * {@link Reels#reelIterator(java.lang.String)} or {@link OurWork#videoIterator(java.lang.String)}.
+ * <br><br>
+ * The iterator holds the connection (or the file) open until the end of the list is
+ * reached, or it is closed, so use it in a try-with-resources block:
+ * <pre>
+ * try (CatalogIterator&lt;Video&gt; reels = new Reels().reelIterator()){
+ *     while (reels.hasNext()){
+ *         index(reels.next());
+ *     }
+ * }
+ * </pre>
+ * The elements can also be consumed as a {@link Stream}, which closes the iterator when
+ * it is closed. The {@link Spliterator} splits off batches of elements that have already
+ * been read, so the stream can be made parallel, e.g. to index the catalog on several threads.
+ * When the number of elements is known up front (see {@link #getSize()}), the spliterator
+ * reports it, so e.g. toArray() allocates the array once.
+ * <br><br>
+ * Read errors in {@link #hasNext()} and {@link #next()} are thrown as {@link UncheckedIOException}.
+ * @author Ken Lowrie
+ * @param <V> The class of the list elements.
+ */
+public final class CatalogIterator<V> implements Iterator<V>, Closeable {
+    /**
+     * Where the elements come from, e.g. the response of the server.
+     * @param <V> The class of the list elements.
+     */
+    abstract static class Source<V> implements Closeable {
+        /**
+         * @return true if there is another element.
+         */
+        abstract boolean hasNext() throws IOException;
+        
+        /**
+         * Read the next element. Only called after {@link #hasNext()} returned true.
+         */
+        abstract V next() throws IOException;
+        
+        /**
+         * @return the number of elements in the list, or -1 if it isn't known.
+         */
+        long size(){
+            return -1;
+        }
+    }
+    
+    private final Source<V> source;
+    private long returned;
+    private boolean closed;
+    
+    /**
+     * Create an iterator over the elements of a source.
+     * @param source The source, which is closed along with the iterator.
+     */
+    CatalogIterator(Source<V> source){
+        this.source = source;
+        this.returned = 0;
+        this.closed = source == null;
+    }
+    
+    /**
+     * Create an iterator over the list that the reader is positioned in.
+     * @param reader The reader, positioned just after the start of the list.
+     * @param elementReader Reads one element of the list.
+     * @param resources Closed along with the reader, e.g. the response.
+     * @param size The number of elements the response says the list has, or -1 if it
+     * didn't say before the list started.
+     */
+    static <V> CatalogIterator<V> of(JsonReader reader, JsonCodecs.Reader<V> elementReader, Closeable resources, long size){
+        return new CatalogIterator<>(new Source<V>(){
+            @Override
+            boolean hasNext() throws IOException {
+                return reader.peek() != JsonToken.END_ARRAY;
+            }
+            
+            @Override
+            V next() throws IOException {
+                return elementReader.read(reader);
+            }
+            
+            @Override
+            long size(){
+                return size;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                try {
+                    reader.close();
+                } finally {
+                    resources.close();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Create an iterator over a list that is already in memory, e.g. from a cache file
+     * in the format of an older version of the library.
+     * @param list The list, which may be null.
+     */
+    static <V> CatalogIterator<V> of(List<V> list){
+        if (list == null){
+            return new CatalogIterator<>(null);
+        }
+        Iterator<V> elements = list.iterator();
+        return new CatalogIterator<>(new Source<V>(){
+            @Override
+            boolean hasNext(){
+                return elements.hasNext();
+            }
+            
+            @Override
+            V next(){
+                return elements.next();
+            }
+            
+            @Override
+            long size(){
+                return list.size();
+            }
+            
+            @Override
+            public void close(){
+            }
+        });
+    }
+    
+    /**
+     * Create an iterator with no elements, for a response that has no list.
+     * @param resources Closed right away.
+     */
+    static <V> CatalogIterator<V> empty(Closeable resources) throws IOException {
+        resources.close();
+        return new CatalogIterator<>(null);
+    }
+    
+    /**
+     * Get the number of elements in the list, if it is known up front. It is for a
+     * cache file, and for a response whose count field (e.g. numReels) comes before
+     * the list, in which case it is whatever the server says.
+     * @return the number of elements, or -1 if it isn't known.
+     */
+    public long getSize(){
+        return source == null ? 0 : source.size();
+    }
+    
+    @Override
+    public boolean hasNext(){
+        if (closed){
+            return false;
+        }
+        try {
+            if (source.hasNext()){
+                return true;
+            }
+            close();
+            return false;
+        } catch (IOException E){
+            closeQuietly();
+            throw new UncheckedIOException(E);
+        }
+    }
+    
+    @Override
+    public V next(){
+        if (!hasNext()){
+            throw new NoSuchElementException();
+        }
+        try {
+            V element = source.next();
+            returned++;
+            return element;
+        } catch (IOException E){
+            closeQuietly();
+            throw new UncheckedIOException(E);
+        }
+    }
+    
+    /**
+     * Get a spliterator over the remaining elements. It splits by reading a batch of
+     * elements into an array. If the size of the list is known, the spliterator is
+     * {@link Spliterator#SIZED}.
+     * @return the spliterator.
+     */
+    public Spliterator<V> spliterator(){
+        long size = getSize();
+        
+        if (size < 0){
+            return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED);
+        }
+        return Spliterators.spliterator(this, Math.max(0, size - returned), Spliterator.ORDERED);
+    }
+    
+    /**
+     * Get a sequential stream over the remaining elements. Closing the stream closes
+     * this iterator.
+     * @return the stream.
+     */
+    public Stream<V> stream(){
+        return StreamSupport.stream(spliterator(), false).onClose(this::closeQuietly);
+    }
+    
+    /**
+     * Close the connection to the server, or the file. The remaining elements are not read.
+     * @throws IOException if the connection could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed){
+            closed = true;
+            source.close();
+        }
+    }
+    
+    private void closeQuietly(){
+        try {
+            close();
+        } catch (IOException E){
+            // Nothing more can be read either way.
+        }
+    }
+}
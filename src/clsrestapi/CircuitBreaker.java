@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class implements a per-host circuit breaker for the {@link Base} fetch
+ * path. After a number of consecutive failures, the breaker opens, and requests
+ * to that host fail fast without touching the network. Once the open period
+ * is over, a single trial request is let through (half open); if it succeeds,
+ * the breaker closes again, otherwise it re-opens for another period.
+ * @author Ken Lowrie
+ */
+public class CircuitBreaker {
+    /**
+     * The states of the breaker.
+     */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    /**
+     * The default number of consecutive failures that opens the breaker.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /**
+     * The default time the breaker stays open, in milliseconds.
+     */
+    public static final long DEFAULT_OPEN_TIME = 30000;
+    
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    private static volatile int defaultFailureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private static volatile long defaultOpenTime = DEFAULT_OPEN_TIME;
+    
+    private final String host;
+    private final int failureThreshold;
+    private final long openTime;
+    
+    private State state;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+    
+    /**
+     * Construct a circuit breaker.
+     * @param host the host this breaker protects.
+     * @param failureThreshold the number of consecutive failures that opens the breaker.
+     * @param openTime the time the breaker stays open, in milliseconds.
+     */
+    public CircuitBreaker(String host, int failureThreshold, long openTime){
+        if (failureThreshold < 1) throw new IllegalArgumentException("failureThreshold must be at least 1");
+        if (openTime < 0) throw new IllegalArgumentException("openTime cannot be negative");
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+        this.state = State.CLOSED;
+        this.failures = 0;
+        this.openedAt = 0;
+        this.trialInFlight = false;
+    }
+    
+    /**
+     * Get the breaker for the specified host, creating it with the current
+     * defaults if needed.
+     * @param host the host, e.g. http://api.cloudylogic.com.
+     * @return the {@link CircuitBreaker} for the host.
+     */
+    public static CircuitBreaker forHost(String host){
+        return BREAKERS.computeIfAbsent(host, h -> new CircuitBreaker(h, defaultFailureThreshold, defaultOpenTime));
+    }
+    
+    /**
+     * Set the defaults used for breakers created after this call. Existing
+     * breakers keep their settings; call {@link #resetAll()} to drop them.
+     * @param failureThreshold the number of consecutive failures that opens the breaker.
+     * @param openTime the time the breaker stays open, in milliseconds.
+     */
+    public static void setDefaults(int failureThreshold, long openTime){
+        if (failureThreshold < 1) throw new IllegalArgumentException("failureThreshold must be at least 1");
+        if (openTime < 0) throw new IllegalArgumentException("openTime cannot be negative");
+        defaultFailureThreshold = failureThreshold;
+        defaultOpenTime = openTime;
+    }
+    
+    /**
+     * Drop all breakers, so that every host starts out closed again.
+     */
+    public static void resetAll(){
+        BREAKERS.clear();
+    }
+    
+    /**
+     * Get the host this breaker protects.
+     * @return the host.
+     */
+    public String getHost(){
+        return host;
+    }
+    
+    /**
+     * Get the current state of the breaker.
+     * @return the state.
+     */
+    public synchronized State getState(){
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openTime){
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+    
+    /**
+     * Indicates whether the breaker is currently open, i.e. requests fail fast.
+     * @return true if the breaker is open.
+     */
+    public boolean isOpen(){
+        return getState() == State.OPEN;
+    }
+    
+    /**
+     * Ask the breaker whether a request may be made now. When the open period
+     * is over, only one caller is allowed through to try the host again.
+     * @return true if the request may go ahead.
+     */
+    public synchronized boolean allowRequest(){
+        switch (getState()){
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) return false;
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Record a successful request, which closes the breaker.
+     */
+    public synchronized void recordSuccess(){
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+    
+    /**
+     * Record a failed request. The breaker opens when the failure threshold
+     * is reached, or when the trial request of a half open breaker fails.
+     */
+    public synchronized void recordFailure(){
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold){
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+        trialInFlight = false;
+    }
+    
+    /**
+     * Record a request that was cut short by the caller (e.g. its deadline ran
+     * out), which says nothing about the health of the host. This only frees
+     * up the trial slot of a half open breaker.
+     */
+    public synchronized void recordCancelled(){
+        trialInFlight = false;
+    }
+    
+    /**
+     * Generates a printable version of the breaker.
+     * @return String - This is a formatted version of the breaker state.
+     */
+    @Override
+    public synchronized String toString(){
+        return "CircuitBreaker[host=" + host + ", state=" + getState() + ", failures=" + failures + "]";
+    }
+}
@@ -18,12 +18,21 @@ package clsrestapi;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,24 +65,52 @@ class CacheHelpers{
 }
 
 class ApiWrapper<T extends Base> extends CacheHelpers{
+    /**
+     * The loads that are currently in flight, shared by all wrappers in the process.
+     */
+    private static final SingleFlight<String, Object> LOADS = new SingleFlight<>();
+    /**
+     * The result of a shared load that failed because the deadline of the caller
+     * that ran it passed. It says nothing about the host, so the callers that
+     * shared it and still have time left run the load again.
+     */
+    private static final Object CUT_SHORT = new Object();
+    
     protected boolean loaded;
     protected String apiName;
     protected String cacheName;
     private final Cache cache;
     private final Versions currentVersions;
-    public T api;
+    private final Deadline deadline;
+    private final Compactor compactor;
+    /*
+    The host this wrapper loads from. The loaded object can't tell: the parser and
+    the cache build it with its no-arg constructor, which sets the default host.
+    */
+    private final String webHost;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private boolean revalidate;
+    public volatile T api;
     
     public ApiWrapper(T apiInstance, Cache cache, String apiName, Versions currentVersions){
+        this(apiInstance, cache, apiName, currentVersions, Deadline.none(), null);
+    }
+    
+    public ApiWrapper(T apiInstance, Cache cache, String apiName, Versions currentVersions, Deadline deadline, Compactor compactor){
         this.loaded = false;
         this.cache = cache;
         this.apiName = apiName;
         this.cacheName = cache.absolutePath(apiName);
         this.currentVersions = currentVersions;
+        this.deadline = deadline;
+        this.compactor = compactor;
+        this.webHost = apiInstance.getWebHost();
 
         // For the initialization, we will set api to the new instance passed
         // to the constructor. This will give us access to the serialization
         // methods and the json loader for the class T inside init().
         this.api = apiInstance;
+        this.api.setDeadline(deadline);
 
         // initialize an instance of T to a temp object
         T craObj = init();
@@ -81,9 +118,59 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
         // Overwrite the temp instance passed in with the newly initialized one
         // I don't think the check is needed, since I already verified it in
         // the init() method. TODO: Should I just assign it?
-        this.api = craObj.getClass().isInstance(api) ? craObj : null;
+        craObj = craObj != null && craObj.getClass().isInstance(api) ? craObj : null;
+        
+        /*
+        An object from a shared load was compacted there, before anyone else could see
+        it, so compacting it again does nothing. One that only this wrapper has seen,
+        e.g. the copy read from the cache, is compacted now, before it is published.
+        */
+        compact(craObj);
+        this.api = craObj;
         
         loaded = this.api != null;
+        
+        /*
+        A stale object that init() decided to serve while it is revalidated is refreshed
+        now, so that the constructor can't overwrite the result of the refresh.
+        */
+        if (revalidate && loaded){
+            refreshInBackground(apiInstance, this.api);
+        }
+    }
+    
+    /**
+     * Whether this wrapper failed to load only because its deadline ran out. Such a
+     * wrapper is replaced on the next call, so that one short deadline does not leave
+     * the API unavailable for the life of the {@link ClsRestApi} instance.
+     * @return true if the load was cut short by the deadline.
+     */
+    boolean timedOut(){
+        return !loaded && deadline.isExpired();
+    }
+    
+    /**
+     * Compact an API object with the compactor of this wrapper, if any, to reduce its
+     * memory footprint. This is done after the object was serialized to the cache, so
+     * the cache keeps the full copy, and before the object is shared or served.
+     * @param obj The object, or null.
+     */
+    private void compact(Object obj){
+        if (obj != null && compactor != null){
+            long saved = compactor.compact((Base<?>) obj, apiName);
+            if (saved > 0){
+                logMsg("Compacted API [" + apiName + "], saved about " + saved + " bytes");
+            }
+        }
+    }
+    
+    /*
+    The compaction that the objects of this wrapper get, which is part of the keys
+    that objects are shared under: an object compacted for one wrapper can't be
+    handed to another that wants it compacted differently, or not at all.
+    */
+    private String compactionKey(){
+        return compactor == null ? "full" : compactor.isDropDebugData() ? "compact-nodebug" : "compact";
     }
     
     public void logMsg(String msg){
@@ -98,20 +185,60 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
      * @throws CRAException 
      */
     protected final T loadAndSerialize() {
+        return loadAndSerialize(null);
+    }
+    
+    /**
+     * Revalidate the cached copy of the specified CLS Rest Object with the server.
+     * If the server says it hasn't changed, the cached copy is returned as is;
+     * otherwise, the new object is loaded and serialized to the cache, just like
+     * {@link #loadAndSerialize()}.
+     * @param cached The copy of the object that was loaded from the cache, or null.
+     * @return Returns the cached object if it is still current, the newly loaded
+     * object if it changed, or null if the load failed.
+     */
+    protected final T loadAndSerialize(T cached) {
+        return loadAndSerialize(api, cached, deadline);
+    }
+    
+    /**
+     * This works like {@link #loadAndSerialize(clsrestapi.Base)}, with the instance
+     * that makes the network call, and the deadline, given explicitly.
+     * @param loader The API instance that makes the network call.
+     * @param cached The copy of the object that was loaded from the cache, or null.
+     * @param deadline The deadline for the load.
+     * @return Returns the cached object if it is still current, the newly loaded
+     * object if it changed, or null if the load failed.
+     */
+    private T loadAndSerialize(T loader, T cached, Deadline deadline) {
         T tempObject;
         
         try {
             /*
-            Make the network call to reload this API object from the server.
+            If another thread (possibly from another ClsRestApi instance) is already
+            loading this API into the same cache file, wait for it and share its result,
+            so that a cold start under load makes one network call instead of N, and
+            only one thread writes the serialized file.
+            */
+            Object tmpObj = sharedLoad(loader, cached, deadline);
+            /*
+            The load we shared was run with another caller's deadline, which passed.
+            Ours hasn't, so try again; this time we run the load, or share a new one.
             */
-            Object tmpObj = api.load();
+            while (tmpObj == CUT_SHORT && !deadline.isExpired()){
+                logMsg("API [" + apiName + "] shared load was cut short by another caller's deadline, loading again");
+                tmpObj = sharedLoad(loader, cached, deadline);
+            }
+            if (tmpObj == CUT_SHORT){
+                tmpObj = null;
+            }
             /*
             Okay, T refers to a class that is derived from Base, so if we try to
             cast tmpObj to T, we'll get a warning that it's unsafe. So what we need
             to do here is make sure that tmpObj is actually an instance of api, which
             is of type T, and if so, then we'll suppress the warning and do the cast.
             */
-            if( tmpObj.getClass().isInstance(api)){
+            if( tmpObj != null && tmpObj.getClass().isInstance(api)){
                 @SuppressWarnings("unchecked")
                 T tmp1 = (T) tmpObj;
                 tempObject = tmp1;
@@ -120,22 +247,12 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
             }
             /*
             it'll be null if an error occurred when we tried to make the server call.
+            Set the fromCache and fromRemote flags to indicate where this object came from
             */
-            if(tempObject != null){
-                /*
-                Set the fromCache and fromRemote flags to indicate where this object came from
-                */
+            if(tempObject != null && tempObject == cached){
+                setFromCache();
+            } else if(tempObject != null){
                 setFromRemote();
-                try{
-                    /*
-                    Serialize the newly updated object to the cache. Right now, I'm not really
-                    caring if this fails, but I would like to address that at some point. TODO:
-                    */
-                    tempObject.serialize(cacheName);
-                } catch (CRAException E){
-                    // TODO do we need some way to detect this failure...
-                    logMsg("API [" + apiName + "] failed serialization: " + E.getMessage());
-                }
             }
         } catch (Exception E) {
             logMsg("Exception: " + E.toString() + " msg: " + E.getMessage());
@@ -143,7 +260,290 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
         }
         return tempObject;
     }
+    
+    /**
+     * Run {@link #fetchAndSerialize(clsrestapi.Base, clsrestapi.Base)} as a load
+     * shared with the other callers for the same key, or wait for the one that is
+     * already in flight.
+     * @param loader The API instance that makes the network call.
+     * @param cached The copy of the object that was loaded from the cache, or null.
+     * @param deadline The deadline of this caller.
+     * @return The result of the load, null if it failed or the deadline passed while
+     * waiting for it, or {@link #CUT_SHORT} if it failed because the deadline of the
+     * caller that ran it passed.
+     */
+    private Object sharedLoad(T loader, T cached, Deadline deadline){
+        return LOADS.run(getFlightKey(), () -> {
+            Object tmpObj = fetchAndSerialize(loader, cached);
+            return tmpObj == null && deadline.isExpired() ? CUT_SHORT : tmpObj;
+        }, deadline);
+    }
+    
+    /**
+     * Get the key used to coalesce concurrent loads of this API. Loads are only
+     * shared if they go to the same host, for the same API, into the same cache file,
+     * with the same compaction.
+     * @return The single-flight key for this wrapper.
+     */
+    private String getFlightKey(){
+        return webHost + "|" + apiName + "|" + cacheName + "|" + compactionKey();
+    }
+    
+    /**
+     * Make the network call and serialize the result to the cache. This is the
+     * part of {@link #loadAndSerialize(clsrestapi.Base)} that only one thread
+     * at a time runs for a given API and cache file.
+     * @param loader The API instance that makes the network call.
+     * @param cached The copy of the object that was loaded from the cache, or null.
+     * @return The cached object if the server says it is still current, the newly
+     * loaded object, or null if the load failed.
+     */
+    private Object fetchAndSerialize(T loader, T cached){
+        /*
+        Make the network call to reload this API object from the server. If we
+        have a cached copy, make it a conditional request, so that the server
+        can tell us that nothing changed instead of sending it all again. The
+        raw type of api makes loadIfModified() an unchecked call, but cached is a T.
+        */
+        @SuppressWarnings("unchecked")
+        Object tmpObj = cached != null ? loader.loadIfModified(cached) : loader.load();
+        
+        if(tmpObj != null && tmpObj == cached){
+            /*
+            The server answered 304 (Not Modified), so the copy on disk is still good.
+            With a freshness policy, rewrite it anyway, so that it's fresh again from
+            the time it was revalidated, and not from the time it was first loaded.
+            */
+            logMsg("API [" + apiName + "] was not modified on the server, keeping the cached copy");
+            if (ClsRestApi.getFreshnessPolicy(apiName) != null){
+                touch((Base<?>) tmpObj);
+            }
+        } else if(tmpObj != null){
+            store((Base<?>) tmpObj);
+        }
+        /*
+        Everyone who shares this load gets this object, so compact it here, once,
+        before it is handed out.
+        */
+        compact(tmpObj);
+        return tmpObj;
+    }
+    
+    /**
+     * Rewrite the cache item of an object that the server says is still current, so
+     * that its age starts over. The item is read back instead of encoding the object
+     * again, since the object may have been compacted (e.g. without its debug data)
+     * since it was read, and the cache keeps the full copy.
+     * @param obj The object, with its new fetchedAt time.
+     */
+    private void touch(Base<?> obj){
+        try{
+            WriteBehind queue = ClsRestApi.getWriteBehind();
+            byte[] pending = queue != null ? queue.pending(cache, apiName) : null;
+            Base<?> full = api.fromCacheBuffer(pending != null ? ByteBuffer.wrap(pending) : cache.readItem(apiName));
+            full.fetchedAt = obj.fetchedAt;
+            write(full);
+        } catch (CRAException E){
+            logMsg("API [" + apiName + "] failed to rewrite the cached copy: " + E.getMessage());
+        }
+    }
+    
+    /**
+     * Serialize an object to the cache, and add it to the memory tier.
+     * @param obj The object.
+     */
+    private void store(Base<?> obj){
+        try{
+            /*
+            Serialize the newly updated object to the cache. A failure isn't fatal, the
+            object is still served, and the next load tries again. It is logged here;
+            a write that fails in the background is counted by WriteBehind#getFailed().
+            */
+            remember(obj, write(obj));
+        } catch (CRAException E){
+            logMsg("API [" + apiName + "] failed serialization: " + E.getMessage());
+        }
+    }
+    
+    /**
+     * Write an object to the cache. The object is encoded here, and if there is a
+     * write-behind queue, the item is written in the background. If the queue is
+     * full, we write it ourselves.
+     * @param obj The object.
+     * @return The size of its cache encoding.
+     * @throws CRAException if the object could not be encoded or written.
+     */
+    private long write(Base<?> obj) throws CRAException {
+        byte[] bytes = obj.toCacheBytes();
+        WriteBehind queue = ClsRestApi.getWriteBehind();
+        if (queue == null || !queue.submit(cache, apiName, bytes)){
+            cache.writeItem(apiName, bytes);
+        }
+        return bytes.length;
+    }
+
+    
+    /**
+     * Get the key of an API object in the memory tier. Objects are only shared between
+     * wrappers that compact them the same way.
+     * @param apiVersion The apiVersion of the object.
+     * @param apiDataVersion The apiDataVersion of the object.
+     * @return The key.
+     */
+    private String memoryKey(String apiVersion, String apiDataVersion){
+        return webHost + "|" + apiName + "|" + apiVersion + "|" + apiDataVersion + "|" + compactionKey();
+    }
+    
+    /**
+     * Look up the current version of this API in the memory tier. With a freshness
+     * policy, only a fresh object is taken; an older one is left for the cache path,
+     * which decides if it can be served while it is revalidated.
+     * @param policy The freshness policy of the API, or null.
+     * @return The shared object, or null if there is no memory tier, the current
+     * version isn't known, or the tier doesn't have it (fresh).
+     */
+    private T recall(FreshnessPolicy policy){
+        MemoryTier tier = ClsRestApi.getMemoryTier();
+        ApiVerValue current = currentVersions != null && currentVersions.apiObj != null
+                ? currentVersions.apiObj.getApiVersionValue(apiName) : null;
+        
+        if (tier == null || current == null){
+            return null;
+        }
+        Object tmpObj = tier.get(memoryKey(current.getApiVersion(), current.getApiDataVersion()));
+        if (tmpObj != null && tmpObj.getClass().isInstance(api)){
+            @SuppressWarnings("unchecked")
+            T tmp1 = (T) tmpObj;
+            if (policy != null && !policy.isFresh(age(tmp1))){
+                logMsg("API [" + apiName + "] in the memory tier is stale, age " + age(tmp1) + "ms");
+                return null;
+            }
+            return tmp1;
+        }
+        return null;
+    }
+    
+    /*
+    The time since an object was fetched from the server, in ms. An object that
+    doesn't know is as old as can be.
+    */
+    private static long age(Base<?> obj){
+        return obj.fetchedAt == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - obj.fetchedAt;
+    }
+    
+    /**
+     * Add a loaded API object to the memory tier, keyed by its own version. Other
+     * wrappers can get it from then on, so it is compacted first; only finished
+     * objects go into the tier.
+     * @param obj The object.
+     * @param weight The size of its cache encoding.
+     */
+    private void remember(Base<?> obj, long weight){
+        MemoryTier tier = ClsRestApi.getMemoryTier();
+        
+        if (tier != null && obj.apiVer != null){
+            compact(obj);
+            tier.put(memoryKey(obj.apiVer.apiVersion, obj.apiVer.apiDataVersion), obj, weight);
+        }
+    }
+    
+    /**
+     * Decide what to serve for a cached object, based on its age and the freshness
+     * policy of the API.
+     * @param policy The freshness policy.
+     * @param cached The copy that was loaded from the cache.
+     * @param weight The size of its cache encoding.
+     * @return The cached object if it's fresh, or stale but still usable, the
+     * revalidated object, or null if it's too stale to serve and can't be revalidated.
+     */
+    private T applyFreshness(FreshnessPolicy policy, T cached, long weight){
+        long age = age(cached);
+        
+        if (policy.isFresh(age)){
+            logMsg("API [" + apiName + "] is fresh, age " + age + "ms");
+            remember(cached, weight);
+            return cached;
+        }
+        if (policy.isUsableWhileRevalidating(age)){
+            logMsg("API [" + apiName + "] is stale, serving it while it is revalidated in the background");
+            revalidate = true;
+            return cached;
+        }
+        logMsg("API [" + apiName + "] is too stale to serve as is. Revalidating with server...");
+        T tempObject = loadAndSerialize(cached);
+        
+        if (tempObject == null && policy.isUsableOnError(age)){
+            logMsg("API [" + apiName + "] failed to revalidate, serving the stale cached copy");
+            tempObject = cached;
+            setFromCache();
+        } else if (tempObject == null){
+            logMsg("API [" + apiName + "] failed to revalidate, and the cached copy is too stale to serve");
+        }
+        return tempObject;
+    }
+    
+    /**
+     * Revalidate a stale object in the background, and serve the result from this
+     * wrapper once it's there. Only one refresh per wrapper runs at a time, and the
+     * refreshes of all wrappers for the same API share one network call. The refresh
+     * isn't bound by the deadline of the caller, who already has an answer.
+     * @param loader The API instance that makes the network call. The constructor is
+     * done with it, so its deadline is cleared.
+     * @param stale The stale copy that is being served meanwhile.
+     */
+    private void refreshInBackground(T loader, T stale){
+        if (!refreshing.compareAndSet(false, true)){
+            return;
+        }
+        /*
+        The loader was given the caller's deadline, which its network calls would
+        otherwise still be bound by.
+        */
+        loader.setDeadline(Deadline.none());
+        try {
+            IoExecutors.get().execute(() -> {
+                try {
+                    T fresh = loadAndSerialize(loader, stale, Deadline.none());
+                    if (fresh != null && fresh != stale){
+                        logMsg("API [" + apiName + "] was refreshed in the background");
+                        /*
+                        A shared load compacted it already; this only does something
+                        for an object that wasn't.
+                        */
+                        compact(fresh);
+                        api = fresh;
+                    }
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException E){
+            refreshing.set(false);
+        }
+    }
+    
+    /**
+     * Reload an API object whose cached copy is out of date. If the reload fails,
+     * the stale copy is served instead.
+     * @param staleObject The out of date copy that was loaded from the cache.
+     * @return The reloaded object, or the stale one if the reload failed.
+     */
+    private T reloadOrServeStale(T staleObject){
+        T tempObject = loadAndSerialize(staleObject);
 
+        if (tempObject == null){
+            /*
+            The server is having trouble (or its circuit breaker is open, in which
+            case we didn't even try). The cached copy is the last good one we have,
+            so serve it rather than failing, and try again next time around.
+            */
+            logMsg("API [" + apiName + "] failed to reload, serving the stale cached copy"
+                    + (CircuitBreaker.forHost(webHost).isOpen() ? " (circuit breaker is open)" : ""));
+            tempObject = staleObject;
+            setFromCache();
+        }
+        return tempObject;
+    }
     
     /**
      * Construct a CLS REST API object from cache, if available, otherwise by making
@@ -155,15 +555,35 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
      */
     protected final T init() {
         T tempObject;
+        long weight = 0;
+        FreshnessPolicy policy = ClsRestApi.getFreshnessPolicy(apiName);
+        /*
+        If the memory tier has the current version of this API, another instance has
+        already loaded it, and there's nothing to check or read.
+        */
+        tempObject = recall(policy);
+        if (tempObject != null){
+            logMsg("API [" + apiName + "] is in the memory tier");
+            setFromCache();
+            return tempObject;
+        }
+        /*
+        If the cache file is waiting in the write-behind queue, the copy in the queue
+        is newer than the one on disk (if there even is one), so use it.
+        */
+        WriteBehind queue = ClsRestApi.getWriteBehind();
+        byte[] pending = queue != null ? queue.pending(cache, apiName) : null;
         
-        if( cache.itemExists(apiName)){
+        if( pending != null || cache.itemExists(apiName)){
             /*
             The API object is currently in cache, go load it from there.
             */
-            logMsg("API [" + apiName + "] is in the cache: " + cacheName);
+            logMsg("API [" + apiName + "] is in the cache: " + cacheName + (pending != null ? " (write pending)" : ""));
             
             try{
-                Object tmpObj = api.deSerialize(cacheName);
+                ByteBuffer buf = pending != null ? ByteBuffer.wrap(pending) : cache.readItem(apiName);
+                weight = buf.remaining();
+                Object tmpObj = api.fromCacheBuffer(buf);
                 /*
                 Okay, T refers to a class that is derived from Base, so if we try to
                 cast tmpObj to T, we'll get a warning that it's unsafe. So what we need
@@ -188,40 +608,68 @@ class ApiWrapper<T extends Base> extends CacheHelpers{
             
             if( tempObject == null){
                 /*
-                If we can't load from cache, then load it from the server. This is most often
-                caused by changes in the underlying classes (methods and/or instance data changing),
-                so that deSerialize is unable to load a saved object from disk. In that case, we
-                just want to make a fresh new object and then update the cache for next time.
+                If we can't load from cache, then load it from the server. This used to be caused
+                most often by changes in the underlying classes (methods and/or instance data changing),
+                so that deSerialize was unable to load a saved object from disk. The cache format
+                (see CacheCodec) tolerates those now, so this is mostly a damaged file, or one that
+                was written by a newer version of the library. In that case, we just want to make
+                a fresh new object and then update the cache for next time.
                 */
                 logMsg("API [" + apiName + "] failed to load from cache. Loading from remote.");
                 tempObject = loadAndSerialize();
-            } else if ( currentVersions.apiObj != null){
+            } else if ( policy != null){
                 /*
-                The previous check (currentVersions.apiObj) will be null if the server was down when
+                This API has a freshness policy, so the age of the cached copy decides if
+                the server is asked at all, instead of the versions loaded at startup.
+                */
+                tempObject = applyFreshness(policy, tempObject, weight);
+            } else if ( deadline.isExpired()){
+                /*
+                We're out of time, so there's no point in checking the version with the
+                server. The cached copy is better than failing.
+                */
+                logMsg("Deadline expired, serving the cached copy of API [" + apiName + "] without checking its version");
+            } else if ( currentVersions != null && currentVersions.apiObj != null){
+                /*
+                The previous check (currentVersions) will be null if the server was down when
                 the standalone Versions() class was instantiated at the start. This isn't really
                 fatal, expecially if all the API objects are currently cached, but we don't want
                 to try and access the apiObj if there's nothing there!
                 */
                 logMsg("Check if current version of [" + apiName + "] is out of date and reload...");
                 /*
-                Okay, let's grab the current ApiVer from the object that was loaded from cache, and
-                see if it's the same as the "latest" version that the server has.
-                */
-                ApiVer latestApiVer = currentVersions.apiObj.getApiVersion(apiName);
-                /*
-                It shouldn't be possible for latestApiVer to be null, but check anyway!
+                Okay, let's see if the ApiVer of the object that was loaded from cache is the
+                same as the "latest" version that the server has. It shouldn't be possible for
+                the latest version to be missing, but if it is, we reload.
                 */
-                if (latestApiVer != null && latestApiVer.equals(tempObject.apiVer)){
+                if (currentVersions.apiObj.isCurrent(apiName, tempObject.apiVer)){
                     logMsg("Cached version and latest version are the same");
+                    remember(tempObject, weight);
                 } else {
                     /*
                     The ApiVer objects differ, so let's reload this API from the server and update the cache
                     */
-                    logMsg("Cached version and latest version are different. Reloading from server...");
-                    tempObject = loadAndSerialize();
+                    logMsg("Cached version and latest version are different. Revalidating with server...");
+                    tempObject = reloadOrServeStale(tempObject);
                 }
             } else {
-                logMsg("currentVersions not available, cannot check if refresh needed for API [" + apiName + "]");
+                /*
+                The versions weren't available at startup, so ask the server for the apiVer of
+                just this API. The header-only load stops reading the response as soon as it has
+                the apiVer, so this is much cheaper than reloading the API to find out.
+                */
+                logMsg("currentVersions not available, probing the version of API [" + apiName + "]...");
+                Base<?> probe = api.loadHeaders();
+                
+                if (probe == null || probe.apiVer == null){
+                    logMsg("Unable to probe the version, cannot check if refresh needed for API [" + apiName + "]");
+                } else if (probe.apiVer.equals(tempObject.apiVer)){
+                    logMsg("Cached version and latest version are the same");
+                    remember(tempObject, weight);
+                } else {
+                    logMsg("Cached version and latest version are different. Revalidating with server...");
+                    tempObject = reloadOrServeStale(tempObject);
+                }
             }
 
         } else {                
@@ -248,7 +696,11 @@ class ApiWithResourcesWrapper<T extends Base> extends ApiWrapper<T>{
     */
         
     public ApiWithResourcesWrapper(T apiInstance, Cache objCache, String apiName, Versions currentVersions, String cacheRoot, String clientID, String networkIP){
-        super(apiInstance, objCache, apiName, currentVersions);
+        this(apiInstance, objCache, apiName, currentVersions, cacheRoot, clientID, networkIP, Deadline.none(), null);
+    }
+    
+    public ApiWithResourcesWrapper(T apiInstance, Cache objCache, String apiName, Versions currentVersions, String cacheRoot, String clientID, String networkIP, Deadline deadline, Compactor compactor){
+        super(apiInstance, objCache, apiName, currentVersions, deadline, compactor);
         
         String [] cacheDirs = new String [] {"images",clientID,apiName};
         
@@ -267,6 +719,10 @@ class ApiWithResourcesWrapper<T extends Base> extends ApiWrapper<T>{
     }
     
     public String getResource(String resName){
+        return getResource(resName, Deadline.none());
+    }
+    
+    public String getResource(String resName, Deadline deadline){
         
         Path localName = Paths.get(resCache.getDir(),resName);
         
@@ -275,25 +731,36 @@ class ApiWithResourcesWrapper<T extends Base> extends ApiWrapper<T>{
             return localName.normalize().toString();
         }
 
-        URL networkResource;
+        TransportResponse rsp;
+        InputStream in;
+        
         try {
-            networkResource = new URL(api.makeUrl(networkPath, resName));
-        } catch (MalformedURLException ex) {
+            /*
+            Use the same transport as the API object, so that resource downloads
+            share the pooled connections to the server, and are hedged the same way.
+            */
+            rsp = api.openResponse(api.makeUrl(networkPath, resName), apiName + ":resources", deadline);
+        } catch (IOException ex) {
+            rsp = null;
             //Logger.getLogger(ApiWithResourcesWrapper.class.getName()).log(Level.SEVERE, null, ex);
-            networkResource = null;
         }
         
-        if (null == networkResource) return null;
-        InputStream in;
+        if (null == rsp) return null;
         
         try {
-            in = networkResource.openStream();
+            in = rsp.getBody();
         } catch (IOException ex) {
             in = null;
             //Logger.getLogger(ApiWithResourcesWrapper.class.getName()).log(Level.SEVERE, null, ex);
         }        
         
-        if (null == in) return null;
+        if (null == in){
+            try {
+                rsp.close();
+            } catch (IOException ex) {
+            }
+            return null;
+        }
         
         boolean retVal = false;
 
@@ -302,7 +769,7 @@ class ApiWithResourcesWrapper<T extends Base> extends ApiWrapper<T>{
             retVal = true;  // we copied, return the local version.
         } catch (IOException ex) {
             try {
-                in.close();
+                rsp.close();
                 if (Files.deleteIfExists(localName)){
                     // log a message that we removed it
                 } else {
@@ -314,9 +781,9 @@ class ApiWithResourcesWrapper<T extends Base> extends ApiWrapper<T>{
         }
         
         try {
-            in.close();
+            rsp.close();
         } catch (IOException ex) {
-            // Do I care if I couldn't close the input stream? Probably not...
+            // Do I care if I couldn't close the response? Probably not...
             //Logger.getLogger(ApiWithResourcesWrapper.class.getName()).log(Level.SEVERE, null, ex);
         }
         
@@ -347,15 +814,72 @@ public class ClsRestApi {
     private final String host;
     private final String clientID;
     
-    private ApiWrapper<AboutUs> craAboutUs = null;
-    private ApiWrapper<Versions> craVersions = null;
-    private ApiWrapper<ImagePaths> craImagePaths = null;
-    private ApiWithResourcesWrapper<ContactInfo> craContactInfo = null;
-    private ApiWithResourcesWrapper<Reels> craReels = null;
-    private ApiWithResourcesWrapper<OurWork> craOurWork = null;
+    private volatile ApiWrapper<AboutUs> craAboutUs = null;
+    private volatile ApiWrapper<Versions> craVersions = null;
+    private volatile ApiWrapper<ImagePaths> craImagePaths = null;
+    private volatile ApiWithResourcesWrapper<ContactInfo> craContactInfo = null;
+    private volatile ApiWithResourcesWrapper<Reels> craReels = null;
+    private volatile ApiWithResourcesWrapper<OurWork> craOurWork = null;
+    
+    /*
+    The wrappers are created lazily, and creating one loads the API. These locks make
+    sure that concurrent callers on a cold instance create each wrapper only once, and
+    let a caller with a deadline stop waiting for a load that another thread started.
+    */
+    private final ReentrantLock craAboutUsLock = new ReentrantLock();
+    private final ReentrantLock craVersionsLock = new ReentrantLock();
+    private final ReentrantLock craImagePathsLock = new ReentrantLock();
+    private final ReentrantLock craContactInfoLock = new ReentrantLock();
+    private final ReentrantLock craReelsLock = new ReentrantLock();
+    private final ReentrantLock craOurWorkLock = new ReentrantLock();
+    
+    private volatile Compactor compactor = null;
+    
+    /**
+     * The write-behind queue for the cache files of all instances, or null to write them synchronously.
+     */
+    private static volatile WriteBehind writeBehind = null;
+    
+    /**
+     * Whether new instances keep their "objects" cache in a {@link MappedCache}.
+     */
+    private static volatile boolean mappedCache = false;
+    
+    /**
+     * The in-memory tier shared by all instances, or null to always read the disk cache.
+     */
+    private static volatile MemoryTier memoryTier = null;
+    
+    /**
+     * The freshness policies by API name, and the one for the APIs that have none.
+     */
+    private static final ConcurrentHashMap<String, FreshnessPolicy> FRESHNESS_POLICIES = new ConcurrentHashMap<>();
+    private static volatile FreshnessPolicy defaultFreshnessPolicy = null;
+    
+    /**
+     * The {@link Versions} objects shared by the instances for each web service, when
+     * there is a freshness policy for {@link Constants#API_VERSIONS}.
+     */
+    private static final ConcurrentHashMap<String, Versions> SHARED_VERSIONS = new ConcurrentHashMap<>();
+    private static final Set<String> REFRESHING_VERSIONS = ConcurrentHashMap.newKeySet();
     
     public ClsRestApi(String localCache, String clientID, String wsUrl) throws IOException, CRAException {
-        objCache = new Cache(localCache, "objects");
+        this(localCache, clientID, wsUrl, Deadline.none());
+    }
+    
+    /**
+     * Create the API object, bounding the initial {@link Versions} and client image path
+     * loads by a deadline. If the deadline runs out, those loads fail the same way they
+     * would if the server were unreachable.
+     * @param localCache The root directory of the local cache.
+     * @param clientID The client ID used to look up the network image path.
+     * @param wsUrl The URL of the web service.
+     * @param deadline The deadline for the startup calls.
+     * @throws IOException
+     * @throws CRAException 
+     */
+    public ClsRestApi(String localCache, String clientID, String wsUrl, Deadline deadline) throws IOException, CRAException {
+        objCache = openObjectCache(localCache);
         cacheRoot = localCache;
         //imgCache = new Cache(localCache, "images");
         this.host = wsUrl;
@@ -366,8 +890,10 @@ public class ClsRestApi {
         whether any of the additional API objects that are in the cache have gone stale.
         */
         //TODO: OMG - This is horrible. Clean this up!
-        this.currentVersions = new Versions(wsUrl).load();
-        ImagePaths currentClientIP = new ImagePaths(wsUrl, Constants.API_IMAGE_PATHS + "/"+clientID+"/").load();
+        this.currentVersions = loadVersions(wsUrl, deadline);
+        ImagePaths clientIP = new ImagePaths(wsUrl, Constants.API_IMAGE_PATHS + "/"+clientID+"/");
+        clientIP.setDeadline(deadline);
+        ImagePaths currentClientIP = clientIP.load();
         if( currentClientIP != null){
             this.networkIP = currentClientIP.apiObj.imagePaths.get(0).imagePath;
         } else {
@@ -379,58 +905,573 @@ public class ClsRestApi {
         this(localCache, clientID, Constants.WSURL);
     }
     
+    /**
+     * Set the {@link Compactor} used to shrink the API objects that this instance
+     * loads from now on. The objects are compacted after they were cached, so the
+     * cached copies are complete. Objects are only shared (see {@link #setMemoryTier(clsrestapi.MemoryTier)})
+     * between instances that compact them the same way. Compaction is off by default.
+     * @param compactor The compactor, or null to turn compaction off.
+     */
+    public void setCompactor(Compactor compactor){
+        this.compactor = compactor;
+    }
+    
+    /**
+     * Get the {@link Compactor} used to shrink the API objects that this instance loads.
+     * @return The compactor, or null if compaction is off.
+     */
+    public Compactor getCompactor(){
+        return compactor;
+    }
+    
+    /**
+     * Set the {@link WriteBehind} queue that writes the cache files of all instances
+     * in the background from now on. By default, the files are written on the thread
+     * that loaded the object. The queue that was set before is not closed.
+     * @param queue The queue, or null to write synchronously.
+     */
+    public static void setWriteBehind(WriteBehind queue){
+        writeBehind = queue;
+    }
+    
+    /**
+     * Get the {@link WriteBehind} queue that writes the cache files in the background.
+     * @return The queue, or null if the files are written synchronously.
+     */
+    public static WriteBehind getWriteBehind(){
+        return writeBehind;
+    }
+    
+    /**
+     * Set whether the instances created from now on keep their "objects" cache in a
+     * {@link MappedCache}, i.e. in one memory mapped data file, instead of a file per
+     * API. The cache files that are already there are imported the first time. It is
+     * off by default.
+     * @param mapped true to use a {@link MappedCache}.
+     */
+    public static void setMappedCache(boolean mapped){
+        mappedCache = mapped;
+    }
+    
+    /**
+     * Indicates whether new instances keep their "objects" cache in a {@link MappedCache}.
+     * @return true if a {@link MappedCache} is used.
+     */
+    public static boolean isMappedCache(){
+        return mappedCache;
+    }
+    
+    /**
+     * Set the {@link MemoryTier} that all instances share from now on. The API objects
+     * that are loaded are kept in it, and an instance that needs the current version of
+     * an API the tier holds gets the same object, instead of reading the cache file
+     * again. The objects are then shared between instances, so they must not be
+     * modified. It is off by default.
+     * @param tier The tier, or null to turn it off.
+     */
+    public static void setMemoryTier(MemoryTier tier){
+        memoryTier = tier;
+    }
+    
+    /**
+     * Get the {@link MemoryTier} that all instances share.
+     * @return The tier, or null if it is off.
+     */
+    public static MemoryTier getMemoryTier(){
+        return memoryTier;
+    }
+    
+    /**
+     * Set the {@link FreshnessPolicy} of an API, for all instances from now on. It
+     * takes precedence over the default policy.
+     * @param apiName The name of the API, e.g. {@link Constants#API_REELS}.
+     * @param policy The policy, or null to use the default policy.
+     */
+    public static void setFreshnessPolicy(String apiName, FreshnessPolicy policy){
+        if (policy == null){
+            FRESHNESS_POLICIES.remove(apiName);
+        } else {
+            FRESHNESS_POLICIES.put(apiName, policy);
+        }
+    }
+    
+    /**
+     * Set the {@link FreshnessPolicy} of the APIs that have not been assigned their own
+     * via {@link #setFreshnessPolicy(java.lang.String, clsrestapi.FreshnessPolicy)}.
+     * There is none by default, so the cached objects are checked against the versions
+     * on the server.
+     * @param policy The policy, or null for none.
+     */
+    public static void setDefaultFreshnessPolicy(FreshnessPolicy policy){
+        defaultFreshnessPolicy = policy;
+    }
+    
+    /**
+     * Get the {@link FreshnessPolicy} of an API.
+     * @param apiName The name of the API.
+     * @return The policy of the API, the default policy, or null if there is none.
+     */
+    public static FreshnessPolicy getFreshnessPolicy(String apiName){
+        FreshnessPolicy policy = FRESHNESS_POLICIES.get(apiName);
+        return policy != null ? policy : defaultFreshnessPolicy;
+    }
+    
+    /*
+    Load the versions of the APIs. With a freshness policy for the versions API, the
+    Versions object is shared by the instances for the same web service, and it is
+    only loaded again on the caller's thread when it's too stale to serve. Otherwise,
+    every instance loads it.
+    */
+    private static Versions loadVersions(String wsUrl, Deadline deadline){
+        FreshnessPolicy policy = getFreshnessPolicy(Constants.API_VERSIONS);
+        Versions shared = policy != null ? SHARED_VERSIONS.get(wsUrl) : null;
+        long age = shared != null ? System.currentTimeMillis() - shared.fetchedAt : Long.MAX_VALUE;
+        
+        if (shared != null && policy.isFresh(age)){
+            return shared;
+        }
+        if (shared != null && policy.isUsableWhileRevalidating(age)){
+            if (REFRESHING_VERSIONS.add(wsUrl)){
+                try {
+                    IoExecutors.get().execute(() -> {
+                        try {
+                            Versions fresh = new Versions(wsUrl).load();
+                            if (fresh != null){
+                                SHARED_VERSIONS.put(wsUrl, fresh);
+                            }
+                        } finally {
+                            REFRESHING_VERSIONS.remove(wsUrl);
+                        }
+                    });
+                } catch (RejectedExecutionException E){
+                    REFRESHING_VERSIONS.remove(wsUrl);
+                }
+            }
+            return shared;
+        }
+        
+        Versions versions = new Versions(wsUrl);
+        versions.setDeadline(deadline);
+        Versions loaded = versions.load();
+        
+        if (loaded != null && policy != null){
+            SHARED_VERSIONS.put(wsUrl, loaded);
+        } else if (loaded == null && shared != null && policy.isUsableOnError(age)){
+            loaded = shared;
+        }
+        return loaded;
+    }
+    
+    /*
+    Open the "objects" cache. If the mapped cache can't be opened, e.g. because another
+    process has it open, fall back to a file per API, which any number of processes can share.
+    */
+    private static Cache openObjectCache(String localCache) throws IOException {
+        if (mappedCache){
+            try {
+                return MappedCache.open(localCache, "objects");
+            } catch (IOException E){
+                Logger.getLogger(ClsRestApi.class.getName()).log(Level.WARNING, "Unable to open the mapped cache, using a file per API: " + E.getMessage(), E);
+            }
+        }
+        return new Cache(localCache, "objects");
+    }
+    
+    /*
+    Take one of the wrapper locks, waiting no longer than the deadline allows. A caller
+    whose deadline runs out while another thread is still loading the same API gets false,
+    and gives up instead of queueing behind the slower call.
+    */
+    private static boolean lock(ReentrantLock lock, Deadline deadline){
+        if (deadline.isInfinite()){
+            lock.lock();
+            return true;
+        }
+        try {
+            return lock.tryLock(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException E){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /*
+    The object a caller gets when it gave up waiting for the lock: whatever the wrapper
+    held before the reload started, which is better than nothing.
+    */
+    private static <T extends Base<?>> T current(ApiWrapper<T> wrapper){
+        return wrapper != null && wrapper.loaded ? wrapper.api : null;
+    }
+    
     public AboutUs getAboutUs(){
-        if (craAboutUs == null) craAboutUs = new ApiWrapper<>(new AboutUs(host), objCache, Constants.API_ABOUT_US, this.currentVersions);
+        return getAboutUs(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link AboutUs} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link AboutUs} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public AboutUs getAboutUs(Deadline deadline){
+        if (craAboutUs == null || craAboutUs.timedOut()){
+            if (!lock(craAboutUsLock, deadline)) return current(craAboutUs);
+            try {
+                if (craAboutUs == null || craAboutUs.timedOut()){
+                    ApiWrapper<AboutUs> wrapper = new ApiWrapper<>(new AboutUs(host), objCache, Constants.API_ABOUT_US, this.currentVersions, deadline, compactor);
+                    craAboutUs = wrapper;
+                }
+            } finally {
+                craAboutUsLock.unlock();
+            }
+        }
         
         return craAboutUs.loaded ? craAboutUs.api : null;
     }
     
     public Versions getVersions(){
-        if (craVersions == null) craVersions = new ApiWrapper<>(new Versions(host), objCache, Constants.API_VERSIONS, this.currentVersions);
+        return getVersions(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link Versions} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link Versions} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public Versions getVersions(Deadline deadline){
+        if (craVersions == null || craVersions.timedOut()){
+            if (!lock(craVersionsLock, deadline)) return current(craVersions);
+            try {
+                if (craVersions == null || craVersions.timedOut()){
+                    ApiWrapper<Versions> wrapper = new ApiWrapper<>(new Versions(host), objCache, Constants.API_VERSIONS, this.currentVersions, deadline, compactor);
+                    craVersions = wrapper;
+                }
+            } finally {
+                craVersionsLock.unlock();
+            }
+        }
         
         return craVersions.loaded ? craVersions.api : null;
     }
     
     public ImagePaths getImagePaths(){
-        if (craImagePaths == null) craImagePaths = new ApiWrapper<>(new ImagePaths(host), objCache, Constants.API_IMAGE_PATHS, this.currentVersions);
+        return getImagePaths(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link ImagePaths} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link ImagePaths} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public ImagePaths getImagePaths(Deadline deadline){
+        if (craImagePaths == null || craImagePaths.timedOut()){
+            if (!lock(craImagePathsLock, deadline)) return current(craImagePaths);
+            try {
+                if (craImagePaths == null || craImagePaths.timedOut()){
+                    ApiWrapper<ImagePaths> wrapper = new ApiWrapper<>(new ImagePaths(host), objCache, Constants.API_IMAGE_PATHS, this.currentVersions, deadline, compactor);
+                    craImagePaths = wrapper;
+                }
+            } finally {
+                craImagePathsLock.unlock();
+            }
+        }
         
         return craImagePaths.loaded ? craImagePaths.api : null;
     }
     
     public ContactInfo getContactInfo(){
-        if (craContactInfo == null) craContactInfo = new ApiWithResourcesWrapper<>(new ContactInfo(host), objCache, Constants.API_CONTACT_INFO, this.currentVersions, cacheRoot, clientID, networkIP);
+        return getContactInfo(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link ContactInfo} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link ContactInfo} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public ContactInfo getContactInfo(Deadline deadline){
+        if (craContactInfo == null || craContactInfo.timedOut()){
+            if (!lock(craContactInfoLock, deadline)) return current(craContactInfo);
+            try {
+                if (craContactInfo == null || craContactInfo.timedOut()){
+                    ApiWithResourcesWrapper<ContactInfo> wrapper = new ApiWithResourcesWrapper<>(new ContactInfo(host), objCache, Constants.API_CONTACT_INFO, this.currentVersions, cacheRoot, clientID, networkIP, deadline, compactor);
+                    craContactInfo = wrapper;
+                }
+            } finally {
+                craContactInfoLock.unlock();
+            }
+        }
         
         return craContactInfo.loaded ? craContactInfo.api : null;
     }
     
     public String getContactInfoResource(String resName){
-        ContactInfo ci = getContactInfo();  // force the initialization. TODO: Is this neded?
+        return getContactInfoResource(resName, Deadline.none());
+    }
+    
+    /**
+     * Get a resource referenced by the {@link ContactInfo} object, giving up once the deadline
+     * has passed.
+     * @param resName The name of the resource.
+     * @param deadline The deadline for the call.
+     * @return The local path of the resource, or null if it could not be fetched in time.
+     */
+    public String getContactInfoResource(String resName, Deadline deadline){
+        getContactInfo(deadline);   // force the initialization.
         
-        return craContactInfo.getResource(resName);
+        return craContactInfo == null ? null : craContactInfo.getResource(resName, deadline);
     }
     
     public Reels getReels(){
-        if (craReels == null) craReels = new ApiWithResourcesWrapper<>(new Reels(host), objCache, Constants.API_REELS, this.currentVersions, cacheRoot, clientID, networkIP);
+        return getReels(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link Reels} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link Reels} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public Reels getReels(Deadline deadline){
+        if (craReels == null || craReels.timedOut()){
+            if (!lock(craReelsLock, deadline)) return current(craReels);
+            try {
+                if (craReels == null || craReels.timedOut()){
+                    ApiWithResourcesWrapper<Reels> wrapper = new ApiWithResourcesWrapper<>(new Reels(host), objCache, Constants.API_REELS, this.currentVersions, cacheRoot, clientID, networkIP, deadline, compactor);
+                    craReels = wrapper;
+                }
+            } finally {
+                craReelsLock.unlock();
+            }
+        }
         
         return craReels.loaded ? craReels.api : null;
     }
     
     public String getReelsResource(String resName){
-        Reels r = getReels();   // force the initialization. TODO: Is this needed?
+        return getReelsResource(resName, Deadline.none());
+    }
+    
+    /**
+     * Get a resource referenced by the {@link Reels} object, giving up once the deadline
+     * has passed.
+     * @param resName The name of the resource.
+     * @param deadline The deadline for the call.
+     * @return The local path of the resource, or null if it could not be fetched in time.
+     */
+    public String getReelsResource(String resName, Deadline deadline){
+        getReels(deadline);   // force the initialization.
         
-        return craReels.getResource(resName);
+        return craReels == null ? null : craReels.getResource(resName, deadline);
     }
     
     public OurWork getOurWork(){
-        if (craOurWork == null) craOurWork = new ApiWithResourcesWrapper<>(new OurWork(host), objCache, Constants.API_OUR_WORK, this.currentVersions, cacheRoot, clientID, networkIP);
+        return getOurWork(Deadline.none());
+    }
+    
+    /**
+     * Get the {@link OurWork} object, giving up once the deadline has passed.
+     * @param deadline The deadline for the call.
+     * @return The {@link OurWork} object, or null if it could not be loaded in time. If another
+     * thread is still reloading it when the deadline runs out, the previous object is returned.
+     */
+    public OurWork getOurWork(Deadline deadline){
+        if (craOurWork == null || craOurWork.timedOut()){
+            if (!lock(craOurWorkLock, deadline)) return current(craOurWork);
+            try {
+                if (craOurWork == null || craOurWork.timedOut()){
+                    ApiWithResourcesWrapper<OurWork> wrapper = new ApiWithResourcesWrapper<>(new OurWork(host), objCache, Constants.API_OUR_WORK, this.currentVersions, cacheRoot, clientID, networkIP, deadline, compactor);
+                    craOurWork = wrapper;
+                }
+            } finally {
+                craOurWorkLock.unlock();
+            }
+        }
         
         return craOurWork.loaded ? craOurWork.api : null;
     }
     
     public String getOurWorkResource(String resName){
-        Reels r = getReels();   // force the initialization. TODO: Is this needed?
+        return getOurWorkResource(resName, Deadline.none());
+    }
+    
+    /**
+     * Get a resource referenced by the {@link OurWork} object, giving up once the deadline
+     * has passed.
+     * @param resName The name of the resource.
+     * @param deadline The deadline for the call.
+     * @return The local path of the resource, or null if it could not be fetched in time.
+     */
+    public String getOurWorkResource(String resName, Deadline deadline){
+        getOurWork(deadline);   // force the initialization.
         
-        return craOurWork.getResource(resName);
+        return craOurWork == null ? null : craOurWork.getResource(resName, deadline);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getAboutUs()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link AboutUs} object.
+     */
+    public CompletableFuture<AboutUs> getAboutUsAsync(Executor executor){
+        return async(this::getAboutUs, Constants.API_ABOUT_US, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getAboutUs()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link AboutUs} object.
+     */
+    public CompletableFuture<AboutUs> getAboutUsAsync(){
+        return getAboutUsAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getVersions()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link Versions} object.
+     */
+    public CompletableFuture<Versions> getVersionsAsync(Executor executor){
+        return async(this::getVersions, Constants.API_VERSIONS, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getVersions()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link Versions} object.
+     */
+    public CompletableFuture<Versions> getVersionsAsync(){
+        return getVersionsAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getImagePaths()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link ImagePaths} object.
+     */
+    public CompletableFuture<ImagePaths> getImagePathsAsync(Executor executor){
+        return async(this::getImagePaths, Constants.API_IMAGE_PATHS, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getImagePaths()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link ImagePaths} object.
+     */
+    public CompletableFuture<ImagePaths> getImagePathsAsync(){
+        return getImagePathsAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getContactInfo()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link ContactInfo} object.
+     */
+    public CompletableFuture<ContactInfo> getContactInfoAsync(Executor executor){
+        return async(this::getContactInfo, Constants.API_CONTACT_INFO, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getContactInfo()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link ContactInfo} object.
+     */
+    public CompletableFuture<ContactInfo> getContactInfoAsync(){
+        return getContactInfoAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getContactInfoResource(java.lang.String)}. The API
+     * object is initialized and the resource downloaded on the shared
+     * {@link IoExecutors} executor.
+     * @param resName The name of the resource.
+     * @return A future that completes with the local path of the resource, or null
+     * if it could not be downloaded.
+     */
+    public CompletableFuture<String> getContactInfoResourceAsync(String resName){
+        return CompletableFuture.supplyAsync(() -> getContactInfoResource(resName), IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getReels()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link Reels} object.
+     */
+    public CompletableFuture<Reels> getReelsAsync(Executor executor){
+        return async(this::getReels, Constants.API_REELS, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getReels()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link Reels} object.
+     */
+    public CompletableFuture<Reels> getReelsAsync(){
+        return getReelsAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getReelsResource(java.lang.String)}. The API
+     * object is initialized and the resource downloaded on the shared
+     * {@link IoExecutors} executor.
+     * @param resName The name of the resource.
+     * @return A future that completes with the local path of the resource, or null
+     * if it could not be downloaded.
+     */
+    public CompletableFuture<String> getReelsResourceAsync(String resName){
+        return CompletableFuture.supplyAsync(() -> getReelsResource(resName), IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getOurWork()}.
+     * @param executor The executor to run the call on.
+     * @return A future that completes with the {@link OurWork} object.
+     */
+    public CompletableFuture<OurWork> getOurWorkAsync(Executor executor){
+        return async(this::getOurWork, Constants.API_OUR_WORK, executor);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getOurWork()}, which runs on the shared
+     * {@link IoExecutors} executor.
+     * @return A future that completes with the {@link OurWork} object.
+     */
+    public CompletableFuture<OurWork> getOurWorkAsync(){
+        return getOurWorkAsync(IoExecutors.get());
+    }
+    
+    /**
+     * Asynchronous version of {@link #getOurWorkResource(java.lang.String)}. The API
+     * object is initialized and the resource downloaded on the shared
+     * {@link IoExecutors} executor.
+     * @param resName The name of the resource.
+     * @return A future that completes with the local path of the resource, or null
+     * if it could not be downloaded.
+     */
+    public CompletableFuture<String> getOurWorkResourceAsync(String resName){
+        return CompletableFuture.supplyAsync(() -> getOurWorkResource(resName), IoExecutors.get());
+    }
+    
+    /**
+     * Run one of the blocking getters on the specified executor. The getters
+     * return null when the API could not be loaded; the future completes
+     * exceptionally with a {@link CRAException} in that case.
+     * @param getter The blocking getter to run.
+     * @param apiName The name of the API, used in the exception message.
+     * @param executor The executor to run the getter on.
+     * @return A future that completes with the result of the getter.
+     */
+    private static <R> CompletableFuture<R> async(Supplier<R> getter, String apiName, Executor executor){
+        return CompletableFuture.supplyAsync(() -> {
+            R craObj = getter.get();
+            
+            if (craObj == null){
+                throw new CompletionException(new CRAException("API [" + apiName + "] failed to load."));
+            }
+            return craObj;
+        }, executor);
     }
     
     
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of what the {@link Compactor} saved for each API.
+ * Stats are kept per API name for the life of the process, and are updated
+ * each time a loaded API object is compacted.
+ * @author Ken Lowrie
+ */
+public class CompactionStats {
+    private static final ConcurrentMap<String, CompactionStats> STATS = new ConcurrentHashMap<>();
+    
+    private final String apiName;
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong stringsDeduped = new AtomicLong();
+    private final AtomicLong listsFrozen = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    
+    private CompactionStats(String apiName){
+        this.apiName = apiName;
+    }
+    
+    /**
+     * Get the stats for the specified API, creating them if needed.
+     * @param apiName the name of the API, e.g. "reels".
+     * @return the {@link CompactionStats} for the API.
+     */
+    public static CompactionStats forApi(String apiName){
+        return STATS.computeIfAbsent(apiName, CompactionStats::new);
+    }
+    
+    /**
+     * Get a snapshot of the stats for all APIs seen so far.
+     * @return an unmodifiable map of API name to {@link CompactionStats}, sorted by name.
+     */
+    public static Map<String, CompactionStats> getAll(){
+        return Collections.unmodifiableMap(new TreeMap<>(STATS));
+    }
+    
+    /**
+     * Clear the stats for all APIs.
+     */
+    public static void resetAll(){
+        STATS.clear();
+    }
+    
+    /**
+     * Record a compaction pass.
+     * @param strings the number of duplicate strings replaced by a pooled copy.
+     * @param lists the number of lists frozen.
+     * @param bytes the estimated number of bytes saved.
+     */
+    void record(long strings, long lists, long bytes){
+        passes.incrementAndGet();
+        stringsDeduped.addAndGet(strings);
+        listsFrozen.addAndGet(lists);
+        bytesSaved.addAndGet(bytes);
+    }
+    
+    /**
+     * Get the name of the API these stats belong to.
+     * @return the API name.
+     */
+    public String getApiName(){
+        return apiName;
+    }
+    
+    /**
+     * Get the number of times an object of this API was compacted.
+     * @return the number of passes.
+     */
+    public long getPassCount(){
+        return passes.get();
+    }
+    
+    /**
+     * Get the number of duplicate strings that were replaced by a pooled copy.
+     * @return the number of strings deduplicated.
+     */
+    public long getStringsDeduped(){
+        return stringsDeduped.get();
+    }
+    
+    /**
+     * Get the number of lists that were frozen into exact size arrays.
+     * @return the number of lists frozen.
+     */
+    public long getListsFrozen(){
+        return listsFrozen.get();
+    }
+    
+    /**
+     * Get the estimated number of heap bytes that compaction saved.
+     * @return the estimated bytes saved.
+     */
+    public long getBytesSaved(){
+        return bytesSaved.get();
+    }
+    
+    /**
+     * Generates a printable version of the stats.
+     * @return String - This is a formatted version of the stats.
+     */
+    @Override
+    public String toString(){
+        String s;
+        
+        s = "\tapiName: " + apiName + Constants.NL +
+            "\tpasses: " + getPassCount() + Constants.NL +
+            "\tstringsDeduped: " + getStringsDeduped() + Constants.NL +
+            "\tlistsFrozen: " + getListsFrozen() + Constants.NL +
+            "\tbytesSaved: " + getBytesSaved() + Constants.NL;
+        
+        return s;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class shrinks the memory footprint of loaded API objects that are kept
+ * around for a long time. A compaction pass:
+ * <ul>
+ * <li>freezes every list into an unmodifiable list backed by an exact size array,
+ * instead of the over-allocated ArrayList that the parser built;</li>
+ * <li>replaces repeated strings (e.g. {@link Roles#director}, {@link ShowCaseVideo#type}
+ * or {@link SocialNetwork#network}) with a single pooled copy;</li>
+ * <li>optionally drops the debug data in {@link DbgObj} (the traceMsgQ and
+ * restAPIkeys lists), which is only useful when debugging the server.</li>
+ * </ul>
+ * Strings are only shared when they are equal as a whole; Java strings can't share
+ * a common prefix, such as the host of a URL.
+ * <br><br>
+ * The lists of a compacted object can't be modified. The bytes saved by each pass
+ * are estimated (assuming compressed references, and lists that were grown one
+ * element at a time by the parser) and recorded in the {@link CompactionStats} of
+ * the API. To compact the objects returned by {@link ClsRestApi}, see
+ * {@link ClsRestApi#setCompactor(clsrestapi.Compactor)}.
+ * @author Ken Lowrie
+ */
+public final class Compactor {
+    private static final int REF_SIZE = 4;
+    
+    private final boolean dropDebugData;
+    
+    /**
+     * Create a compactor.
+     * @param dropDebugData true to drop the traceMsgQ and restAPIkeys lists of the
+     * {@link DbgObj}. They are replaced with empty lists.
+     */
+    public Compactor(boolean dropDebugData){
+        this.dropDebugData = dropDebugData;
+    }
+    
+    /**
+     * Indicates whether this compactor drops the debug data.
+     * @return true if the debug lists are dropped.
+     */
+    public boolean isDropDebugData(){
+        return dropDebugData;
+    }
+    
+    /**
+     * Compact a loaded API object in place, and record the savings in the
+     * {@link CompactionStats} of the API. An object is only compacted once; compacting
+     * it again does nothing, and returns 0. An object that other threads can already
+     * see should not be compacted, since they read it without a lock.
+     * @param api The loaded API object.
+     * @param apiName The name of the API that the savings are recorded under.
+     * @return The estimated number of bytes saved.
+     */
+    public long compact(Base<?> api, String apiName){
+        synchronized (api){
+            if (api.compacted){
+                return 0;
+            }
+            api.compacted = true;
+        }
+        Pass pass = new Pass();
+        
+        api.apiVer = pass.apiVer(api.apiVer);
+        api.dbgObj = pass.dbgObj(api.dbgObj);
+        
+        if (api instanceof AboutUs){
+            ApiObjAboutUs obj = ((AboutUs)api).apiObj;
+            if (obj != null){
+                obj.aboutus = pass.string(obj.aboutus);
+            }
+        } else if (api instanceof Versions){
+            ApiObjVersions obj = ((Versions)api).apiObj;
+            if (obj != null){
+                obj.apiList = pass.list(obj.apiList);
+                for (ApiVer v : pass.each(obj.apiList)){
+                    pass.apiVer(v);
+                }
+            }
+        } else if (api instanceof ImagePaths){
+            ApiObjImagePaths obj = ((ImagePaths)api).apiObj;
+            if (obj != null){
+                obj.imagePaths = pass.list(obj.imagePaths);
+                for (ImagePath p : pass.each(obj.imagePaths)){
+                    p.clientID = pass.string(p.clientID);
+                    p.imagePath = pass.string(p.imagePath);
+                }
+            }
+        } else if (api instanceof ContactInfo){
+            ApiObjContactInfo obj = ((ContactInfo)api).apiObj;
+            if (obj != null){
+                obj.location = pass.string(obj.location);
+                obj.email = pass.string(obj.email);
+                obj.phone = pass.string(obj.phone);
+                if (obj.address != null){
+                    Address a = obj.address;
+                    a.name = pass.string(a.name);
+                    a.street = pass.string(a.street);
+                    a.city = pass.string(a.city);
+                    a.state = pass.string(a.state);
+                    a.zipcode = pass.string(a.zipcode);
+                }
+                obj.socialNetworks = pass.list(obj.socialNetworks);
+                for (SocialNetwork n : pass.each(obj.socialNetworks)){
+                    n.network = pass.string(n.network);
+                    n.id = pass.string(n.id);
+                    n.url = pass.string(n.url);
+                    n.image = pass.string(n.image);
+                }
+            }
+        } else if (api instanceof Reels){
+            ApiObjReels obj = ((Reels)api).apiObj;
+            if (obj != null){
+                obj.reelList = pass.list(obj.reelList);
+                for (Video v : pass.each(obj.reelList)){
+                    pass.video(v);
+                }
+            }
+        } else if (api instanceof OurWork){
+            ApiObjOurWork obj = ((OurWork)api).apiObj;
+            if (obj != null){
+                obj.videoList = pass.list(obj.videoList);
+                for (ShowCaseVideo v : pass.each(obj.videoList)){
+                    pass.video(v);
+                    v.type = pass.string(v.type);
+                    v.description = pass.string(v.description);
+                    if (v.roles != null){
+                        v.roles.director = pass.string(v.roles.director);
+                        v.roles.dp = pass.string(v.roles.dp);
+                        v.roles.camera = pass.string(v.roles.camera);
+                        v.roles.editor = pass.string(v.roles.editor);
+                    }
+                }
+            }
+        }
+        
+        CompactionStats.forApi(apiName).record(pass.strings, pass.lists, pass.bytes);
+        return pass.bytes;
+    }
+    
+    /**
+     * The state of a single compaction pass. The string pool only lives as long as
+     * the pass, so it doesn't keep strings alive after the object is gone.
+     */
+    private final class Pass {
+        private final Map<String, String> pool = new HashMap<>();
+        long strings;
+        long lists;
+        long bytes;
+        
+        String string(String s){
+            if (s == null){
+                return null;
+            }
+            String pooled = pool.putIfAbsent(s, s);
+            if (pooled == null || pooled == s){
+                return s;
+            }
+            strings++;
+            bytes += stringSize(s);
+            return pooled;
+        }
+        
+        <E> List<E> list(List<E> list){
+            if (list == null || isFrozen(list)){
+                return list;
+            }
+            if (list instanceof ArrayList){
+                bytes += (long)(parsedCapacity(list.size()) - list.size()) * REF_SIZE;
+            }
+            lists++;
+            @SuppressWarnings("unchecked")
+            E[] array = (E[]) list.toArray();
+            return Collections.unmodifiableList(Arrays.asList(array));
+        }
+        
+        /*
+        A null list is treated as empty, and null elements are skipped, so the
+        callers don't have to check.
+        */
+        <E> List<E> each(List<E> list){
+            if (list == null){
+                return Collections.emptyList();
+            }
+            List<E> elements = new ArrayList<>(list.size());
+            for (E e : list){
+                if (e != null){
+                    elements.add(e);
+                }
+            }
+            return elements;
+        }
+        
+        ApiVer apiVer(ApiVer v){
+            if (v != null){
+                v.apiName = string(v.apiName);
+                v.apiVersion = string(v.apiVersion);
+                v.apiDataVersion = string(v.apiDataVersion);
+            }
+            return v;
+        }
+        
+        DbgObj dbgObj(DbgObj d){
+            if (d != null){
+                d.request_uri = string(d.request_uri);
+                d.query_string = string(d.query_string);
+                if (dropDebugData){
+                    d.traceMsgQ = dropped(d.traceMsgQ);
+                    d.restAPIkeys = dropped(d.restAPIkeys);
+                } else {
+                    d.traceMsgQ = strings(d.traceMsgQ);
+                    d.restAPIkeys = strings(d.restAPIkeys);
+                }
+            }
+            return d;
+        }
+        
+        void video(Video v){
+            v.title = string(v.title);
+            v.url = string(v.url);
+            v.sUrl = string(v.sUrl);
+            v.hdUrl = string(v.hdUrl);
+            v.sdUrl = string(v.sdUrl);
+            v.mobileUrl = string(v.mobileUrl);
+            v.thumb = string(v.thumb);
+            v.frame = string(v.frame);
+        }
+        
+        private List<String> strings(List<String> list){
+            if (list == null || isFrozen(list)){
+                return list;
+            }
+            String[] array = new String[list.size()];
+            for (int i = 0; i < array.length; i++){
+                array[i] = string(list.get(i));
+            }
+            if (list instanceof ArrayList){
+                bytes += (long)(parsedCapacity(list.size()) - list.size()) * REF_SIZE;
+            }
+            lists++;
+            return Collections.unmodifiableList(Arrays.asList(array));
+        }
+        
+        private List<String> dropped(List<String> list){
+            if (list == null || list.isEmpty()){
+                return Collections.emptyList();
+            }
+            long size = 16 + align(16 + (long)list.size() * REF_SIZE);
+            for (String s : list){
+                size += s == null ? 0 : stringSize(s);
+            }
+            bytes += size;
+            lists++;
+            return Collections.emptyList();
+        }
+    }
+    
+    /*
+    Lists that were already compacted are backed by an exact size array.
+    */
+    private static final Class<?> FROZEN = Collections.unmodifiableList(Arrays.asList(new Object[0])).getClass();
+    
+    private static boolean isFrozen(List<?> list){
+        return list.getClass() == FROZEN || list == Collections.emptyList();
+    }
+    
+    /**
+     * The capacity of an ArrayList that was grown from empty by adding one
+     * element at a time: 10 on the first add, then 1.5 times as big when full.
+     */
+    private static int parsedCapacity(int size){
+        if (size == 0){
+            return 0;
+        }
+        int capacity = 10;
+        while (capacity < size){
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+    
+    /**
+     * The shallow size of a String and its Latin-1 byte array, with 12 byte
+     * object headers, rounded to 8 bytes.
+     */
+    private static long stringSize(String s){
+        return 24 + align(16 + s.length());
+    }
+    
+    private static long align(long size){
+        return (size + 7) & ~7L;
+    }
+}
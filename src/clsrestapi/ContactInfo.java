@@ -15,7 +15,7 @@
  */
 package clsrestapi;
 
-import com.google.gson.Gson;
+import java.util.Objects;
 
 /**
  * This class implements the contact-info REST API call.  All CLS REST APIs
@@ -68,6 +68,16 @@ public class ContactInfo extends Base<ContactInfo>{
         
         return dbgObj.equals(ci.dbgObj) && apiVer.equals(ci.apiVer) && apiObj.equals(ci.apiObj) ;
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(dbgObj, apiVer, apiObj);
+    }
     
     /**
      * This method loads the JSON from the web service, using the current values
@@ -77,11 +87,7 @@ public class ContactInfo extends Base<ContactInfo>{
     @Override
     public ContactInfo load(){
         try {
-            String json = loadJSONfromWebService();
-
-            Gson gson = new Gson();
-
-            return gson.fromJson(json, this.getClass());
+            return loadFromWebService();
         } catch (CRAException e) {
             //e.printStackTrace();
         }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A simple input stream filter that counts the number of bytes read through it.
+ * @author Ken Lowrie
+ */
+class CountingInputStream extends FilterInputStream {
+    private long count;
+    
+    CountingInputStream(InputStream in){
+        super(in);
+        this.count = 0;
+    }
+    
+    /**
+     * Get the number of bytes read so far.
+     * @return the number of bytes read through this stream.
+     */
+    long getCount(){
+        return count;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) count++;
+        return b;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) count += n;
+        return n;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+    
+    /**
+     * Marking is not supported, since it would throw off the count.
+     * @return false
+     */
+    @Override
+    public boolean markSupported(){
+        return false;
+    }
+}
@@ -17,12 +17,14 @@ package clsrestapi;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * This class implements the DbgObj object.  All CLS REST APIs contain two
  * common objects, a DbgObj (this class) and a {@link ApiVer}.
  * @author ken
  */
+@GenerateCodec
 public class DbgObj implements Serializable{
     /**
      * indicates whether the server was able to parse the API name and parameters.
@@ -71,8 +73,17 @@ public class DbgObj implements Serializable{
                 request_uri.equals(dbgo.request_uri) && 
                 traceMsgQ.equals(dbgo.traceMsgQ) && 
                 restAPIkeys.equals(dbgo.restAPIkeys) && 
-                query_string == null ||
-                query_string.equals(dbgo.query_string);
+                Objects.equals(query_string, dbgo.query_string);
+    }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(parseOK, request_uri, traceMsgQ, restAPIkeys, query_string);
     }
     /**
      * Generates a printable version of the DbgObj object.
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents a point in time by which a call must be finished.
+ * A deadline is passed to the {@link ClsRestApi} constructor and getters, and
+ * every step of the call (version checks, reloads, retries, resource downloads
+ * and the connect/read timeouts of each connection) only gets the time that
+ * is left, so the call as a whole cannot run past the deadline.
+ * @author Ken Lowrie
+ */
+public final class Deadline {
+    private static final Deadline NONE = new Deadline(0, true);
+    
+    private final long deadlineNanos;
+    private final boolean infinite;
+    
+    private Deadline(long deadlineNanos, boolean infinite){
+        this.deadlineNanos = deadlineNanos;
+        this.infinite = infinite;
+    }
+    
+    /**
+     * Create a deadline the specified number of milliseconds from now.
+     * @param millis the budget in milliseconds.
+     * @return the {@link Deadline}.
+     */
+    public static Deadline after(long millis){
+        if (millis < 0) throw new IllegalArgumentException("millis cannot be negative");
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), false);
+    }
+    
+    /**
+     * Get the deadline that never expires. This is what the methods that don't
+     * take a deadline use.
+     * @return the infinite {@link Deadline}.
+     */
+    public static Deadline none(){
+        return NONE;
+    }
+    
+    /**
+     * Indicates whether this deadline never expires.
+     * @return true if this is the infinite deadline.
+     */
+    public boolean isInfinite(){
+        return infinite;
+    }
+    
+    /**
+     * Indicates whether the deadline has passed.
+     * @return true if there is no time left.
+     */
+    public boolean isExpired(){
+        return !infinite && System.nanoTime() - deadlineNanos >= 0;
+    }
+    
+    /**
+     * Get the time left until the deadline.
+     * @return the remaining time in milliseconds, zero if expired, or
+     * Long.MAX_VALUE if this deadline never expires.
+     */
+    public long remainingMillis(){
+        if (infinite) return Long.MAX_VALUE;
+        
+        long remaining = deadlineNanos - System.nanoTime();
+        
+        return remaining <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+    }
+    
+    /**
+     * Bound a connection timeout by the time left. URLConnection treats a
+     * timeout of zero as "wait forever", so the result is never zero unless
+     * both the timeout and the deadline are unbounded.
+     * @param timeout the configured timeout in milliseconds, zero meaning forever.
+     * @return the timeout to use, in milliseconds.
+     */
+    public int boundTimeout(int timeout){
+        if (infinite) return timeout;
+        
+        long remaining = Math.max(1, remainingMillis());
+        
+        if (timeout == 0) return (int) Math.min(remaining, Integer.MAX_VALUE);
+        
+        return (int) Math.min(timeout, remaining);
+    }
+    
+    /**
+     * Generates a printable version of the deadline.
+     * @return String - This is a formatted version of the deadline.
+     */
+    @Override
+    public String toString(){
+        return infinite ? "Deadline[none]" : "Deadline[remaining=" + remainingMillis() + "ms]";
+    }
+}
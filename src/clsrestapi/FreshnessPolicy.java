@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+/**
+ * This class describes how long a cached API object is served without asking the
+ * server, in the spirit of the max-age, stale-while-revalidate and stale-if-error
+ * directives of HTTP caching. Set it per API with
+ * {@link ClsRestApi#setFreshnessPolicy(java.lang.String, clsrestapi.FreshnessPolicy)},
+ * or for every API with {@link ClsRestApi#setDefaultFreshnessPolicy(clsrestapi.FreshnessPolicy)}.
+ * Without a policy, a cached object is checked against the {@link Versions} loaded
+ * by each {@link ClsRestApi} instance, and reloaded on the caller's thread if it changed.
+ * <br><br>
+ * The age of an object is the time since it was last loaded or revalidated by the
+ * server, see {@link Base#getFetchedAt()}. An object is:
+ * <ul>
+ * <li>fresh until it is maxAge old, and served without asking the server;</li>
+ * <li>stale for another staleWhileRevalidate, and served right away while it is
+ * revalidated in the background;</li>
+ * <li>after that, revalidated on the caller's thread. If the server can't be reached,
+ * the stale object is still served until it is maxAge + staleIfError old.</li>
+ * </ul>
+ * A policy for {@link Constants#API_VERSIONS} applies to the {@link Versions} object
+ * that each {@link ClsRestApi} instance loads when it is created, which is then shared
+ * by the instances for the same web service.
+ * @author Ken Lowrie
+ */
+public class FreshnessPolicy {
+    private final long maxAge;
+    private final long staleWhileRevalidate;
+    private final long staleIfError;
+    
+    /**
+     * Construct a freshness policy.
+     * @param maxAge the time in milliseconds an object is fresh.
+     * @param staleWhileRevalidate the time in milliseconds after maxAge that a stale object is
+     * served while it is revalidated in the background.
+     * @param staleIfError the time in milliseconds after maxAge that a stale object is served
+     * if it can't be revalidated.
+     */
+    public FreshnessPolicy(long maxAge, long staleWhileRevalidate, long staleIfError){
+        if (maxAge < 0 || staleWhileRevalidate < 0 || staleIfError < 0) throw new IllegalArgumentException("Times cannot be negative");
+        this.maxAge = maxAge;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.staleIfError = staleIfError;
+    }
+    
+    /**
+     * Get the time an object is fresh.
+     * @return the max age in milliseconds.
+     */
+    public long getMaxAge(){
+        return maxAge;
+    }
+    
+    /**
+     * Get the time after the max age that a stale object is served while it is revalidated.
+     * @return the stale-while-revalidate window in milliseconds.
+     */
+    public long getStaleWhileRevalidate(){
+        return staleWhileRevalidate;
+    }
+    
+    /**
+     * Get the time after the max age that a stale object is served if it can't be revalidated.
+     * @return the stale-if-error window in milliseconds.
+     */
+    public long getStaleIfError(){
+        return staleIfError;
+    }
+    
+    /**
+     * Check if an object can be served without asking the server.
+     * @param age the age of the object in milliseconds.
+     * @return true if the object is fresh.
+     */
+    public boolean isFresh(long age){
+        return age <= maxAge;
+    }
+    
+    /**
+     * Check if a stale object can be served while it is revalidated in the background.
+     * @param age the age of the object in milliseconds.
+     * @return true if the object is within the stale-while-revalidate window.
+     */
+    public boolean isUsableWhileRevalidating(long age){
+        return age - maxAge <= staleWhileRevalidate;
+    }
+    
+    /**
+     * Check if a stale object can be served because it can't be revalidated.
+     * @param age the age of the object in milliseconds.
+     * @return true if the object is within the stale-if-error window.
+     */
+    public boolean isUsableOnError(long age){
+        return age - maxAge <= staleIfError;
+    }
+    
+    /**
+     * Generates a printable version of the policy.
+     * @return String - This is a formatted version of the policy.
+     */
+    @Override
+    public String toString(){
+        return "FreshnessPolicy[maxAge=" + maxAge + ", staleWhileRevalidate=" + staleWhileRevalidate + ", staleIfError=" + staleIfError + "]";
+    }
+}
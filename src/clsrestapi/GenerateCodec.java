@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for the codec generator in src-processor. For a class
+ * named <tt>Foo</tt>, the generator writes a class named <tt>FooCodec</tt> in the
+ * same package. It has a streaming JSON reader and writer, a Gson {@link com.google.gson.TypeAdapter}
+ * and a compact binary encoder and decoder, all of which work directly on the
+ * public fields of <tt>Foo</tt> and its superclasses, without reflection. It also
+ * writes a public class named <tt>FooValue</tt>, which is an immutable copy of a
+ * <tt>Foo</tt> with getters for the fields and a precomputed hash code, for use as
+ * a key in hash maps and sets.
+ * <br><br>
+ * The supported field types are String, int, long, boolean, double, other classes
+ * marked with this annotation, and Lists of String or of marked classes. Static
+ * and transient fields are ignored. Adding a field to a marked class is all that
+ * is needed for it to be read and written by the codecs.
+ * @author Ken Lowrie
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class holds the {@link Gson} instance shared by all of the CLS REST APIs.
+ * <br><br>
+ * Every model class has a streaming {@link TypeAdapter} registered with it, so
+ * parsing a response never falls back to Gson's reflective adapters. The adapters
+ * of the model classes are generated at compile time (see {@link GenerateCodec}),
+ * and the ones of the API classes, which only wrap the model classes, are below.
+ * The adapters read the same JSON that the reflective ones did: unknown names are
+ * skipped, missing names leave the field at its default, and nulls are allowed
+ * everywhere. A Gson instance is thread safe, so one is built for the whole
+ * process and reused by every load.
+ * @author Ken Lowrie
+ */
+public final class GsonRegistry {
+    
+    /**
+     * This is the base class for the adapters. It handles the object braces and
+     * nulls, and leaves the fields to the subclass.
+     * @param <T> The class the adapter reads and writes.
+     */
+    private abstract static class ObjectAdapter<T> extends TypeAdapter<T> {
+        /**
+         * Create an empty instance of the class.
+         * @return The new instance.
+         */
+        abstract T create();
+        
+        /**
+         * Read the value of one field into the object. Names that are not known
+         * to the adapter must be skipped with {@link JsonReader#skipValue()}.
+         */
+        abstract void readField(T obj, String name, JsonReader in) throws IOException;
+        
+        /**
+         * Write the fields of the object. Null values are dropped by the writer
+         * unless the Gson instance was built to serialize nulls.
+         */
+        abstract void writeFields(T obj, JsonWriter out) throws IOException;
+        
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                return null;
+            }
+            T obj = create();
+            in.beginObject();
+            while (in.hasNext()){
+                readField(obj, in.nextName(), in);
+            }
+            in.endObject();
+            return obj;
+        }
+        
+        @Override
+        public void write(JsonWriter out, T obj) throws IOException {
+            if (obj == null){
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(obj, out);
+            out.endObject();
+        }
+    }
+    
+    /**
+     * This is the base class for the adapters of the API classes. The apiVer and
+     * dbgObj objects are common to all of them, and the subclass reads the apiObj.
+     * @param <T> The API class the adapter reads and writes.
+     */
+    private abstract static class ApiAdapter<T extends Base<T>> extends ObjectAdapter<T> {
+        /**
+         * Read the apiObj object into the API object.
+         * @param projection The projection to read with, or null to read every field.
+         */
+        abstract void readApiObj(T obj, JsonReader in, Projection projection) throws IOException;
+        
+        /**
+         * Write the apiObj object of the API object.
+         */
+        abstract void writeApiObj(T obj, JsonWriter out) throws IOException;
+        
+        @Override
+        void readField(T obj, String name, JsonReader in) throws IOException {
+            switch (name){
+                case "apiVer": obj.apiVer = ApiVerCodec.readJson(in); break;
+                case "dbgObj": obj.dbgObj = DbgObjCodec.readJson(in); break;
+                case "apiObj": readApiObj(obj, in, null); break;
+                default: in.skipValue();
+            }
+        }
+        
+        /**
+         * Read the API object, reading the apiObj object with a projection.
+         */
+        T read(JsonReader in, Projection projection) throws IOException {
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                return null;
+            }
+            T obj = create();
+            in.beginObject();
+            while (in.hasNext()){
+                String name = in.nextName();
+                if (name.equals("apiObj")){
+                    readApiObj(obj, in, projection);
+                } else {
+                    readField(obj, name, in);
+                }
+            }
+            in.endObject();
+            return obj;
+        }
+        
+        /**
+         * Read only the apiVer object, and optionally the dbgObj object, and stop
+         * as soon as they have been read. Anything else is skipped without being
+         * materialized, and the rest of the document is left unread.
+         */
+        T readHeaders(JsonReader in, boolean withDbgObj) throws IOException {
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                return null;
+            }
+            T obj = create();
+            boolean needApiVer = true;
+            boolean needDbgObj = withDbgObj;
+            in.beginObject();
+            while ((needApiVer || needDbgObj) && in.hasNext()){
+                String name = in.nextName();
+                if (name.equals("apiVer")){
+                    obj.apiVer = ApiVerCodec.readJson(in);
+                    needApiVer = false;
+                } else if (name.equals("dbgObj") && withDbgObj){
+                    obj.dbgObj = DbgObjCodec.readJson(in);
+                    needDbgObj = false;
+                } else {
+                    in.skipValue();
+                }
+            }
+            return obj;
+        }
+        
+        @Override
+        void writeFields(T obj, JsonWriter out) throws IOException {
+            out.name("apiVer");
+            ApiVerCodec.writeJson(out, obj.apiVer);
+            out.name("apiObj");
+            writeApiObj(obj, out);
+            out.name("dbgObj");
+            DbgObjCodec.writeJson(out, obj.dbgObj);
+        }
+    }
+    
+    /*
+    The API objects are created with their no-arg constructors, which is what Gson's
+    reflective adapter did as well.
+    */
+    private static final ApiAdapter<AboutUs> ABOUT_US = new ApiAdapter<AboutUs>(){
+        @Override
+        AboutUs create(){
+            return new AboutUs();
+        }
+
+        @Override
+        void readApiObj(AboutUs obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjAboutUsCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(AboutUs obj, JsonWriter out) throws IOException {
+            ApiObjAboutUsCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final ApiAdapter<Versions> VERSIONS = new ApiAdapter<Versions>(){
+        @Override
+        Versions create(){
+            return new Versions();
+        }
+
+        @Override
+        void readApiObj(Versions obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjVersionsCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(Versions obj, JsonWriter out) throws IOException {
+            ApiObjVersionsCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final ApiAdapter<ImagePaths> IMAGE_PATHS = new ApiAdapter<ImagePaths>(){
+        @Override
+        ImagePaths create(){
+            return new ImagePaths();
+        }
+
+        @Override
+        void readApiObj(ImagePaths obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjImagePathsCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(ImagePaths obj, JsonWriter out) throws IOException {
+            ApiObjImagePathsCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final ApiAdapter<ContactInfo> CONTACT_INFO = new ApiAdapter<ContactInfo>(){
+        @Override
+        ContactInfo create(){
+            return new ContactInfo();
+        }
+
+        @Override
+        void readApiObj(ContactInfo obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjContactInfoCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(ContactInfo obj, JsonWriter out) throws IOException {
+            ApiObjContactInfoCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final ApiAdapter<Reels> REELS = new ApiAdapter<Reels>(){
+        @Override
+        Reels create(){
+            return new Reels();
+        }
+
+        @Override
+        void readApiObj(Reels obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjReelsCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(Reels obj, JsonWriter out) throws IOException {
+            ApiObjReelsCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final ApiAdapter<OurWork> OUR_WORK = new ApiAdapter<OurWork>(){
+        @Override
+        OurWork create(){
+            return new OurWork();
+        }
+
+        @Override
+        void readApiObj(OurWork obj, JsonReader in, Projection projection) throws IOException {
+            obj.apiObj = ApiObjOurWorkCodec.readJson(in, projection);
+        }
+
+        @Override
+        void writeApiObj(OurWork obj, JsonWriter out) throws IOException {
+            ApiObjOurWorkCodec.writeJson(out, obj.apiObj);
+        }
+    };
+    
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ApiVer.class, ApiVerCodec.JSON)
+            .registerTypeAdapter(DbgObj.class, DbgObjCodec.JSON)
+            .registerTypeAdapter(Address.class, AddressCodec.JSON)
+            .registerTypeAdapter(SocialNetwork.class, SocialNetworkCodec.JSON)
+            .registerTypeAdapter(ImagePath.class, ImagePathCodec.JSON)
+            .registerTypeAdapter(Roles.class, RolesCodec.JSON)
+            .registerTypeAdapter(Video.class, VideoCodec.JSON)
+            .registerTypeAdapter(ShowCaseVideo.class, ShowCaseVideoCodec.JSON)
+            .registerTypeAdapter(ApiObjAboutUs.class, ApiObjAboutUsCodec.JSON)
+            .registerTypeAdapter(ApiObjVersions.class, ApiObjVersionsCodec.JSON)
+            .registerTypeAdapter(ApiObjImagePaths.class, ApiObjImagePathsCodec.JSON)
+            .registerTypeAdapter(ApiObjContactInfo.class, ApiObjContactInfoCodec.JSON)
+            .registerTypeAdapter(ApiObjReels.class, ApiObjReelsCodec.JSON)
+            .registerTypeAdapter(ApiObjOurWork.class, ApiObjOurWorkCodec.JSON)
+            .registerTypeAdapter(AboutUs.class, ABOUT_US)
+            .registerTypeAdapter(Versions.class, VERSIONS)
+            .registerTypeAdapter(ImagePaths.class, IMAGE_PATHS)
+            .registerTypeAdapter(ContactInfo.class, CONTACT_INFO)
+            .registerTypeAdapter(Reels.class, REELS)
+            .registerTypeAdapter(OurWork.class, OUR_WORK)
+            .create();
+    
+    /*
+    The API adapters by class, for readHeaders() and read().
+    */
+    private static final Map<Class<?>, ApiAdapter<?>> API_ADAPTERS = new HashMap<>();
+    static {
+        API_ADAPTERS.put(AboutUs.class, ABOUT_US);
+        API_ADAPTERS.put(Versions.class, VERSIONS);
+        API_ADAPTERS.put(ImagePaths.class, IMAGE_PATHS);
+        API_ADAPTERS.put(ContactInfo.class, CONTACT_INFO);
+        API_ADAPTERS.put(Reels.class, REELS);
+        API_ADAPTERS.put(OurWork.class, OUR_WORK);
+    }
+    
+    private GsonRegistry(){
+    }
+    
+    /**
+     * Get the Gson instance shared by the library. It is thread safe, and it can
+     * be used to read or write any of the CLS REST API classes.
+     * @return The shared Gson instance.
+     */
+    public static Gson get(){
+        return GSON;
+    }
+    
+    /**
+     * Read the apiVer object, and optionally the dbgObj object, of an API response,
+     * without reading the apiObj object. This is what {@link Base#loadHeaders(boolean)}
+     * uses to check the version of an API at a fraction of the cost of a full load.
+     * @param <T> The API class.
+     * @param cls The API class.
+     * @param in The reader positioned at the start of the response.
+     * @param withDbgObj true to read the dbgObj object as well.
+     * @return An instance of the API class with only apiVer (and dbgObj) set, or
+     * null if the response is the JSON null.
+     * @throws IOException if the response could not be read or is not valid JSON.
+     * @throws IllegalArgumentException if cls is not one of the API classes.
+     */
+    static <T> T readHeaders(Class<?> cls, JsonReader in, boolean withDbgObj) throws IOException {
+        @SuppressWarnings("unchecked")
+        T obj = (T) apiAdapter(cls).readHeaders(in, withDbgObj);
+        return obj;
+    }
+    
+    /**
+     * Read an API response, limiting the fields of the model objects to a projection.
+     * This is what {@link Base#load()} uses when the API instance has a {@link Projection}.
+     * @param <T> The API class.
+     * @param cls The API class.
+     * @param in The reader positioned at the start of the response.
+     * @param projection The projection to read with.
+     * @return An instance of the API class, or null if the response is the JSON null.
+     * @throws IOException if the response could not be read or is not valid JSON.
+     * @throws IllegalArgumentException if cls is not one of the API classes.
+     */
+    static <T> T read(Class<?> cls, JsonReader in, Projection projection) throws IOException {
+        @SuppressWarnings("unchecked")
+        T obj = (T) apiAdapter(cls).read(in, projection);
+        return obj;
+    }
+    
+    private static ApiAdapter<?> apiAdapter(Class<?> cls){
+        ApiAdapter<?> adapter = API_ADAPTERS.get(cls);
+        if (adapter == null){
+            throw new IllegalArgumentException(cls.getName() + " is not a CLS REST API class");
+        }
+        return adapter;
+    }
+}
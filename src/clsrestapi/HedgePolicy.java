@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+/**
+ * This class describes when a hedged (duplicate) request is sent. Hedging is
+ * off by default; turn it on with {@link Base#setDefaultHedgePolicy(clsrestapi.HedgePolicy)}
+ * or {@link Base#setHedgePolicy(clsrestapi.HedgePolicy)}.
+ * <br><br>
+ * When a request hasn't answered within the configured percentile of the
+ * recent response times for the same API, a duplicate request is sent. The
+ * first response wins, and the other request is aborted right away (see
+ * {@link TransportResponse#abort()}), instead of waiting for it to answer.
+ * Until enough response times have been seen, a fixed initial delay is used.
+ * @author Ken Lowrie
+ */
+public class HedgePolicy {
+    /**
+     * The number of response times needed before the percentile is used.
+     */
+    public static final int MIN_SAMPLES = 20;
+    
+    private final double percentile;
+    private final long initialDelay;
+    private final long minDelay;
+    
+    /**
+     * Construct a hedge policy.
+     * @param percentile the percentile of recent response times to wait before hedging, e.g. 95.
+     * @param initialDelay the delay in milliseconds used until {@link #MIN_SAMPLES} response times have been seen.
+     * @param minDelay the minimum delay in milliseconds, so that a run of fast responses doesn't cause a hedge for every request.
+     */
+    public HedgePolicy(double percentile, long initialDelay, long minDelay){
+        if (percentile <= 0 || percentile >= 100) throw new IllegalArgumentException("percentile must be between 0 and 100");
+        if (initialDelay < 0 || minDelay < 0) throw new IllegalArgumentException("Delays cannot be negative");
+        this.percentile = percentile;
+        this.initialDelay = initialDelay;
+        this.minDelay = minDelay;
+    }
+    
+    /**
+     * Construct a hedge policy that hedges at the 95th percentile, with a
+     * 500ms initial delay and a 20ms minimum delay.
+     */
+    public HedgePolicy(){
+        this(95, 500, 20);
+    }
+    
+    /**
+     * Get the percentile of recent response times to wait before hedging.
+     * @return the percentile.
+     */
+    public double getPercentile(){
+        return percentile;
+    }
+    
+    /**
+     * Get the delay used until enough response times have been seen.
+     * @return the initial delay in milliseconds.
+     */
+    public long getInitialDelay(){
+        return initialDelay;
+    }
+    
+    /**
+     * Get the minimum delay before hedging.
+     * @return the minimum delay in milliseconds.
+     */
+    public long getMinDelay(){
+        return minDelay;
+    }
+    
+    /**
+     * Generates a printable version of the policy.
+     * @return String - This is a formatted version of the policy.
+     */
+    @Override
+    public String toString(){
+        return "HedgePolicy[percentile=" + percentile + ", initialDelay=" + initialDelay + ", minDelay=" + minDelay + "]";
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of hedged requests for an API: how many requests were
+ * made, how often a hedge was sent, and how often the hedge answered first.
+ * It also keeps the recent response times that the {@link HedgePolicy} delay
+ * is computed from. API fetches are tracked under the API name (e.g. "reels"),
+ * and resource downloads under the API name plus ":resources".
+ * @author Ken Lowrie
+ */
+public class HedgeStats {
+    private static final ConcurrentMap<String, HedgeStats> STATS = new ConcurrentHashMap<>();
+    private static final int WINDOW = 256;
+    
+    private final String name;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedgesFired = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    
+    private final long[] latencies = new long[WINDOW];
+    private int latencyCount = 0;
+    private int latencyNext = 0;
+    
+    private HedgeStats(String name){
+        this.name = name;
+    }
+    
+    /**
+     * Get the stats with the specified name, creating them if needed.
+     * @param name the API name, e.g. "reels" or "reels:resources".
+     * @return the {@link HedgeStats}.
+     */
+    public static HedgeStats forName(String name){
+        return STATS.computeIfAbsent(name, HedgeStats::new);
+    }
+    
+    /**
+     * Get a snapshot of all hedge stats seen so far.
+     * @return an unmodifiable map of name to {@link HedgeStats}, sorted by name.
+     */
+    public static Map<String, HedgeStats> getAll(){
+        return Collections.unmodifiableMap(new TreeMap<>(STATS));
+    }
+    
+    /**
+     * Clear all hedge stats, including the recorded response times.
+     */
+    public static void resetAll(){
+        STATS.clear();
+    }
+    
+    void recordRequest(){
+        requests.incrementAndGet();
+    }
+    
+    void recordHedgeFired(){
+        hedgesFired.incrementAndGet();
+    }
+    
+    void recordHedgeWon(){
+        hedgesWon.incrementAndGet();
+    }
+    
+    /**
+     * Record the response time of a request.
+     * @param millis the time until the response headers arrived, in milliseconds.
+     */
+    synchronized void recordLatency(long millis){
+        latencies[latencyNext] = millis;
+        latencyNext = (latencyNext + 1) % WINDOW;
+        if (latencyCount < WINDOW) latencyCount++;
+    }
+    
+    /**
+     * Compute the delay before hedging, based on the recent response times.
+     * @param policy the hedge policy.
+     * @return the delay in milliseconds.
+     */
+    synchronized long getHedgeDelay(HedgePolicy policy){
+        if (latencyCount < HedgePolicy.MIN_SAMPLES){
+            return Math.max(policy.getInitialDelay(), policy.getMinDelay());
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        
+        int index = (int) Math.ceil(policy.getPercentile() / 100.0 * latencyCount) - 1;
+        
+        return Math.max(sorted[Math.max(0, Math.min(index, latencyCount - 1))], policy.getMinDelay());
+    }
+    
+    /**
+     * Get the name these stats are tracked under.
+     * @return the name.
+     */
+    public String getName(){
+        return name;
+    }
+    
+    /**
+     * Get the number of requests made with hedging enabled.
+     * @return the number of requests.
+     */
+    public long getRequestCount(){
+        return requests.get();
+    }
+    
+    /**
+     * Get the number of times a hedge request was sent.
+     * @return the number of hedges fired.
+     */
+    public long getHedgesFired(){
+        return hedgesFired.get();
+    }
+    
+    /**
+     * Get the number of times the hedge request answered before the original.
+     * @return the number of hedges that won.
+     */
+    public long getHedgesWon(){
+        return hedgesWon.get();
+    }
+    
+    /**
+     * Generates a printable version of the stats.
+     * @return String - This is a formatted version of the stats.
+     */
+    @Override
+    public String toString(){
+        String s;
+        
+        s = "\tname: " + name + Constants.NL +
+            "\trequests: " + getRequestCount() + Constants.NL +
+            "\thedgesFired: " + getHedgesFired() + Constants.NL +
+            "\thedgesWon: " + getHedgesWon() + Constants.NL;
+        
+        return s;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class opens a response with hedging. The request is started in the
+ * background, and if it hasn't answered (i.e. the status line and headers
+ * haven't arrived) within the delay computed from the {@link HedgePolicy},
+ * a duplicate request is started. The first response to arrive is returned,
+ * and the other request is aborted right away, so it doesn't keep a connection
+ * (and the server) busy. If the loser had already answered, it is closed
+ * instead, which hands its connection back to the keep-alive pool.
+ * <br><br>
+ * No hedge is sent while the host's {@link CircuitBreaker} is probing the host
+ * with its single trial request.
+ * @author Ken Lowrie
+ */
+class Hedger {
+    private final Transport transport;
+    private final HedgePolicy policy;
+    private final HedgeStats stats;
+    private final CircuitBreaker breaker;
+    
+    Hedger(Transport transport, HedgePolicy policy, HedgeStats stats, CircuitBreaker breaker){
+        this.transport = transport;
+        this.policy = policy;
+        this.stats = stats;
+        this.breaker = breaker;
+    }
+    
+    /**
+     * Open the response for the specified URL.
+     * @param url the URL to fetch.
+     * @param headers the request headers.
+     * @param deadline the deadline for the request; no hedge is sent if there isn't time for one.
+     * @return the winning response. The caller is responsible for closing it.
+     * @throws IOException if every request failed.
+     */
+    TransportResponse get(String url, Map<String, String> headers, Deadline deadline) throws IOException {
+        stats.recordRequest();
+        
+        long delay = stats.getHedgeDelay(policy);
+        Attempt primary = start(url, headers, deadline);
+        // There's no point in a hedge without time for it, or while the breaker is probing the host.
+        boolean hedge = delay < deadline.remainingMillis() && breaker.getState() == CircuitBreaker.State.CLOSED;
+        
+        try{
+            if (!hedge){
+                return primary.result.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            }
+            return primary.result.get(delay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException E){
+            if (!hedge || deadline.isExpired()){
+                primary.cancel();
+                throw new SocketTimeoutException("Deadline expired waiting for " + url);
+            }
+            // The original is slow, send the hedge below.
+        } catch (ExecutionException E){
+            throw unwrap(E.getCause());
+        } catch (InterruptedException E){
+            Thread.currentThread().interrupt();
+            primary.cancel();
+            throw new InterruptedIOException("Interrupted while waiting for " + url);
+        }
+        
+        stats.recordHedgeFired();
+        Attempt secondary = start(url, headers, deadline);
+        CompletableFuture<TransportResponse> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        
+        race(primary, secondary, winner, failures, false);
+        race(secondary, primary, winner, failures, true);
+        
+        try{
+            return deadline.isInfinite() ? winner.get() : winner.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException E){
+            // Once the winner is cancelled, race() closes any response that still arrives.
+            winner.cancel(false);
+            primary.cancel();
+            secondary.cancel();
+            throw new SocketTimeoutException("Deadline expired waiting for " + url);
+        } catch (ExecutionException E){
+            throw unwrap(E.getCause());
+        } catch (InterruptedException E){
+            Thread.currentThread().interrupt();
+            // Once the winner is cancelled, race() closes any response that still arrives.
+            winner.cancel(false);
+            primary.cancel();
+            secondary.cancel();
+            throw new InterruptedIOException("Interrupted while waiting for " + url);
+        }
+    }
+    
+    /**
+     * Start a request in the background. The task waits for the status line, so
+     * that the result completes when the server actually answered.
+     */
+    private Attempt start(String url, Map<String, String> headers, Deadline deadline){
+        Attempt attempt = new Attempt();
+        
+        IoExecutors.get().execute(() -> {
+            long start = System.nanoTime();
+            try{
+                TransportResponse rsp = transport.get(url, headers, deadline);
+                if (!attempt.opened(rsp)){
+                    rsp.abort();
+                    throw new InterruptedIOException("Request for " + url + " was cancelled");
+                }
+                try{
+                    rsp.getStatusCode();
+                } catch (IOException E){
+                    // If we were cancelled, abort() already dropped the connection.
+                    if (!attempt.isCancelled()) closeQuietly(rsp);
+                    throw E;
+                }
+                if (!attempt.answered()){
+                    throw new InterruptedIOException("Request for " + url + " was cancelled");
+                }
+                stats.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                attempt.result.complete(rsp);
+            } catch (IOException | RuntimeException E){
+                attempt.result.completeExceptionally(E);
+            }
+        });
+        return attempt;
+    }
+    
+    /**
+     * Hook a request up to the race. The first successful response completes
+     * the winner and cancels the other request; a loser that already answered
+     * is closed. The winner only fails if both fail.
+     */
+    private void race(Attempt request, Attempt other, CompletableFuture<TransportResponse> winner,
+                      AtomicInteger failures, boolean isHedge){
+        request.result.whenComplete((rsp, error) -> {
+            if (error == null){
+                if (winner.complete(rsp)){
+                    if (isHedge) stats.recordHedgeWon();
+                    if (other.cancel()){
+                        // The loser was cut short by us, that says nothing about the host.
+                        breaker.recordCancelled();
+                    }
+                } else {
+                    closeQuietly(rsp);  // we lost, release the connection
+                }
+            } else if (failures.incrementAndGet() == 2){
+                winner.completeExceptionally(error);
+            }
+        });
+    }
+    
+    /**
+     * A single request in flight. Until the server answers, the request can
+     * be cancelled, which aborts its connection.
+     */
+    private static class Attempt {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        private TransportResponse rsp;
+        private boolean cancelled;
+        private boolean answered;
+        
+        synchronized boolean opened(TransportResponse rsp){
+            this.rsp = rsp;
+            return !cancelled;
+        }
+        
+        synchronized boolean answered(){
+            answered = !cancelled;
+            return answered;
+        }
+        
+        synchronized boolean isCancelled(){
+            return cancelled;
+        }
+        
+        /**
+         * Cancel the request if the server hasn't answered yet.
+         * @return true if the request was cancelled by this call.
+         */
+        boolean cancel(){
+            TransportResponse pending;
+            
+            synchronized (this){
+                if (cancelled || answered || result.isDone()) return false;
+                cancelled = true;
+                pending = rsp;
+            }
+            if (pending != null){
+                try{
+                    pending.abort();
+                } catch (IOException E){
+                    // Nothing to do, the request is dead either way.
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static void closeQuietly(TransportResponse rsp){
+        try{
+            rsp.close();
+        } catch (IOException E){
+            // Nothing to do, we don't need this response.
+        }
+    }
+    
+    private static IOException unwrap(Throwable error){
+        if (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        if (error instanceof IOException) return (IOException) error;
+        if (error instanceof RuntimeException) throw (RuntimeException) error;
+        if (error instanceof Error) throw (Error) error;
+        return new IOException(error);
+    }
+}
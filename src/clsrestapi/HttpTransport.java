@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+
+/**
+ * This is the default {@link Transport} for the CLS REST API. It uses the
+ * built-in HttpURLConnection class, which keeps a pool of persistent (keep-alive)
+ * connections per host. Each request reads the headers and the body from
+ * the same connection, and when the response is closed, the connection goes
+ * back to the pool for the next request.
+ * <br><br>
+ * The size of the pool is controlled by the standard <tt>http.maxConnections</tt>
+ * system property (default 5 per host).
+ * @author Ken Lowrie
+ */
+public class HttpTransport implements Transport {
+    /**
+     * The default connect timeout, in milliseconds.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    /**
+     * The default read timeout, in milliseconds.
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+    
+    private final int connectTimeout;
+    private final int readTimeout;
+    
+    /**
+     * Construct a transport with the specified timeouts.
+     * @param connectTimeout the connect timeout in milliseconds. Zero means wait forever.
+     * @param readTimeout the read timeout in milliseconds. Zero means wait forever.
+     */
+    public HttpTransport(int connectTimeout, int readTimeout){
+        if (connectTimeout < 0 || readTimeout < 0){
+            throw new IllegalArgumentException("Timeouts cannot be negative");
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+    
+    /**
+     * Construct a transport using {@link #DEFAULT_CONNECT_TIMEOUT} and
+     * {@link #DEFAULT_READ_TIMEOUT}.
+     */
+    public HttpTransport(){
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+    
+    /**
+     * Get the connect timeout used by this transport.
+     * @return the connect timeout in milliseconds.
+     */
+    public int getConnectTimeout(){
+        return connectTimeout;
+    }
+    
+    /**
+     * Get the read timeout used by this transport.
+     * @return the read timeout in milliseconds.
+     */
+    public int getReadTimeout(){
+        return readTimeout;
+    }
+    
+    @Override
+    public TransportResponse get(String url, Map<String, String> headers) throws IOException {
+        return get(url, headers, Deadline.none());
+    }
+    
+    @Override
+    public TransportResponse get(String url, Map<String, String> headers, Deadline deadline) throws IOException {
+        if (deadline.isExpired()){
+            throw new SocketTimeoutException("Deadline expired before connecting to " + url);
+        }
+        URLConnection conn = new URL(url).openConnection();
+        
+        conn.setConnectTimeout(deadline.boundTimeout(connectTimeout));
+        conn.setReadTimeout(deadline.boundTimeout(readTimeout));
+        conn.setUseCaches(false);
+        
+        for (Map.Entry<String, String> header : headers.entrySet()){
+            conn.setRequestProperty(header.getKey(), header.getValue());
+        }
+        
+        conn.connect();
+        
+        return new HttpResponse(conn);
+    }
+    
+    /**
+     * The response for a single request. Both the headers and the body come from
+     * the one connection that was opened in {@link HttpTransport#get(java.lang.String, java.util.Map)}.
+     */
+    private static class HttpResponse extends TransportResponse {
+        private final URLConnection conn;
+        private InputStream body;
+        
+        HttpResponse(URLConnection conn){
+            this.conn = conn;
+            this.body = null;
+        }
+        
+        @Override
+        public int getStatusCode() throws IOException {
+            if (conn instanceof HttpURLConnection){
+                return ((HttpURLConnection)conn).getResponseCode();
+            }
+            // Non HTTP URLs (e.g. file:) don't have a status, treat them as OK.
+            return HttpURLConnection.HTTP_OK;
+        }
+        
+        @Override
+        public String getHeader(String name){
+            return conn.getHeaderField(name);
+        }
+        
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null){
+                body = conn.getInputStream();
+            }
+            return body;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            InputStream in = body;
+            
+            if (in == null && conn instanceof HttpURLConnection){
+                /*
+                If the body was never opened (e.g. an error status), use the error
+                stream instead, so that the connection can be released.
+                */
+                in = ((HttpURLConnection)conn).getErrorStream();
+                if (in == null){
+                    try{
+                        in = conn.getInputStream();
+                    } catch (IOException E){
+                        in = null;
+                    }
+                }
+            }
+            /*
+            Closing the stream hands the connection back to the keep-alive pool. The
+            JDK drains any unread bytes first when that is cheap, and otherwise just
+            drops the connection.
+            */
+            if (in != null) in.close();
+        }
+        
+        @Override
+        public void abort() throws IOException {
+            if (conn instanceof HttpURLConnection){
+                // This closes the socket, which fails a read that is waiting for the status line.
+                ((HttpURLConnection)conn).disconnect();
+            } else {
+                close();
+            }
+        }
+    }
+}
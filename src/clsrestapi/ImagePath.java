@@ -16,6 +16,7 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the ImagePath object.  This object stores
@@ -23,6 +24,7 @@ import java.io.Serializable;
  * images for that client are stored.
  * @author ken
  */
+@GenerateCodec
 public class ImagePath implements Serializable, Cloneable{
     /**
      * the client ID
@@ -69,6 +71,16 @@ public class ImagePath implements Serializable, Cloneable{
                 imagePath.equals(ip.imagePath);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(clientID, imagePath);
+    }
+
     /**
      * Implement support for cloning of the ImagePath object.
      * @return Object that is a duplicate of the current instance
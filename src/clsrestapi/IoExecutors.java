@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class provides the executor that the library uses to run blocking
+ * network and resource I/O in the background, e.g. for {@link Base#loadAsync()}
+ * and the async getters in {@link ClsRestApi}.
+ * <br><br>
+ * The library is distributed as a multi-release jar. This is the Java 8 version
+ * of the class, which uses a cached pool of daemon threads. On Java 21 and later,
+ * the version in META-INF/versions/21 is loaded instead, and it runs each task
+ * on its own virtual thread, so thousands of concurrent downloads cost very little.
+ * @author Ken Lowrie
+ */
+public final class IoExecutors {
+    private static final ExecutorService IO = Executors.newCachedThreadPool(new ThreadFactory(){
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r){
+            Thread t = new Thread(r, "clsrestapi-io-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    
+    /*
+    What callers get: it only runs tasks, and can't be cast back to the pool.
+    */
+    private static final Executor VIEW = IO::execute;
+    
+    /**
+     * Get the executor used for background I/O. The executor is shared by the
+     * whole process, so it is only handed out as an {@link Executor}, which can't
+     * be shut down; a shutdown would fail every later background load.
+     * @return the shared I/O executor.
+     */
+    public static Executor get(){
+        return VIEW;
+    }
+    
+    /**
+     * Indicates whether the I/O executor runs tasks on virtual threads.
+     * @return false for the Java 8 version of the class.
+     */
+    public static boolean isVirtual(){
+        return false;
+    }
+    
+    /**
+     * Prevent the caller from constructing objects of this class.
+     */
+    private IoExecutors(){
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.stream.MalformedJsonException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class scans JSON held as UTF-8 in a {@link ByteBuffer}, without decoding it.
+ * It is what {@link LazyCatalog} uses to find the values of the catalog fields: the
+ * methods walk over the structure of the document by byte offsets, and a String is
+ * only decoded when {@link #decodeString(java.nio.ByteBuffer, int, int)} is called.
+ * All of the methods use absolute offsets, so the position of the buffer is never
+ * changed, and a buffer can be read by several threads at once.
+ * @author Ken Lowrie
+ */
+final class JsonByteScanner {
+    
+    private JsonByteScanner(){
+    }
+    
+    /**
+     * Skip whitespace.
+     * @return the offset of the next non whitespace byte, or the limit of the buffer.
+     */
+    static int skipWhitespace(ByteBuffer buf, int p){
+        int limit = buf.limit();
+        while (p < limit){
+            byte b = buf.get(p);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t'){
+                break;
+            }
+            p++;
+        }
+        return p;
+    }
+    
+    /**
+     * Expect a byte, after skipping whitespace.
+     * @return the offset just after the byte.
+     * @throws MalformedJsonException if the next byte is something else.
+     */
+    static int expect(ByteBuffer buf, int p, char c) throws MalformedJsonException {
+        p = skipWhitespace(buf, p);
+        if (p >= buf.limit() || buf.get(p) != c){
+            throw new MalformedJsonException("Expected '" + c + "' at offset " + p);
+        }
+        return p + 1;
+    }
+    
+    /**
+     * Get the byte at an offset, after skipping whitespace.
+     * @return the byte, or -1 at the end of the buffer.
+     */
+    static int peek(ByteBuffer buf, int p){
+        p = skipWhitespace(buf, p);
+        return p < buf.limit() ? buf.get(p) : -1;
+    }
+    
+    /**
+     * Find the end of the string that starts with the quote at an offset.
+     * @return the offset just after the closing quote.
+     * @throws MalformedJsonException if the string isn't closed.
+     */
+    static int skipString(ByteBuffer buf, int p) throws MalformedJsonException {
+        int limit = buf.limit();
+        for (p++; p < limit; p++){
+            byte b = buf.get(p);
+            if (b == '\\'){
+                p++;
+            } else if (b == '"'){
+                return p + 1;
+            }
+        }
+        throw new MalformedJsonException("Unterminated string");
+    }
+    
+    /**
+     * Find the end of the value that starts at an offset (after whitespace).
+     * @return the offset just after the value.
+     * @throws MalformedJsonException if the value is not complete.
+     */
+    static int skipValue(ByteBuffer buf, int p) throws MalformedJsonException {
+        p = skipWhitespace(buf, p);
+        int limit = buf.limit();
+        if (p >= limit){
+            throw new MalformedJsonException("Expected a value at offset " + p);
+        }
+        byte b = buf.get(p);
+        if (b == '"'){
+            return skipString(buf, p);
+        }
+        if (b == '{' || b == '['){
+            int depth = 0;
+            for (; p < limit; p++){
+                b = buf.get(p);
+                if (b == '"'){
+                    p = skipString(buf, p) - 1;
+                } else if (b == '{' || b == '['){
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0){
+                    return p + 1;
+                }
+            }
+            throw new MalformedJsonException("Unterminated object or array");
+        }
+        // A number or a literal runs up to the next delimiter.
+        int start = p;
+        while (p < limit){
+            b = buf.get(p);
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t'){
+                break;
+            }
+            p++;
+        }
+        if (p == start){
+            throw new MalformedJsonException("Unexpected character at offset " + p);
+        }
+        return p;
+    }
+    
+    /**
+     * Compare the name of the string token at [start, end) with a name. Names are
+     * compared byte for byte, so a name with escapes in it never matches.
+     */
+    static boolean nameEquals(ByteBuffer buf, int start, int end, byte[] name){
+        if (end - start - 2 != name.length){
+            return false;
+        }
+        for (int i = 0; i < name.length; i++){
+            if (buf.get(start + 1 + i) != name[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Decode the value token at [start, end). A string is unescaped, the null literal
+     * is returned as null, and any other value is returned as it appears, which is
+     * what Gson does when it reads a number or a boolean into a String.
+     * @throws MalformedJsonException if a string has a bad escape.
+     */
+    static String decodeString(ByteBuffer buf, int start, int end) throws MalformedJsonException {
+        if (buf.get(start) != '"'){
+            String raw = decodeRaw(buf, start, end);
+            return raw.equals("null") ? null : raw;
+        }
+        start++;
+        end--;
+        for (int p = start; p < end; p++){
+            if (buf.get(p) == '\\'){
+                return unescape(decodeRaw(buf, start, end));
+            }
+        }
+        return decodeRaw(buf, start, end);
+    }
+    
+    /**
+     * Decode the bytes at [start, end) as UTF-8, as is.
+     */
+    static String decodeRaw(ByteBuffer buf, int start, int end){
+        if (buf.hasArray()){
+            return new String(buf.array(), buf.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = buf.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static String unescape(String s) throws MalformedJsonException {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if (c != '\\'){
+                sb.append(c);
+                continue;
+            }
+            if (++i >= s.length()){
+                throw new MalformedJsonException("Bad escape in string");
+            }
+            c = s.charAt(i);
+            switch (c){
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (i + 4 >= s.length()){
+                        throw new MalformedJsonException("Bad unicode escape in string");
+                    }
+                    try {
+                        sb.append((char)Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException E){
+                        throw new MalformedJsonException("Bad unicode escape in string");
+                    }
+                    i += 4;
+                    break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
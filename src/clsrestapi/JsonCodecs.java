@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the helpers that the generated JSON codecs are built on
+ * (see {@link GenerateCodec}). The scalar readers accept the same input as
+ * Gson's built in adapters, e.g. a String field accepts a number or a boolean,
+ * and a numeric field accepts a string. A null leaves a primitive at its default.
+ * @author Ken Lowrie
+ */
+final class JsonCodecs {
+    
+    /**
+     * The adapter used for the elements of a List of Strings.
+     */
+    static final TypeAdapter<String> STRING = new TypeAdapter<String>(){
+        @Override
+        public String read(JsonReader in) throws IOException {
+            return readString(in);
+        }
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+    };
+    
+    /**
+     * Reads a value from the reader, e.g. a list element with a {@link Projection}.
+     * @param <T> The type of the value.
+     */
+    interface Reader<T> {
+        T read(JsonReader in) throws IOException;
+    }
+    
+    private JsonCodecs(){
+    }
+    
+    /**
+     * Make a reader accept the same input as Gson.fromJson(), which is lenient.
+     * JsonReader.setLenient() is deprecated as of Gson 2.11, but its replacement,
+     * setStrictness(), doesn't exist in the older versions the library still works
+     * with, so the deprecation is suppressed here, once.
+     * @param reader The reader.
+     */
+    @SuppressWarnings("deprecation")
+    static void makeLenient(JsonReader reader){
+        reader.setLenient(true);
+    }
+    
+    static String readString(JsonReader in) throws IOException {
+        switch (in.peek()){
+            case NULL: in.nextNull(); return null;
+            case BOOLEAN: return Boolean.toString(in.nextBoolean());
+            default: return in.nextString();
+        }
+    }
+    
+    static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+    
+    static long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+    
+    static double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+    
+    static boolean readBoolean(JsonReader in) throws IOException {
+        switch (in.peek()){
+            case NULL: in.nextNull(); return false;
+            case STRING: return Boolean.parseBoolean(in.nextString());
+            default: return in.nextBoolean();
+        }
+    }
+    
+    static <E> List<E> readList(JsonReader in, TypeAdapter<E> adapter) throws IOException {
+        return readList(in, adapter::read);
+    }
+    
+    static <E> List<E> readList(JsonReader in, Reader<E> reader) throws IOException {
+        if (in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return null;
+        }
+        List<E> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()){
+            list.add(reader.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+    
+    static <E> void writeList(JsonWriter out, List<E> list, TypeAdapter<E> adapter) throws IOException {
+        if (list == null){
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (E e : list){
+            adapter.write(out, e);
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.stream.MalformedJsonException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class is a read-only view of a catalog list, such as {@link ApiObjReels#reelList}
+ * or {@link ApiObjOurWork#videoList}, over the raw UTF-8 response of the server. The
+ * response is held in one {@link ByteBuffer}, which can be a direct (off-heap) buffer,
+ * and loading it only records where the value of each field starts and ends. A String
+ * is decoded from the buffer the first time its field is read, and then kept, so a UI
+ * that scrolls through a large catalog only pays for the elements it displays.
+ * Get one with {@link Reels#lazyReels(boolean)} or {@link OurWork#lazyVideos(boolean)}.
+ * <br><br>
+ * The elements are {@link LazyVideo} views, which are created on demand and are cheap;
+ * {@link LazyVideo#toVideo()} materializes an element as a model object when one is needed.
+ * A null element of the list is returned as null. The catalog is safe to read from
+ * several threads.
+ * @author Ken Lowrie
+ */
+public final class LazyCatalog extends AbstractList<LazyVideo> {
+    /* The fields recorded for each element, in the order of their slots. */
+    static final String[] FIELDS = {"title", "url", "sUrl", "hdUrl", "sdUrl", "mobileUrl",
+        "thumb", "frame", "type", "description", "roles"};
+    static final int ROLES = FIELDS.length - 1;
+    private static final byte[][] FIELD_NAMES = new byte[FIELDS.length][];
+    
+    static {
+        for (int i = 0; i < FIELDS.length; i++){
+            FIELD_NAMES[i] = FIELDS[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+    
+    private final ByteBuffer buffer;
+    private final boolean showCase;
+    private final int size;
+    /* Start and end offsets of each field of each element; a start of -1 means absent. */
+    private final int[] spans;
+    private final BitSet nulls;
+    private final String[] strings;
+    
+    private LazyCatalog(ByteBuffer buffer, boolean showCase, int size, int[] spans, BitSet nulls){
+        this.buffer = buffer;
+        this.showCase = showCase;
+        this.size = size;
+        this.spans = spans;
+        this.nulls = nulls;
+        this.strings = new String[size * FIELDS.length];
+    }
+    
+    /**
+     * Scan a response for a list in its apiObj object, and record the offsets of the
+     * fields of its elements. If there is no such list, the catalog is empty.
+     * @param buffer The response.
+     * @param listName The name of the list in the apiObj object.
+     * @param showCase true if the elements are {@link ShowCaseVideo} objects.
+     * @return The catalog.
+     * @throws MalformedJsonException if the response is not valid JSON.
+     */
+    static LazyCatalog scan(ByteBuffer buffer, String listName, boolean showCase) throws MalformedJsonException {
+        byte[] apiObjName = "apiObj".getBytes(StandardCharsets.UTF_8);
+        byte[] listNameBytes = listName.getBytes(StandardCharsets.UTF_8);
+        int[] spans = new int[0];
+        BitSet nulls = new BitSet();
+        int count = 0;
+        
+        int p = findMember(buffer, 0, apiObjName, '{');
+        if (p >= 0){
+            p = findMember(buffer, p, listNameBytes, '[');
+        }
+        if (p >= 0){
+            p = JsonByteScanner.expect(buffer, p, '[');
+            spans = new int[16 * FIELDS.length * 2];
+            
+            if (JsonByteScanner.peek(buffer, p) == ']'){
+                p = JsonByteScanner.expect(buffer, p, ']');
+            } else {
+                while (true){
+                    if (spans.length < (count + 1) * FIELDS.length * 2){
+                        spans = Arrays.copyOf(spans, spans.length * 2);
+                    }
+                    int base = count * FIELDS.length * 2;
+                    Arrays.fill(spans, base, base + FIELDS.length * 2, -1);
+                    
+                    if (JsonByteScanner.peek(buffer, p) == '{'){
+                        p = scanElement(buffer, p, spans, base);
+                    } else {
+                        int start = JsonByteScanner.skipWhitespace(buffer, p);
+                        p = JsonByteScanner.skipValue(buffer, start);
+                        if (!JsonByteScanner.decodeRaw(buffer, start, p).equals("null")){
+                            throw new MalformedJsonException("Expected an object at offset " + start);
+                        }
+                        nulls.set(count);
+                    }
+                    count++;
+                    
+                    if (JsonByteScanner.peek(buffer, p) == ','){
+                        p = JsonByteScanner.expect(buffer, p, ',');
+                    } else {
+                        p = JsonByteScanner.expect(buffer, p, ']');
+                        break;
+                    }
+                }
+            }
+        }
+        return new LazyCatalog(buffer, showCase, count, Arrays.copyOf(spans, count * FIELDS.length * 2), nulls);
+    }
+    
+    /**
+     * Find a member of the object that starts at an offset, whose value starts with
+     * the given byte. The object is only scanned up to that member.
+     * @return the offset of the value, or -1 if there is no such member.
+     */
+    private static int findMember(ByteBuffer buf, int p, byte[] name, char open) throws MalformedJsonException {
+        p = JsonByteScanner.expect(buf, p, '{');
+        if (JsonByteScanner.peek(buf, p) == '}'){
+            return -1;
+        }
+        while (true){
+            int nameStart = JsonByteScanner.skipWhitespace(buf, p);
+            int nameEnd = JsonByteScanner.skipString(buf, JsonByteScanner.expect(buf, nameStart, '"') - 1);
+            p = JsonByteScanner.expect(buf, nameEnd, ':');
+            if (JsonByteScanner.nameEquals(buf, nameStart, nameEnd, name) && JsonByteScanner.peek(buf, p) == open){
+                return p;
+            }
+            p = JsonByteScanner.skipValue(buf, p);
+            if (JsonByteScanner.peek(buf, p) != ','){
+                JsonByteScanner.expect(buf, p, '}');
+                return -1;
+            }
+            p = JsonByteScanner.expect(buf, p, ',');
+        }
+    }
+    
+    /**
+     * Record the offsets of the fields of the element object that starts at an offset.
+     * @return the offset just after the element.
+     */
+    private static int scanElement(ByteBuffer buf, int p, int[] spans, int base) throws MalformedJsonException {
+        p = JsonByteScanner.expect(buf, p, '{');
+        if (JsonByteScanner.peek(buf, p) == '}'){
+            return JsonByteScanner.expect(buf, p, '}');
+        }
+        while (true){
+            int nameStart = JsonByteScanner.skipWhitespace(buf, p);
+            int nameEnd = JsonByteScanner.skipString(buf, JsonByteScanner.expect(buf, nameStart, '"') - 1);
+            int valueStart = JsonByteScanner.skipWhitespace(buf, JsonByteScanner.expect(buf, nameEnd, ':'));
+            p = JsonByteScanner.skipValue(buf, valueStart);
+            
+            for (int i = 0; i < FIELDS.length; i++){
+                if (JsonByteScanner.nameEquals(buf, nameStart, nameEnd, FIELD_NAMES[i])){
+                    spans[base + i * 2] = valueStart;
+                    spans[base + i * 2 + 1] = p;
+                    break;
+                }
+            }
+            if (JsonByteScanner.peek(buf, p) != ','){
+                return JsonByteScanner.expect(buf, p, '}');
+            }
+            p = JsonByteScanner.expect(buf, p, ',');
+        }
+    }
+    
+    /**
+     * Get the view of an element. The view is created on each call; it holds no data
+     * of its own.
+     * @param index The index of the element.
+     * @return The view, or null if the element is null.
+     */
+    @Override
+    public LazyVideo get(int index){
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return nulls.get(index) ? null : new LazyVideo(this, index);
+    }
+    
+    @Override
+    public int size(){
+        return size;
+    }
+    
+    /**
+     * Check if the elements of this catalog are {@link ShowCaseVideo} objects.
+     * @return true for the videoList of {@link OurWork}, false for the reelList of {@link Reels}.
+     */
+    public boolean isShowCase(){
+        return showCase;
+    }
+    
+    /**
+     * Check if the response is held in a direct (off-heap) buffer.
+     * @return true if the buffer is direct.
+     */
+    public boolean isDirect(){
+        return buffer.isDirect();
+    }
+    
+    /**
+     * Get the size of the response held by this catalog.
+     * @return The number of bytes in the buffer.
+     */
+    public int getBufferSize(){
+        return buffer.limit();
+    }
+    
+    /**
+     * Get the number of Strings that have been decoded from the buffer so far.
+     * @return The number of fields that have been read at least once.
+     */
+    public int getDecodedCount(){
+        int n = 0;
+        for (String s : strings){
+            if (s != null){
+                n++;
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Check if an element has a field.
+     */
+    boolean has(int index, int field){
+        return spans[(index * FIELDS.length + field) * 2] >= 0;
+    }
+    
+    /**
+     * Get a String field of an element, decoding it the first time.
+     */
+    String string(int index, int field){
+        int slot = index * FIELDS.length + field;
+        String s = strings[slot];
+        if (s == null && spans[slot * 2] >= 0){
+            s = decode(slot, true);
+            /*
+            Racing threads decode the same value, so whichever write wins is fine.
+            */
+            strings[slot] = s;
+        }
+        return s;
+    }
+    
+    /**
+     * Get the raw JSON of a field of an element, e.g. the roles object.
+     */
+    String raw(int index, int field){
+        int slot = index * FIELDS.length + field;
+        return spans[slot * 2] < 0 ? null : decode(slot, false);
+    }
+    
+    private String decode(int slot, boolean unquote){
+        int start = spans[slot * 2];
+        int end = spans[slot * 2 + 1];
+        if (!unquote){
+            return JsonByteScanner.decodeRaw(buffer, start, end);
+        }
+        try {
+            return JsonByteScanner.decodeString(buffer, start, end);
+        } catch (MalformedJsonException E){
+            throw new IllegalStateException("Bad string at offset " + start, E);
+        }
+    }
+}
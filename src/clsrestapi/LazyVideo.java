@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * This class is a view of one element of a {@link LazyCatalog}. It holds no data of
+ * its own: each getter decodes its field from the buffer of the catalog the first time
+ * it is called, and returns the same String after that. The getters return null for a
+ * field that is missing from the element, just like the fields of {@link Video}
+ * and {@link ShowCaseVideo}. The {@link ShowCaseVideo} getters return null for the
+ * elements of a reelList.
+ * @author Ken Lowrie
+ */
+public final class LazyVideo {
+    private final LazyCatalog catalog;
+    private final int index;
+    
+    LazyVideo(LazyCatalog catalog, int index){
+        this.catalog = catalog;
+        this.index = index;
+    }
+    
+    /**
+     * Get the index of this element in the catalog.
+     * @return The index.
+     */
+    public int getIndex(){
+        return index;
+    }
+    
+    /**
+     * @return The title of the video, see {@link Video#title}.
+     */
+    public String getTitle(){
+        return catalog.string(index, 0);
+    }
+    
+    /**
+     * @return The URL of the video, see {@link Video#url}.
+     */
+    public String getUrl(){
+        return catalog.string(index, 1);
+    }
+    
+    /**
+     * @return The streaming URL of the video, see {@link Video#sUrl}.
+     */
+    public String getSUrl(){
+        return catalog.string(index, 2);
+    }
+    
+    /**
+     * @return The HD URL of the video, see {@link Video#hdUrl}.
+     */
+    public String getHdUrl(){
+        return catalog.string(index, 3);
+    }
+    
+    /**
+     * @return The SD URL of the video, see {@link Video#sdUrl}.
+     */
+    public String getSdUrl(){
+        return catalog.string(index, 4);
+    }
+    
+    /**
+     * @return The mobile URL of the video, see {@link Video#mobileUrl}.
+     */
+    public String getMobileUrl(){
+        return catalog.string(index, 5);
+    }
+    
+    /**
+     * @return The URL of the thumbnail of the video, see {@link Video#thumb}.
+     */
+    public String getThumb(){
+        return catalog.string(index, 6);
+    }
+    
+    /**
+     * @return The URL of the poster frame of the video, see {@link Video#frame}.
+     */
+    public String getFrame(){
+        return catalog.string(index, 7);
+    }
+    
+    /**
+     * @return The type of the video, see {@link ShowCaseVideo#type}.
+     */
+    public String getType(){
+        return catalog.isShowCase() ? catalog.string(index, 8) : null;
+    }
+    
+    /**
+     * @return The description of the video, see {@link ShowCaseVideo#description}.
+     */
+    public String getDescription(){
+        return catalog.isShowCase() ? catalog.string(index, 9) : null;
+    }
+    
+    /**
+     * Get the roles of the video, see {@link ShowCaseVideo#roles}. The roles are
+     * parsed from the buffer on each call, so keep the result if it is needed again.
+     * @return A new {@link Roles} object, or null.
+     */
+    public Roles getRoles(){
+        String json = catalog.isShowCase() ? catalog.raw(index, LazyCatalog.ROLES) : null;
+        if (json == null){
+            return null;
+        }
+        try {
+            JsonReader reader = new JsonReader(new StringReader(json));
+            JsonCodecs.makeLenient(reader);
+            return RolesCodec.readJson(reader);
+        } catch (IOException E){
+            throw new UncheckedIOException(E);
+        }
+    }
+    
+    /**
+     * Materialize this element as a model object, decoding all of its fields.
+     * @return A new {@link ShowCaseVideo} for the elements of a videoList, and a new
+     * {@link Video} for the elements of a reelList.
+     */
+    public Video toVideo(){
+        Video v;
+        if (catalog.isShowCase()){
+            ShowCaseVideo scv = new ShowCaseVideo();
+            scv.type = getType();
+            scv.description = getDescription();
+            scv.roles = getRoles();
+            v = scv;
+        } else {
+            v = new Video();
+        }
+        v.title = getTitle();
+        v.url = getUrl();
+        v.sUrl = getSUrl();
+        v.hdUrl = getHdUrl();
+        v.sdUrl = getSdUrl();
+        v.mobileUrl = getMobileUrl();
+        v.thumb = getThumb();
+        v.frame = getFrame();
+        return v;
+    }
+    
+    @Override
+    public String toString(){
+        return "LazyVideo[" + index + "]: " + getTitle();
+    }
+}
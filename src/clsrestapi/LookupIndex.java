@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * This class is an immutable hash index over a list of model objects, e.g. the
+ * apiList of {@link ApiObjVersions}, keyed by a String field of the elements. The
+ * first element with a key wins, which is what a linear scan of the list returns.
+ * Elements that are null, or have a null key, are not indexed.
+ * <br><br>
+ * The model objects build the index the first time a lookup is made, and keep it
+ * in a transient field. The index remembers the list it was built from, and its size,
+ * so it is rebuilt when the list field is replaced, e.g. by a reload or the
+ * {@link Compactor}, or when elements are added to or removed from the list.
+ * <b>Other changes are not seen</b>: an element that is replaced with
+ * {@link List#set(int, java.lang.Object)}, or whose key field is changed, keeps its
+ * old entry. Code that edits the list that way must assign a new list to the field.
+ * The public lookup methods of the model classes repeat this.
+ * @author Ken Lowrie
+ * @param <V> The class of the indexed values.
+ */
+final class LookupIndex<V> {
+    private final List<?> source;
+    private final int sourceSize;
+    private final Map<String, V> values;
+    
+    private LookupIndex(List<?> source, Map<String, V> values){
+        this.source = source;
+        this.sourceSize = source == null ? 0 : source.size();
+        this.values = values;
+    }
+    
+    /**
+     * Build an index over a list.
+     * @param <E> The class of the list elements.
+     * @param <V> The class of the indexed values.
+     * @param list The list, which can be null.
+     * @param key Gets the key of an element.
+     * @param value Gets the value to index for an element.
+     * @return The index.
+     */
+    static <E, V> LookupIndex<V> build(List<E> list, Function<E, String> key, Function<E, V> value){
+        Map<String, V> values = new HashMap<>();
+        if (list != null){
+            for (E element : list){
+                if (element != null){
+                    String k = key.apply(element);
+                    if (k != null){
+                        values.putIfAbsent(k, value.apply(element));
+                    }
+                }
+            }
+        }
+        return new LookupIndex<>(list, Collections.unmodifiableMap(values));
+    }
+    
+    /**
+     * Check if this index is current for a list.
+     * @param list The list.
+     * @return true if the index was built from that very list, and the list still
+     * has the same size.
+     */
+    boolean isOf(List<?> list){
+        return source == list && (list == null || list.size() == sourceSize);
+    }
+    
+    /**
+     * Look up a key.
+     * @param key The key.
+     * @return The value for the key, or null if there is none.
+     */
+    V get(String key){
+        return values.get(key);
+    }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a {@link Cache} that keeps all of its items in a single data file,
+ * instead of a file per item. The file is mapped into memory, so {@link #itemExists(java.lang.String)}
+ * is a lookup in a small in-memory index, and {@link #readItem(java.lang.String)} returns
+ * a slice of the mapped pages, which the API objects are decoded from without
+ * copying them to the heap. Opening a warm cache costs one file open and one mmap,
+ * instead of a file open and a full read for each API. To use it for the "objects"
+ * cache of {@link ClsRestApi}, see {@link ClsRestApi#setMappedCache(boolean)}.
+ * <br><br>
+ * The data file is append-only: writing or removing an item appends a record, and the
+ * older record of the item becomes dead space. The index (the offset and length of
+ * each live item) isn't stored separately; it is rebuilt by scanning the record
+ * headers when the cache is opened. Each record has a checksum, so a record that was
+ * torn by a crash is dropped, along with anything after it. The file is mapped with
+ * room to grow, so most writes don't have to map it again; the unused end of the file
+ * is zeros, which the scan stops at like a torn record. When more than half of
+ * the file is dead, it is compacted in the background: the live items are copied to
+ * a new file, which atomically replaces the old one. Readers are never blocked, and
+ * the buffers they already have stay valid.
+ * <br><br>
+ * Only one instance per directory can be open in a process, see {@link #open(java.lang.String, java.lang.String...)},
+ * and only one process can have it open at once. Files that the plain {@link Cache}
+ * left in the directory are imported when the data file is first created.
+ * @author Ken Lowrie
+ */
+public final class MappedCache extends Cache implements Closeable {
+    /**
+     * The name of the data file in the cache directory.
+     */
+    public static final String STORE_NAME = "store.dat";
+    
+    private static final String LOCK_NAME = "store.lock";
+    private static final int MAGIC = 0x434C534D;        // "CLSM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;           // magic, version
+    private static final int RECORD_HEADER_SIZE = 12;   // key length, value length, checksum
+    private static final int REMOVED = -1;              // the value length of a removed item
+    private static final long MIN_COMPACT_SIZE = 64 * 1024;
+    private static final long MIN_HEADROOM = 64 * 1024;
+    
+    /* The open caches by directory. Guarded by OPEN. */
+    private static final Map<Path, MappedCache> OPEN = new HashMap<>();
+    
+    /**
+     * The state that readers see. It is replaced as a whole, so the index always
+     * matches the mapping.
+     */
+    private static final class Snapshot {
+        final MappedByteBuffer map;
+        /* The offset of the value of each live item, shifted left by 32, or'ed with its length. */
+        final Map<String, Long> index;
+        final long size;
+        final long dead;
+        
+        Snapshot(MappedByteBuffer map, Map<String, Long> index, long size, long dead){
+            this.map = map;
+            this.index = index;
+            this.size = size;
+            this.dead = dead;
+        }
+    }
+    
+    private final Path file;
+    private final Path dir;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    /* The channel of the data file. Guarded by this, like every change to the file. */
+    private FileChannel channel;
+    private boolean compacting;
+    private boolean closed;
+    private volatile Snapshot snap;
+    
+    private final AtomicLong maps = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong compactionFailures = new AtomicLong();
+    
+    private MappedCache(Path dir, String cacheDir, String ... subCacheDir) throws IOException {
+        super(cacheDir, subCacheDir);
+        this.dir = dir;
+        this.file = getPath().resolve(STORE_NAME);
+        this.lockChannel = FileChannel.open(getPath().resolve(LOCK_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock l = null;
+        try {
+            l = lockChannel.tryLock();
+        } finally {
+            if (l == null){
+                lockChannel.close();
+            }
+        }
+        if (l == null){
+            throw new IOException("The cache is in use by another process: " + getDir());
+        }
+        this.lock = l;
+        
+        try {
+            boolean created = !Files.exists(file);
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.snap = scan();
+            if (created){
+                importFiles();
+            }
+        } catch (IOException | RuntimeException E){
+            close();
+            throw E;
+        }
+    }
+    
+    /**
+     * Open the cache in a directory, or return the instance that is already open in
+     * this process. The directory is created if it doesn't exist.
+     * @param cacheDir The cache directory.
+     * @param subCacheDir The sub directories, if any.
+     * @return The cache.
+     * @throws IOException if the directory or the data file can't be created or read,
+     * or another process has the cache open.
+     */
+    public static MappedCache open(String cacheDir, String ... subCacheDir) throws IOException {
+        Path dir = (subCacheDir == null ? Paths.get(cacheDir) : Paths.get(cacheDir, subCacheDir)).toAbsolutePath().normalize();
+        
+        synchronized (OPEN){
+            MappedCache cache = OPEN.get(dir);
+            if (cache == null){
+                cache = new MappedCache(dir, cacheDir, subCacheDir);
+                OPEN.put(dir, cache);
+            }
+            return cache;
+        }
+    }
+    
+    /*
+    Map the data file and build the index from the record headers. A file in another
+    format is started over, and a torn record at the end is cut off, which is safe
+    because no one has mapped the file yet.
+    */
+    private Snapshot scan() throws IOException {
+        long size = channel.size();
+        MappedByteBuffer map = size < HEADER_SIZE || size > Integer.MAX_VALUE ? null : map(size);
+        
+        if (map == null || map.getInt(0) != MAGIC || map.getInt(4) != VERSION){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            size = write(channel, header, 0);
+            map = map(size);
+        }
+        Map<String, Long> index = new HashMap<>();
+        long dead = 0;
+        int p = HEADER_SIZE;
+        
+        while (p + RECORD_HEADER_SIZE <= size){
+            int keyLen = map.getInt(p);
+            int valueLen = map.getInt(p + 4);
+            long end = (long)p + RECORD_HEADER_SIZE + keyLen + Math.max(valueLen, 0);
+            /*
+            Every record has a key, so a key length of 0 is the zeroed headroom at the
+            end of the file, whose checksum would otherwise match.
+            */
+            if (keyLen <= 0 || valueLen < REMOVED || end > size
+                    || map.getInt(p + 8) != checksum(map, p + RECORD_HEADER_SIZE, (int)(end - p - RECORD_HEADER_SIZE))){
+                break;
+            }
+            ByteBuffer keyBytes = slice(map, p + RECORD_HEADER_SIZE, keyLen);
+            String key = StandardCharsets.UTF_8.decode(keyBytes).toString();
+            Long old = valueLen == REMOVED ? index.remove(key) : index.put(key, slot(p + RECORD_HEADER_SIZE + keyLen, valueLen));
+            if (old != null){
+                dead += RECORD_HEADER_SIZE + keyLen + length(old);
+            }
+            if (valueLen == REMOVED){
+                dead += end - p;
+            }
+            p = (int)end;
+        }
+        if (p < size){
+            channel.truncate(p);
+        }
+        return new Snapshot(map(channel, p), Collections.unmodifiableMap(index), p, dead);
+    }
+    
+    /*
+    Copy the files of the plain Cache into the data file, so switching to this cache
+    doesn't send every API back to the network.
+    */
+    private void importFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getPath())){
+            for (Path f : files){
+                String name = f.getFileName().toString();
+                if (Files.isRegularFile(f) && !name.startsWith("store.") && !name.endsWith(".tmp")){
+                    synchronized (this){
+                        append(name, ByteBuffer.wrap(Files.readAllBytes(f)));
+                    }
+                }
+            }
+        }
+    }
+    
+    private MappedByteBuffer map(long size) throws IOException {
+        maps.incrementAndGet();
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    
+    /*
+    Map a data file whose records end at an offset, with room for the file to grow
+    by half, and at least MIN_HEADROOM. The channel is writable, so mapping past its
+    end extends the file with zeros.
+    */
+    private MappedByteBuffer map(FileChannel ch, long end) throws IOException {
+        long size = Math.min(Integer.MAX_VALUE, end + Math.max(MIN_HEADROOM, end / 2));
+        maps.incrementAndGet();
+        return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    
+    private static long slot(int offset, int length){
+        return ((long)offset << 32) | (length & 0xFFFFFFFFL);
+    }
+    
+    private static int offset(long slot){
+        return (int)(slot >>> 32);
+    }
+    
+    private static int length(long slot){
+        return (int)slot;
+    }
+    
+    private static ByteBuffer slice(ByteBuffer buf, int offset, int length){
+        ByteBuffer b = buf.duplicate();
+        b.position(offset);
+        b.limit(offset + length);
+        return b.slice();
+    }
+    
+    private static int checksum(ByteBuffer buf, int offset, int length){
+        CRC32 crc = new CRC32();
+        crc.update(slice(buf, offset, length));
+        return (int)crc.getValue();
+    }
+    
+    private static long write(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()){
+            position += ch.write(buf, position);
+        }
+        return position;
+    }
+    
+    /*
+    Write a record at the end of a file. The value is null for a removed item.
+    Returns the offset just past the record.
+    */
+    private static long writeRecord(FileChannel ch, long position, byte[] key, ByteBuffer value) throws IOException {
+        int valueLen = value == null ? REMOVED : value.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        if (value != null){
+            crc.update(value.duplicate());
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length);
+        header.putInt(key.length).putInt(valueLen).putInt((int)crc.getValue()).put(key).flip();
+        
+        position = write(ch, header, position);
+        if (value != null){
+            position = write(ch, value.duplicate(), position);
+        }
+        return position;
+    }
+    
+    /*
+    Append a record for an item and publish the new index. The file is only mapped
+    again when the record doesn't fit in the current mapping. Otherwise the record is
+    seen through it, since a mapping and the writes to its file share the pages of the
+    file (the unified page cache of the platforms Java runs on). The caller holds the
+    lock of this cache.
+    */
+    private void append(String itemName, ByteBuffer value) throws IOException {
+        if (closed){
+            throw new IOException("The cache is closed: " + getDir());
+        }
+        if (itemName.isEmpty()){
+            throw new IOException("The item name is empty");
+        }
+        Snapshot s = snap;
+        byte[] key = itemName.getBytes(StandardCharsets.UTF_8);
+        long end = s.size + RECORD_HEADER_SIZE + key.length + (value == null ? 0 : value.remaining());
+        if (end > Integer.MAX_VALUE){
+            throw new IOException("The cache is full: " + getDir());
+        }
+        writeRecord(channel, s.size, key, value);
+        MappedByteBuffer map = end <= s.map.capacity() ? s.map : map(channel, end);
+        
+        Map<String, Long> index = new HashMap<>(s.index);
+        Long old;
+        long dead = s.dead;
+        if (value == null){
+            old = index.remove(itemName);
+            dead += RECORD_HEADER_SIZE + key.length;
+        } else {
+            old = index.put(itemName, slot((int)s.size + RECORD_HEADER_SIZE + key.length, value.remaining()));
+        }
+        if (old != null){
+            dead += RECORD_HEADER_SIZE + key.length + length(old);
+        }
+        snap = new Snapshot(map, Collections.unmodifiableMap(index), end, dead);
+    }
+    
+    /*
+    Write the given items of the current file to a new file, and atomically replace
+    the current file with it. The caller holds the lock of this cache. Readers keep
+    using the old mapping, which stays valid after the file was replaced.
+    */
+    private void rewrite(Map<String, Long> keep) throws IOException {
+        Snapshot s = snap;
+        Path tmp = Files.createTempFile(getPath(), STORE_NAME + ".", ".tmp");
+        FileChannel ch = null;
+        
+        try {
+            Map<String, Long> index = new HashMap<>();
+            long size;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)){
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                size = write(out, header, 0);
+                for (Map.Entry<String, Long> e : keep.entrySet()){
+                    byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    long slot = e.getValue();
+                    index.put(e.getKey(), slot((int)size + RECORD_HEADER_SIZE + key.length, length(slot)));
+                    size = writeRecord(out, size, key, slice(s.map, offset(slot), length(slot)));
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException E){
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+            
+            ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer map = map(ch, size);
+            channel.close();
+            channel = ch;
+            ch = null;
+            snap = new Snapshot(map, Collections.unmodifiableMap(index), size, 0);
+        } finally {
+            if (ch != null){
+                ch.close();
+            }
+            if (tmp != null){
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+    
+    /*
+    Start a background compaction if more than half of the file is dead. The caller
+    holds the lock of this cache.
+    */
+    private void maybeCompact(){
+        Snapshot s = snap;
+        if (!compacting && !closed && s.size >= MIN_COMPACT_SIZE && s.dead * 2 > s.size){
+            compacting = true;
+            IoExecutors.get().execute(this::compact);
+        }
+    }
+    
+    /**
+     * Copy the live items to a new data file, dropping the dead space. This normally
+     * runs in the background when more than half of the file is dead. Writers wait
+     * for it to finish; readers don't.
+     * @return true if the file was compacted.
+     */
+    public synchronized boolean compact(){
+        try {
+            if (closed){
+                return false;
+            }
+            rewrite(snap.index);
+            compactions.incrementAndGet();
+            return true;
+        } catch (IOException E){
+            compactionFailures.incrementAndGet();
+            return false;
+        } finally {
+            compacting = false;
+        }
+    }
+    
+    @Override
+    public boolean itemExists(String itemName){
+        return snap.index.containsKey(itemName);
+    }
+    
+    /**
+     * Read the contents of an item. The buffer is a read-only slice of the mapped
+     * data file, and it stays valid after the item is replaced or the file is compacted.
+     * @param itemName The name of the item.
+     * @return A buffer with the contents of the item.
+     * @throws CRAException if the item doesn't exist.
+     */
+    @Override
+    public ByteBuffer readItem(String itemName) throws CRAException {
+        Snapshot s = snap;
+        Long slot = s.index.get(itemName);
+        
+        if (slot == null){
+            throw new CRAException("The item is not in the cache: " + itemName);
+        }
+        return slice(s.map, offset(slot), length(slot));
+    }
+    
+    /**
+     * Write the contents of an item, replacing it if it exists. The item is appended
+     * to the data file, and readers see either the old contents or the new ones.
+     * @param itemName The name of the item.
+     * @param bytes The new contents.
+     * @throws CRAException if the item can't be written.
+     */
+    @Override
+    public synchronized void writeItem(String itemName, byte[] bytes) throws CRAException {
+        try {
+            append(itemName, ByteBuffer.wrap(bytes));
+        } catch (IOException E){
+            throw new CRAException("Unable to write [" + itemName + "] to the cache: " + E.getMessage());
+        }
+        maybeCompact();
+    }
+    
+    @Override
+    public synchronized boolean removeItem(String itemName){
+        if (!snap.index.containsKey(itemName)){
+            return false;
+        }
+        try {
+            append(itemName, null);
+        } catch (IOException E){
+            return false;
+        }
+        maybeCompact();
+        return true;
+    }
+    
+    /**
+     * Remove every item from the cache. The data file is replaced with an empty one.
+     * @return true if the cache was emptied.
+     */
+    @Override
+    public synchronized boolean flush(){
+        try {
+            if (closed){
+                return false;
+            }
+            rewrite(Collections.<String, Long>emptyMap());
+            return true;
+        } catch (IOException E){
+            return false;
+        }
+    }
+    
+    /**
+     * Close the cache and delete its directory.
+     * @return true if the directory was deleted.
+     */
+    @Override
+    public boolean remove(){
+        close();
+        return super.remove();
+    }
+    
+    /**
+     * Close the data file and release it for other processes. Buffers that were
+     * returned by {@link #readItem(java.lang.String)} stay valid, but the items can't
+     * be written anymore, and the next {@link #open(java.lang.String, java.lang.String...)}
+     * of the directory opens it again.
+     */
+    @Override
+    public void close(){
+        synchronized (OPEN){
+            if (OPEN.get(dir) == this){
+                OPEN.remove(dir);
+            }
+        }
+        synchronized (this){
+            if (closed){
+                return;
+            }
+            closed = true;
+            try {
+                if (channel != null){
+                    channel.close();
+                }
+                lock.release();
+            } catch (IOException E){
+                /* The channels are closed below, which releases the lock anyway. */
+            }
+            try {
+                lockChannel.close();
+            } catch (IOException E){
+                /* Nothing more we can do. */
+            }
+        }
+    }
+    
+    /**
+     * Get the number of items in the cache.
+     * @return the item count.
+     */
+    public int getItemCount(){
+        return snap.index.size();
+    }
+    
+    /**
+     * Get the size of the records in the data file. The file itself is larger, by
+     * the room it has to grow.
+     * @return the size in bytes.
+     */
+    public long getFileSize(){
+        return snap.size;
+    }
+    
+    /**
+     * Get the size of the current mapping of the data file, which is the size the
+     * records can grow to before the file is mapped again.
+     * @return the size in bytes.
+     */
+    public long getMappedSize(){
+        return snap.map.capacity();
+    }
+    
+    /**
+     * Get the number of times the data file was mapped.
+     * @return the number of mappings.
+     */
+    public long getMaps(){
+        return maps.get();
+    }
+    
+    /**
+     * Get the bytes of the data file that hold replaced or removed items, which the
+     * next compaction drops.
+     * @return the dead bytes.
+     */
+    public long getDeadBytes(){
+        return snap.dead;
+    }
+    
+    /**
+     * Get the number of times the data file was compacted.
+     * @return the number of compactions.
+     */
+    public long getCompactions(){
+        return compactions.get();
+    }
+    
+    /**
+     * Get the number of compactions that failed, e.g. because the data file couldn't
+     * be replaced while it was mapped, which some platforms don't allow.
+     * @return the number of failed compactions.
+     */
+    public long getCompactionFailures(){
+        return compactionFailures.get();
+    }
+    
+    /**
+     * Generates a printable version of the cache metrics.
+     * @return String - This is a formatted version of the metrics.
+     */
+    @Override
+    public String toString(){
+        Snapshot s = snap;
+        String str;
+        
+        str = "\titems: " + s.index.size() + Constants.NL +
+              "\tfileSize: " + s.size + Constants.NL +
+              "\tmappedSize: " + s.map.capacity() + Constants.NL +
+              "\tdeadBytes: " + s.dead + Constants.NL +
+              "\tmaps: " + getMaps() + Constants.NL +
+              "\tcompactions: " + getCompactions() + Constants.NL +
+              "\tcompactionFailures: " + getCompactionFailures() + Constants.NL;
+        
+        return str;
+    }
+}
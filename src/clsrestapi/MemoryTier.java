@@ -0,0 +1,444 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is an in-memory cache of loaded API objects, shared by every
+ * {@link ClsRestApi} instance in the process, in front of the cache on disk. Turn
+ * it on with {@link ClsRestApi#setMemoryTier(clsrestapi.MemoryTier)}. An instance that
+ * needs an API the tier holds at the current version gets the object that is already
+ * in memory, instead of reading and decoding the cache file again.
+ * <br><br>
+ * Entries are keyed by the web host, the API name and the {@link ApiVer} of the
+ * object, so a new version on the server is never hidden by the tier, and by how the
+ * object was compacted (see {@link Compactor}). An object is compacted before it is
+ * added, and the objects are shared, so they must be treated as read-only.
+ * <br><br>
+ * The tier is bounded by weight rather than by the number of entries. Each object is
+ * weighed by the size of its cache encoding (see {@link CacheCodec}), which grows with
+ * the strings and lists the object holds; the objects themselves take a few times
+ * more heap than that. Two eviction policies are available:
+ * <ul>
+ * <li>{@link Eviction#LRU} evicts the least recently used entries;</li>
+ * <li>{@link Eviction#W_TINY_LFU} keeps new entries in a small LRU window, and only
+ * admits them to the main part of the cache if they are used more often than the
+ * entry that would be evicted for them. Use counts are kept in a small sketch that
+ * is halved periodically, so old popularity fades. A hit counts as a use, and so
+ * does adding an entry, which usually follows a miss. A one-off load of a big API
+ * then can't push out the APIs that are used all the time.</li>
+ * </ul>
+ * @author Ken Lowrie
+ */
+public final class MemoryTier {
+    /**
+     * The eviction policies.
+     */
+    public enum Eviction {
+        /** Evict the least recently used entries. */
+        LRU,
+        /** Window TinyLFU: admit entries to the main cache by their use frequency. */
+        W_TINY_LFU
+    }
+    
+    /**
+     * The default maximum weight, 16 MB.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 16L * 1024 * 1024;
+    
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    
+    /**
+     * An entry, linked into one of the LRU queues.
+     */
+    private static final class Node {
+        final String key;
+        Object value;
+        long weight;
+        int queue;
+        Node prev;
+        Node next;
+        
+        Node(String key, Object value, long weight){
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+    
+    /**
+     * A queue of entries, least recently used first.
+     */
+    private static final class Queue {
+        Node head;
+        Node tail;
+        long weight;
+        
+        void addLast(Node n){
+            n.prev = tail;
+            n.next = null;
+            if (tail == null){
+                head = n;
+            } else {
+                tail.next = n;
+            }
+            tail = n;
+            weight += n.weight;
+        }
+        
+        void remove(Node n){
+            if (n.prev == null){
+                head = n.next;
+            } else {
+                n.prev.next = n.next;
+            }
+            if (n.next == null){
+                tail = n.prev;
+            } else {
+                n.next.prev = n.prev;
+            }
+            n.prev = null;
+            n.next = null;
+            weight -= n.weight;
+        }
+        
+        void clear(){
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+    
+    /**
+     * A count-min sketch of how often each key was used, with 4 bit counters.
+     */
+    private static final class FrequencySketch {
+        private static final int SIZE = 1024;
+        private static final int[] SEEDS = {0x97cb3127, 0xb7dd5e4d, 0x2b3c5f59, 0x5c9fa2a1};
+        private final byte[] counts = new byte[SIZE];
+        private int additions;
+        
+        private static int index(int hash, int i){
+            int h = (hash ^ SEEDS[i]) * 0x9e3779b9;
+            return (h ^ (h >>> 16)) & (SIZE - 1);
+        }
+        
+        void increment(String key){
+            int hash = key.hashCode();
+            for (int i = 0; i < SEEDS.length; i++){
+                int idx = index(hash, i);
+                if (counts[idx] < 15){
+                    counts[idx]++;
+                }
+            }
+            if (++additions == 10 * SIZE){
+                /* Age the counts, so the sketch follows changes in popularity. */
+                for (int i = 0; i < SIZE; i++){
+                    counts[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+        
+        int frequency(String key){
+            int hash = key.hashCode();
+            int min = 15;
+            for (int i = 0; i < SEEDS.length; i++){
+                min = Math.min(min, counts[index(hash, i)]);
+            }
+            return min;
+        }
+    }
+    
+    private final long maxWeight;
+    private final Eviction eviction;
+    private final long windowMax;
+    private final long protectedMax;
+    
+    /* Everything below is guarded by this. */
+    private final Map<String, Node> entries = new HashMap<>();
+    private final Queue[] queues = {new Queue(), new Queue(), new Queue()};
+    private final FrequencySketch sketch;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    
+    /**
+     * Create a tier with the default maximum weight and LRU eviction.
+     */
+    public MemoryTier(){
+        this(DEFAULT_MAX_WEIGHT, Eviction.LRU);
+    }
+    
+    /**
+     * Create a tier.
+     * @param maxWeight The maximum total weight of the entries, in bytes of the cache encoding.
+     * @param eviction The eviction policy.
+     */
+    public MemoryTier(long maxWeight, Eviction eviction){
+        if (maxWeight < 1){
+            throw new IllegalArgumentException("The maximum weight must be at least 1");
+        }
+        if (eviction == null){
+            throw new IllegalArgumentException("The eviction policy is required");
+        }
+        this.maxWeight = maxWeight;
+        this.eviction = eviction;
+        this.windowMax = Math.max(1, maxWeight / 100);
+        this.protectedMax = (maxWeight - windowMax) * 4 / 5;
+        this.sketch = eviction == Eviction.W_TINY_LFU ? new FrequencySketch() : null;
+    }
+    
+    /**
+     * Get an entry, and record the use.
+     * @param key The key.
+     * @return The object, or null if the tier doesn't hold it.
+     */
+    synchronized Object get(String key){
+        Node n = entries.get(key);
+        if (n == null){
+            /*
+            The use is counted when the entry is added, which a miss is usually
+            followed by, so it isn't counted twice.
+            */
+            misses++;
+            return null;
+        }
+        if (sketch != null){
+            sketch.increment(key);
+        }
+        hits++;
+        touch(n);
+        return n.value;
+    }
+    
+    /**
+     * Add an entry, or replace it if the key is already present. An entry that is
+     * heavier than the whole tier isn't kept.
+     * @param key The key.
+     * @param value The object.
+     * @param weight The weight of the object.
+     */
+    synchronized void put(String key, Object value, long weight){
+        Node n = entries.get(key);
+        if (weight > maxWeight){
+            if (n != null){
+                unlink(n);
+            }
+            rejections++;
+            return;
+        }
+        if (n != null){
+            Queue q = queues[n.queue];
+            q.weight += weight - n.weight;
+            n.weight = weight;
+            n.value = value;
+            touch(n);
+        } else {
+            if (sketch != null){
+                sketch.increment(key);
+            }
+            n = new Node(key, value, weight);
+            entries.put(key, n);
+            n.queue = eviction == Eviction.LRU ? PROBATION : WINDOW;
+            queues[n.queue].addLast(n);
+        }
+        evict();
+    }
+    
+    /**
+     * Remove an entry.
+     * @param key The key.
+     */
+    public synchronized void invalidate(String key){
+        Node n = entries.get(key);
+        if (n != null){
+            unlink(n);
+        }
+    }
+    
+    /**
+     * Remove every entry.
+     */
+    public synchronized void clear(){
+        entries.clear();
+        for (Queue q : queues){
+            q.clear();
+        }
+    }
+    
+    /*
+    Move a used entry to the end of its queue. With W-TinyLFU, an entry that is used
+    again while on probation is promoted to the protected queue, and the protected
+    queue makes room by demoting its least recently used entries back to probation.
+    */
+    private void touch(Node n){
+        Queue q = queues[n.queue];
+        q.remove(n);
+        if (n.queue == PROBATION && eviction == Eviction.W_TINY_LFU){
+            n.queue = PROTECTED;
+            queues[PROTECTED].addLast(n);
+            while (queues[PROTECTED].weight > protectedMax && queues[PROTECTED].head != n){
+                Node demoted = queues[PROTECTED].head;
+                queues[PROTECTED].remove(demoted);
+                demoted.queue = PROBATION;
+                queues[PROBATION].addLast(demoted);
+            }
+        } else {
+            q.addLast(n);
+        }
+    }
+    
+    private void unlink(Node n){
+        queues[n.queue].remove(n);
+        entries.remove(n.key);
+    }
+    
+    private long weight(){
+        return queues[WINDOW].weight + queues[PROBATION].weight + queues[PROTECTED].weight;
+    }
+    
+    private void evict(){
+        if (eviction == Eviction.LRU){
+            while (weight() > maxWeight){
+                unlink(queues[PROBATION].head);
+                evictions++;
+            }
+            return;
+        }
+        /*
+        Entries that fall out of the window become candidates on probation. While the
+        tier is too heavy, the newest candidate competes with the least recently used
+        entry on probation, and the one that is used less often is evicted.
+        */
+        Node candidate = null;
+        while (queues[WINDOW].weight > windowMax){
+            Node n = queues[WINDOW].head;
+            queues[WINDOW].remove(n);
+            n.queue = PROBATION;
+            queues[PROBATION].addLast(n);
+            candidate = n;
+        }
+        while (weight() > maxWeight){
+            Node victim = queues[PROBATION].head;
+            if (victim == null){
+                victim = queues[PROTECTED].head != null ? queues[PROTECTED].head : queues[WINDOW].head;
+            }
+            if (candidate == null || candidate == victim || candidate.queue != PROBATION){
+                unlink(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)){
+                unlink(victim);
+            } else {
+                Node next = candidate.prev;
+                unlink(candidate);
+                rejections++;
+                candidate = next;
+                continue;
+            }
+            evictions++;
+        }
+    }
+    
+    /**
+     * Get the maximum total weight of the entries.
+     * @return the maximum weight.
+     */
+    public long getMaxWeight(){
+        return maxWeight;
+    }
+    
+    /**
+     * Get the eviction policy.
+     * @return the eviction policy.
+     */
+    public Eviction getEviction(){
+        return eviction;
+    }
+    
+    /**
+     * Get the total weight of the entries.
+     * @return the weight.
+     */
+    public synchronized long getWeight(){
+        return weight();
+    }
+    
+    /**
+     * Get the number of entries.
+     * @return the number of entries.
+     */
+    public synchronized int getSize(){
+        return entries.size();
+    }
+    
+    /**
+     * Get the number of lookups that found their entry.
+     * @return the number of hits.
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+    
+    /**
+     * Get the number of lookups that didn't find their entry.
+     * @return the number of misses.
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+    
+    /**
+     * Get the number of entries evicted to make room for others.
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+    
+    /**
+     * Get the number of entries that weren't kept, because they were heavier than
+     * the whole tier, or used less often than the entries they would have replaced.
+     * @return the number of rejections.
+     */
+    public synchronized long getRejections(){
+        return rejections;
+    }
+    
+    /**
+     * Generates a printable version of the tier metrics.
+     * @return String - This is a formatted version of the metrics.
+     */
+    @Override
+    public synchronized String toString(){
+        String s;
+        
+        s = "\teviction: " + eviction + Constants.NL +
+            "\tsize: " + entries.size() + Constants.NL +
+            "\tweight: " + weight() + Constants.NL +
+            "\tmaxWeight: " + maxWeight + Constants.NL +
+            "\thits: " + hits + Constants.NL +
+            "\tmisses: " + misses + Constants.NL +
+            "\tevictions: " + evictions + Constants.NL +
+            "\trejections: " + rejections + Constants.NL;
+        
+        return s;
+    }
+}
@@ -15,7 +15,8 @@
  */
 package clsrestapi;
 
-import com.google.gson.Gson;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * This class implements the our-work REST API call.  All CLS REST APIs
@@ -71,11 +72,7 @@ public class OurWork extends Base<OurWork>{
     @Override
     public OurWork load(){
         try{
-            String json = loadJSONfromWebService();
-
-            Gson gson = new Gson();
-
-            return gson.fromJson(json, this.getClass());
+            return loadFromWebService();
         } catch (CRAException e) {
             //e.printStackTrace();
         }
@@ -83,6 +80,45 @@ public class OurWork extends Base<OurWork>{
         return null;        
     }
     
+    /**
+     * Open an iterator that reads the {@link ShowCaseVideo} objects of the videoList one at a time
+     * from the web service, instead of loading them all into memory. The
+     * {@link Projection} of this instance, if any, applies to the elements.
+     * See {@link CatalogIterator} for the details.
+     * @return The iterator, which must be closed when done.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public CatalogIterator<ShowCaseVideo> videoIterator() throws CRAException {
+        Projection projection = getProjection();
+        return openCatalog("videoList", "numVideos", in -> ShowCaseVideoCodec.readJson(in, projection));
+    }
+    
+    /**
+     * Open an iterator that reads the {@link ShowCaseVideo} objects of the videoList one at a time
+     * from a cache file written by {@link #serialize(java.lang.String)}, instead of
+     * reading the whole object with {@link #deSerialize(java.lang.String)}. The size
+     * of the list is known up front. The {@link Projection} of this instance does
+     * not apply. See {@link CatalogIterator} for the details.
+     * @param filename The name of the cache file.
+     * @return The iterator, which should be closed when done.
+     * @throws CRAException if the file can't be read, or doesn't hold a {@link OurWork} object.
+     */
+    public CatalogIterator<ShowCaseVideo> videoIterator(String filename) throws CRAException {
+        return openCachedCatalog(filename, ShowCaseVideo.class, obj -> obj.apiObj == null ? null : obj.apiObj.videoList);
+    }
+    
+    /**
+     * Stream the {@link ShowCaseVideo} objects of the videoList from the web service. This is
+     * {@link #videoIterator()} as a {@link Stream}, which must be closed when done.
+     * @return The stream.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public Stream<ShowCaseVideo> videoStream() throws CRAException {
+        return videoIterator().stream();
+    }
+    
     /**
      * Overrides the equals() method and compares the passed object's instance
      * data against the instance data of the current object. If it is identical,
@@ -107,6 +143,31 @@ public class OurWork extends Base<OurWork>{
         
         return dbgObj.equals(ow.dbgObj) && apiVer.equals(ow.apiVer) && apiObj.equals(ow.apiObj) ;
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(dbgObj, apiVer, apiObj);
+    }
+    
+    /**
+     * Load the videoList from the web service as a {@link LazyCatalog}, which keeps the raw
+     * response in one buffer and decodes each field of a {@link ShowCaseVideo} the first time it is
+     * read. Use this instead of {@link #load()} to page through a large catalog when only
+     * some of the elements, or some of their fields, are displayed. The {@link Projection}
+     * of this instance does not apply, since unread fields cost nothing.
+     * @param direct true to hold the response in a direct (off-heap) buffer.
+     * @return The catalog.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public LazyCatalog lazyVideos(boolean direct) throws CRAException {
+        return loadLazyCatalog("videoList", true, direct);
+    }
     
     /**
      * This method prints a nicely formatted string that shows the current object's
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A projection limits the fields of a model class that are read when an API is
+ * loaded. Fields that are not part of the projection are skipped by the parser,
+ * so their strings are never allocated, and they are left null (or zero) in the
+ * loaded object. For example, a listing screen that shows the title and thumbnail
+ * of each video can load the catalogs with:
+ * <pre>
+ * Reels reels = new Reels();
+ * reels.setProjection(Projection.of(Video.class, "title", "thumb"));
+ * reels = reels.load();
+ * </pre>
+ * A projection of a class applies to its subclasses as well, so the projection
+ * above also limits the {@link ShowCaseVideo} objects of {@link OurWork} to their
+ * title and thumb. Everything outside of the projected class is read as usual.
+ * <br><br>
+ * A projected object is incomplete, so {@link Base#serialize(java.lang.String)}
+ * refuses to write it to the cache.
+ * @author Ken Lowrie
+ */
+public final class Projection {
+    private final Class<?> type;
+    private final Set<String> fields;
+    
+    private Projection(Class<?> type, Set<String> fields){
+        this.type = type;
+        this.fields = fields;
+    }
+    
+    /**
+     * Create a projection that keeps only the specified fields of a model class.
+     * @param type The model class, e.g. {@link Video}.
+     * @param fields The names of the public fields to keep.
+     * @return The projection.
+     * @throws IllegalArgumentException if a name isn't a public instance field of the class.
+     */
+    public static Projection of(Class<?> type, String... fields){
+        Set<String> names = new LinkedHashSet<>(Arrays.asList(fields));
+        for (String name : names){
+            try {
+                Field f = type.getField(name);
+                if (Modifier.isStatic(f.getModifiers())){
+                    throw new IllegalArgumentException(name + " is a static field of " + type.getName());
+                }
+            } catch (NoSuchFieldException E){
+                throw new IllegalArgumentException(name + " is not a public field of " + type.getName(), E);
+            }
+        }
+        return new Projection(type, Collections.unmodifiableSet(names));
+    }
+    
+    /**
+     * Get the model class that this projection applies to.
+     * @return The projected class.
+     */
+    public Class<?> getType(){
+        return type;
+    }
+    
+    /**
+     * Get the names of the fields that are kept.
+     * @return An unmodifiable set of field names.
+     */
+    public Set<String> getFields(){
+        return fields;
+    }
+    
+    /**
+     * Indicates whether the projection limits the fields of a class.
+     * @param cls The class of the object being read.
+     * @return true if cls is the projected class or a subclass of it.
+     */
+    boolean appliesTo(Class<?> cls){
+        return type.isAssignableFrom(cls);
+    }
+    
+    /**
+     * Indicates whether a field of the projected class is kept.
+     * @param field The name of the field.
+     * @return true if the field is part of the projection.
+     */
+    boolean includes(String field){
+        return fields.contains(field);
+    }
+    
+    @Override
+    public String toString(){
+        return type.getSimpleName() + fields;
+    }
+}
@@ -15,8 +15,9 @@
  */
 package clsrestapi;
 
-import com.google.gson.Gson;
 import java.io.Serializable;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * This class implements the reels REST API call.  All CLS REST APIs
@@ -88,6 +89,16 @@ public class Reels extends Base<Reels> implements Serializable{
         
         return dbgObj.equals(ri.dbgObj) && apiVer.equals(ri.apiVer) && apiObj.equals(ri.apiObj) ;
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(dbgObj, apiVer, apiObj);
+    }
     
     /**
      * This method loads the JSON from the web service, using the current values
@@ -97,11 +108,7 @@ public class Reels extends Base<Reels> implements Serializable{
     @Override
     public Reels load(){
         try{
-            String json = loadJSONfromWebService();
-
-            Gson gson = new Gson();
-
-            return gson.fromJson(json, this.getClass());
+            return loadFromWebService();
         } catch (CRAException e) {
             //e.printStackTrace();
         }
@@ -109,6 +116,60 @@ public class Reels extends Base<Reels> implements Serializable{
         return null;        
     }
     
+    /**
+     * Open an iterator that reads the {@link Video} objects of the reelList one at a time
+     * from the web service, instead of loading them all into memory. The
+     * {@link Projection} of this instance, if any, applies to the elements.
+     * See {@link CatalogIterator} for the details.
+     * @return The iterator, which must be closed when done.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public CatalogIterator<Video> reelIterator() throws CRAException {
+        Projection projection = getProjection();
+        return openCatalog("reelList", "numReels", in -> VideoCodec.readJson(in, projection));
+    }
+    
+    /**
+     * Open an iterator that reads the {@link Video} objects of the reelList one at a time
+     * from a cache file written by {@link #serialize(java.lang.String)}, instead of
+     * reading the whole object with {@link #deSerialize(java.lang.String)}. The size
+     * of the list is known up front. The {@link Projection} of this instance does
+     * not apply. See {@link CatalogIterator} for the details.
+     * @param filename The name of the cache file.
+     * @return The iterator, which should be closed when done.
+     * @throws CRAException if the file can't be read, or doesn't hold a {@link Reels} object.
+     */
+    public CatalogIterator<Video> reelIterator(String filename) throws CRAException {
+        return openCachedCatalog(filename, Video.class, obj -> obj.apiObj == null ? null : obj.apiObj.reelList);
+    }
+    
+    /**
+     * Stream the {@link Video} objects of the reelList from the web service. This is
+     * {@link #reelIterator()} as a {@link Stream}, which must be closed when done.
+     * @return The stream.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public Stream<Video> reelStream() throws CRAException {
+        return reelIterator().stream();
+    }
+    
+    /**
+     * Load the reelList from the web service as a {@link LazyCatalog}, which keeps the raw
+     * response in one buffer and decodes each field of a {@link Video} the first time it is
+     * read. Use this instead of {@link #load()} to page through a large catalog when only
+     * some of the elements, or some of their fields, are displayed. The {@link Projection}
+     * of this instance does not apply, since unread fields cost nothing.
+     * @param direct true to hold the response in a direct (off-heap) buffer.
+     * @return The catalog.
+     * @throws CRAException if the web service is not available, or the response
+     * could not be parsed.
+     */
+    public LazyCatalog lazyReels(boolean direct) throws CRAException {
+        return loadLazyCatalog("reelList", false, direct);
+    }
+    
     /**
      * This method prints a nicely formatted string that shows the current object's
      * instance data.
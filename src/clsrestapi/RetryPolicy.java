@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class describes how the {@link Base} class retries a failed request.
+ * A request is retried when the connection fails, or the server responds with
+ * a 5xx status. Between attempts, it waits a random ("full jitter") delay
+ * between zero and an exponentially growing cap, so that clients that failed
+ * at the same time don't all retry at the same time.
+ * @author Ken Lowrie
+ */
+public class RetryPolicy {
+    /**
+     * A policy that never retries.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+    /**
+     * The default policy: 3 attempts, 200ms base delay, capped at 2 seconds.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 200, 2000);
+    
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    
+    /**
+     * Construct a retry policy.
+     * @param maxAttempts the total number of attempts, including the first one. Must be at least 1.
+     * @param baseDelay the delay cap before the first retry, in milliseconds. It doubles on each retry.
+     * @param maxDelay the maximum delay cap, in milliseconds.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay){
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1");
+        if (baseDelay < 0 || maxDelay < baseDelay) throw new IllegalArgumentException("Invalid delays");
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+    
+    /**
+     * Get the total number of attempts, including the first one.
+     * @return the maximum number of attempts.
+     */
+    public int getMaxAttempts(){
+        return maxAttempts;
+    }
+    
+    /**
+     * Get the delay cap before the first retry.
+     * @return the base delay in milliseconds.
+     */
+    public long getBaseDelay(){
+        return baseDelay;
+    }
+    
+    /**
+     * Get the maximum delay cap.
+     * @return the maximum delay in milliseconds.
+     */
+    public long getMaxDelay(){
+        return maxDelay;
+    }
+    
+    /**
+     * Get the delay to wait before the specified retry.
+     * @param retry the retry number, starting at 1 for the first retry.
+     * @return a random delay in milliseconds between zero and
+     * min(maxDelay, baseDelay * 2^(retry-1)).
+     */
+    public long getDelay(int retry){
+        if (baseDelay == 0) return 0;
+        
+        int shift = Math.min(Math.max(retry - 1, 0), 30);
+        long cap = Math.min(maxDelay, baseDelay << shift);
+        
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+    
+    /**
+     * Generates a printable version of the policy.
+     * @return String - This is a formatted version of the policy.
+     */
+    @Override
+    public String toString(){
+        return "RetryPolicy[maxAttempts=" + maxAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + "]";
+    }
+}
@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the roles object, which allows additional properties to be
  * attached to a video.
  * @author Ken Lowrie
  */
+@GenerateCodec
 public class Roles implements Serializable{
     /**
      * the director of the video.
@@ -65,6 +67,16 @@ public class Roles implements Serializable{
                 editor.equals(ri.editor);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(director, dp, camera, editor);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
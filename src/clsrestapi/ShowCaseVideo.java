@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements a showcase video object; basically everything needed to represent a
  * streaming video that is used to showcase a business or entity.
  * @author Ken Lowrie
  */
+@GenerateCodec
 public class ShowCaseVideo extends Video implements Serializable{
     /**
      * the type of video this is. e.g. business profile, music video, etc.
@@ -55,11 +57,22 @@ public class ShowCaseVideo extends Video implements Serializable{
         
         ShowCaseVideo si = (ShowCaseVideo)o;
         
-        return  type.equals(si.type) &&
+        return  super.equals(si) &&
+                type.equals(si.type) &&
                 description.equals(si.description) &&
                 roles.equals(si.roles);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return 31 * super.hashCode() + Objects.hash(type, description, roles);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces concurrent calls for the same key into a single call.
+ * The first caller for a key runs the supplier, and any callers that arrive
+ * for the same key while it is running wait for it and get the same result,
+ * instead of running the supplier again. Once the call completes, the key is
+ * cleared, so the next caller starts a fresh call.
+ * @author Ken Lowrie
+ * @param <K> The type of the key.
+ * @param <V> The type of the result.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * Run the supplier for the key, or wait for the call that is already in
+     * flight for the key.
+     * @param key The key that identifies the call.
+     * @param supplier The call to make if none is in flight.
+     * @return The result of the call. If the call threw an unchecked exception,
+     * it is rethrown to every caller.
+     */
+    V run(K key, Supplier<V> supplier){
+        return run(key, supplier, Deadline.none());
+    }
+    
+    /**
+     * Run the supplier for the key, or wait for the call that is already in
+     * flight for the key, but only until the deadline passes.
+     * @param key The key that identifies the call.
+     * @param supplier The call to make if none is in flight.
+     * @param deadline How long to wait for a call that is already in flight.
+     * The supplier is expected to honor the deadline itself.
+     * @return The result of the call, or null if the deadline passed while
+     * waiting for another caller's call. If the call threw an unchecked
+     * exception, it is rethrown to every caller.
+     */
+    V run(K key, Supplier<V> supplier, Deadline deadline){
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        
+        if (existing != null){
+            try{
+                if (deadline.isInfinite()) return existing.join();
+                
+                return existing.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException E){
+                return null;
+            } catch (InterruptedException E){
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException | CompletionException E){
+                if (E.getCause() instanceof RuntimeException) throw (RuntimeException) E.getCause();
+                if (E.getCause() instanceof Error) throw (Error) E.getCause();
+                throw new IllegalStateException(E.getCause());
+            }
+        }
+        
+        try{
+            V result = supplier.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error E){
+            mine.completeExceptionally(E);
+            throw E;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+    
+    /**
+     * Get the number of calls currently in flight.
+     * @return the number of keys with a call in flight.
+     */
+    int inFlightCount(){
+        return inFlight.size();
+    }
+}
@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements a Social Network object; basically everything needed to represent a
  * Social Network identity for a business.
  * @author Ken Lowrie
  */
+@GenerateCodec
 public class SocialNetwork implements Serializable {
     /**
      * the name of the network, e.g. Facebook.
@@ -65,6 +67,16 @@ public class SocialNetwork implements Serializable {
                 image.equals(sn.image);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(network, id, url, image);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of how many bytes each API has transferred over the
+ * wire, and how many bytes that decoded to after decompression. The difference
+ * is what content encoding (gzip/deflate) saved. Stats are kept per API name
+ * for the life of the process, and are updated by the {@link Base} class each
+ * time a response body is read.
+ * @author Ken Lowrie
+ */
+public class TransferStats {
+    private static final ConcurrentMap<String, TransferStats> STATS = new ConcurrentHashMap<>();
+    
+    private final String apiName;
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+    
+    private TransferStats(String apiName){
+        this.apiName = apiName;
+    }
+    
+    /**
+     * Get the stats for the specified API, creating them if needed.
+     * @param apiName the name of the API, e.g. "reels".
+     * @return the {@link TransferStats} for the API.
+     */
+    public static TransferStats forApi(String apiName){
+        return STATS.computeIfAbsent(apiName, TransferStats::new);
+    }
+    
+    /**
+     * Get a snapshot of the stats for all APIs seen so far.
+     * @return an unmodifiable map of API name to {@link TransferStats}, sorted by name.
+     */
+    public static Map<String, TransferStats> getAll(){
+        return Collections.unmodifiableMap(new TreeMap<>(STATS));
+    }
+    
+    /**
+     * Clear the stats for all APIs.
+     */
+    public static void resetAll(){
+        STATS.clear();
+    }
+    
+    /**
+     * Record a response body.
+     * @param wire the number of bytes read from the network.
+     * @param decoded the number of bytes after decompression.
+     */
+    void record(long wire, long decoded){
+        responses.incrementAndGet();
+        wireBytes.addAndGet(wire);
+        decodedBytes.addAndGet(decoded);
+    }
+    
+    /**
+     * Get the name of the API these stats belong to.
+     * @return the API name.
+     */
+    public String getApiName(){
+        return apiName;
+    }
+    
+    /**
+     * Get the number of response bodies read.
+     * @return the number of responses.
+     */
+    public long getResponseCount(){
+        return responses.get();
+    }
+    
+    /**
+     * Get the number of (possibly compressed) bytes read from the network.
+     * @return the number of bytes on the wire.
+     */
+    public long getWireBytes(){
+        return wireBytes.get();
+    }
+    
+    /**
+     * Get the number of bytes after decompression.
+     * @return the number of decoded bytes.
+     */
+    public long getDecodedBytes(){
+        return decodedBytes.get();
+    }
+    
+    /**
+     * Get the number of bytes that compression saved on the wire.
+     * @return decoded bytes minus wire bytes.
+     */
+    public long getBytesSaved(){
+        return getDecodedBytes() - getWireBytes();
+    }
+    
+    /**
+     * Generates a printable version of the stats.
+     * @return String - This is a formatted version of the stats.
+     */
+    @Override
+    public String toString(){
+        String s;
+        
+        s = "\tapiName: " + apiName + Constants.NL +
+            "\tresponses: " + getResponseCount() + Constants.NL +
+            "\twireBytes: " + getWireBytes() + Constants.NL +
+            "\tdecodedBytes: " + getDecodedBytes() + Constants.NL +
+            "\tbytesSaved: " + getBytesSaved() + Constants.NL;
+        
+        return s;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This interface abstracts the network layer used by the {@link Base} class
+ * to fetch the JSON for an API call. The default implementation is
+ * {@link HttpTransport}, but you can plug in your own implementation using
+ * {@link Base#setTransport(clsrestapi.Transport)} or
+ * {@link Base#setDefaultTransport(clsrestapi.Transport)}, primarily useful
+ * for testing or for sharing a connection pool across your application.
+ * @author Ken Lowrie
+ */
+public interface Transport {
+    /**
+     * Issue a GET request for the specified URL. The response headers and the
+     * body are both read from the same connection, so the caller must close
+     * the returned {@link TransportResponse} when done with it, so that the
+     * connection can be returned to the pool.
+     * @param url the fully qualified URL to fetch.
+     * @param headers additional request headers to send. May be empty, but not null.
+     * @return {@link TransportResponse} for the request.
+     * @throws IOException if the connection could not be established.
+     */
+    TransportResponse get(String url, Map<String, String> headers) throws IOException;
+    
+    /**
+     * Issue a GET request for the specified URL, within the specified deadline.
+     * Implementations should bound their connect and read timeouts by the time
+     * left. The default implementation ignores the deadline, so that existing
+     * transports keep working.
+     * @param url the fully qualified URL to fetch.
+     * @param headers additional request headers to send. May be empty, but not null.
+     * @param deadline the {@link Deadline} for the request.
+     * @return {@link TransportResponse} for the request.
+     * @throws IOException if the connection could not be established.
+     */
+    default TransportResponse get(String url, Map<String, String> headers, Deadline deadline) throws IOException {
+        return get(url, headers);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class wraps the response of a {@link Transport#get(java.lang.String, java.util.Map)}
+ * call. It exposes the status code, the response headers and the body of
+ * the response, all of which come from a single connection.
+ * @author Ken Lowrie
+ */
+public abstract class TransportResponse implements Closeable {
+    /**
+     * Get the HTTP status code of the response.
+     * @return the status code, e.g. 200.
+     * @throws IOException if the status could not be read from the connection.
+     */
+    public abstract int getStatusCode() throws IOException;
+
+    /**
+     * Get the value of the specified response header.
+     * @param name the name of the header, e.g. Content-Type.
+     * @return the value of the header, or null if it was not sent.
+     */
+    public abstract String getHeader(String name);
+
+    /**
+     * Get the stream containing the body of the response.
+     * @return the body of the response.
+     * @throws IOException if the body could not be opened.
+     */
+    public abstract InputStream getBody() throws IOException;
+
+    /**
+     * Convenience method to get the Content-Type of the response.
+     * @return the Content-Type header, or null if it was not sent.
+     */
+    public String getContentType(){
+        return getHeader("Content-Type");
+    }
+    
+    /**
+     * Release the connection. Implementations should make the underlying
+     * connection available for reuse when possible.
+     * @throws IOException if an error occurs while releasing the connection.
+     */
+    @Override
+    public abstract void close() throws IOException;
+    
+    /**
+     * Abort the request without waiting for the rest of the response, e.g.
+     * because a hedged request lost the race. This may be called from another
+     * thread while the status line is still being read, and should make that
+     * read fail promptly. The connection is not reused. The default
+     * implementation just calls {@link #close()}.
+     * @throws IOException if an error occurs while aborting the request.
+     */
+    public void abort() throws IOException {
+        close();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This class holds the helpers that the value classes generated for the classes
+ * marked with {@link GenerateCodec} use to convert their lists. See the docs
+ * on that annotation.
+ * @author Ken Lowrie
+ */
+final class Values {
+    
+    private Values(){
+    }
+    
+    /**
+     * Convert a list of mutable objects to an unmodifiable list of values. Null
+     * elements stay null.
+     * @param <E> The class of the list elements.
+     * @param <V> The class of the values.
+     * @param list The list, which can be null.
+     * @param of Converts one element.
+     * @return The unmodifiable list, or null if list is null.
+     */
+    static <E, V> List<V> freeze(List<E> list, Function<E, V> of){
+        if (list == null){
+            return null;
+        }
+        Object[] values = new Object[list.size()];
+        int i = 0;
+        for (E element : list){
+            values[i++] = element == null ? null : of.apply(element);
+        }
+        @SuppressWarnings("unchecked")
+        List<V> frozen = (List<V>)Arrays.asList(values);
+        return Collections.unmodifiableList(frozen);
+    }
+    
+    /**
+     * Convert a list of values back to a new, modifiable list of mutable objects.
+     * @param <V> The class of the values.
+     * @param <E> The class of the list elements.
+     * @param list The list, which can be null.
+     * @param toMutable Converts one value.
+     * @return The new list, or null if list is null.
+     */
+    static <V, E> List<E> thaw(List<V> list, Function<V, E> toMutable){
+        if (list == null){
+            return null;
+        }
+        List<E> elements = new ArrayList<>(list.size());
+        for (V value : list){
+            elements.add(value == null ? null : toMutable.apply(value));
+        }
+        return elements;
+    }
+}
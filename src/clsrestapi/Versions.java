@@ -15,8 +15,8 @@
  */
 package clsrestapi;
 
-import com.google.gson.Gson;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements the our-work REST API call.  All CLS REST APIs
@@ -88,6 +88,16 @@ public class Versions extends Base<Versions> implements Serializable{
         
         return dbgObj.equals(vi.dbgObj) && apiVer.equals(vi.apiVer) && apiObj.equals(vi.apiObj) ;
     }
+
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(dbgObj, apiVer, apiObj);
+    }
     
     /**
      * This method loads the JSON from the web service, using the current values
@@ -97,11 +107,7 @@ public class Versions extends Base<Versions> implements Serializable{
     @Override
     public Versions load(){
         try{
-            String json = loadJSONfromWebService();
-
-            Gson gson = new Gson();
-
-            return gson.fromJson(json, this.getClass());
+            return loadFromWebService();
         } catch (CRAException e) {
             //e.printStackTrace();
         }
@@ -16,12 +16,14 @@
 package clsrestapi;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class implements a video object; basically everything needed to represent a
  * streaming video.
  * @author Ken Lowrie
  */
+@GenerateCodec
 public class Video implements Serializable{
     /**
      * the title of the video.
@@ -69,7 +71,7 @@ public class Video implements Serializable{
         if (o == this) {
             return true;
         }
-        if (!(o instanceof Video)){
+        if (o == null || o.getClass() != getClass()){
             return false;
         }
         
@@ -85,6 +87,16 @@ public class Video implements Serializable{
                 frame.equals(vi.frame);
     }
 
+    /**
+     * Computes a hash code from the instance data that {@link #equals(java.lang.Object)}
+     * compares, so that equal objects have equal hash codes.
+     * @return the hash code of the current instance data.
+     */
+    @Override
+    public int hashCode(){
+        return Objects.hash(title, url, sUrl, hdUrl, sdUrl, mobileUrl, thumb, frame);
+    }
+
     /**
      * Converts the current object instance data to a formatted string.
      * @return the current objects' instance data
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes the video lists of {@link ApiObjReels} and {@link ApiObjOurWork}
+ * in their serialized form. The media URLs of a catalog (url, sUrl, hdUrl, sdUrl,
+ * mobileUrl, thumb and frame) nearly always share a scheme, host and path with each
+ * other, so each URL is split at its last '/', the prefixes are written once in a
+ * table at the start of the list, and each URL is written as an index into the table
+ * and its suffix. The other strings are written with {@link BinaryCodecs}.
+ * <br><br>
+ * The objects in memory are not affected; the URL fields are rebuilt in full when
+ * the list is read.
+ * @author Ken Lowrie
+ */
+final class VideoListSerializer {
+    /**
+     * The version of the format, which is written first.
+     */
+    private static final int VERSION = 1;
+    
+    /**
+     * The number of media URLs of a video, see {@link #urls(clsrestapi.Video)}.
+     */
+    private static final int URLS = 7;
+    
+    private static final byte NULL = 0;
+    private static final byte VIDEO = 1;
+    private static final byte SHOW_CASE_VIDEO = 2;
+    
+    private VideoListSerializer(){
+    }
+    
+    /**
+     * Write a list of videos. The elements can be {@link Video} or {@link ShowCaseVideo}
+     * objects, or null.
+     * @param out The output.
+     * @param videos The list, which may be null.
+     * @throws IOException if the list could not be written.
+     */
+    static void write(DataOutput out, List<? extends Video> videos) throws IOException {
+        out.writeByte(VERSION);
+        if (videos == null){
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        
+        /*
+        Build the prefix table. Index 0 stands for a null URL. The index of each URL
+        is kept, so the prefixes are only computed once.
+        */
+        Map<String, Integer> prefixes = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int[] refs = new int[videos.size() * URLS];
+        int k = 0;
+        for (Video v : videos){
+            if (v == null){
+                k += URLS;
+                continue;
+            }
+            for (String url : urls(v)){
+                if (url != null){
+                    String prefix = prefix(url);
+                    Integer index = prefixes.get(prefix);
+                    if (index == null){
+                        table.add(prefix);
+                        index = table.size();
+                        prefixes.put(prefix, index);
+                    }
+                    refs[k] = index;
+                }
+                k++;
+            }
+        }
+        BinaryCodecs.writeVarInt(out, table.size());
+        for (String prefix : table){
+            BinaryCodecs.writeString(out, prefix);
+        }
+        
+        BinaryCodecs.writeVarInt(out, videos.size());
+        k = 0;
+        for (Video v : videos){
+            if (v == null){
+                out.writeByte(NULL);
+                k += URLS;
+                continue;
+            }
+            boolean showCase = v instanceof ShowCaseVideo;
+            out.writeByte(showCase ? SHOW_CASE_VIDEO : VIDEO);
+            BinaryCodecs.writeString(out, v.title);
+            for (String url : urls(v)){
+                int index = refs[k++];
+                BinaryCodecs.writeVarInt(out, index);
+                if (index != 0){
+                    BinaryCodecs.writeString(out, url.substring(table.get(index - 1).length()));
+                }
+            }
+            if (showCase){
+                ShowCaseVideo s = (ShowCaseVideo)v;
+                BinaryCodecs.writeString(out, s.type);
+                BinaryCodecs.writeString(out, s.description);
+                out.writeBoolean(s.roles != null);
+                if (s.roles != null){
+                    BinaryCodecs.writeString(out, s.roles.director);
+                    BinaryCodecs.writeString(out, s.roles.dp);
+                    BinaryCodecs.writeString(out, s.roles.camera);
+                    BinaryCodecs.writeString(out, s.roles.editor);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read a list of videos written by {@link #write(java.io.DataOutput, java.util.List)}.
+     * @param <V> The class of the list elements.
+     * @param in The input.
+     * @param type The class of the list elements.
+     * @return The list, or null if a null list was written.
+     * @throws IOException if the list could not be read, or an element isn't of the
+     * expected class.
+     */
+    static <V extends Video> List<V> read(DataInput in, Class<V> type) throws IOException {
+        Cursor<V> cursor = open(in, type);
+        if (cursor == null){
+            return null;
+        }
+        List<V> videos = new ArrayList<>(cursor.size);
+        while (cursor.hasNext()){
+            videos.add(cursor.next());
+        }
+        return videos;
+    }
+    
+    /**
+     * Start reading a list of videos written by {@link #write(java.io.DataOutput, java.util.List)}
+     * one element at a time. The prefix table is read right away.
+     * @param <V> The class of the list elements.
+     * @param in The input, which the cursor reads the elements from.
+     * @param type The class of the list elements.
+     * @return The cursor, or null if a null list was written.
+     * @throws IOException if the start of the list could not be read.
+     */
+    static <V extends Video> Cursor<V> open(DataInput in, Class<V> type) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION){
+            throw new InvalidObjectException("Unsupported video list format " + version);
+        }
+        if (!in.readBoolean()){
+            return null;
+        }
+        
+        String[] table = new String[BinaryCodecs.readVarInt(in) + 1];
+        for (int i = 1; i < table.length; i++){
+            table[i] = BinaryCodecs.readString(in);
+        }
+        return new Cursor<>(in, type, table, BinaryCodecs.readVarInt(in));
+    }
+    
+    /**
+     * Reads the elements of a list of videos one at a time, see
+     * {@link #open(java.io.DataInput, java.lang.Class)}. The size of the list is known.
+     * @param <V> The class of the list elements.
+     */
+    static final class Cursor<V extends Video> extends CatalogIterator.Source<V> {
+        private final DataInput in;
+        private final Class<V> type;
+        private final String[] table;
+        private final int size;
+        private int index;
+        
+        private Cursor(DataInput in, Class<V> type, String[] table, int size){
+            this.in = in;
+            this.type = type;
+            this.table = table;
+            this.size = size;
+            this.index = 0;
+        }
+        
+        @Override
+        boolean hasNext(){
+            return index < size;
+        }
+        
+        @Override
+        V next() throws IOException {
+            index++;
+            byte kind = in.readByte();
+            if (kind == NULL){
+                return null;
+            }
+            Video v = kind == SHOW_CASE_VIDEO ? new ShowCaseVideo() : new Video();
+            v.title = BinaryCodecs.readString(in);
+            v.url = readUrl(in, table);
+            v.sUrl = readUrl(in, table);
+            v.hdUrl = readUrl(in, table);
+            v.sdUrl = readUrl(in, table);
+            v.mobileUrl = readUrl(in, table);
+            v.thumb = readUrl(in, table);
+            v.frame = readUrl(in, table);
+            if (kind == SHOW_CASE_VIDEO){
+                ShowCaseVideo s = (ShowCaseVideo)v;
+                s.type = BinaryCodecs.readString(in);
+                s.description = BinaryCodecs.readString(in);
+                if (in.readBoolean()){
+                    s.roles = new Roles();
+                    s.roles.director = BinaryCodecs.readString(in);
+                    s.roles.dp = BinaryCodecs.readString(in);
+                    s.roles.camera = BinaryCodecs.readString(in);
+                    s.roles.editor = BinaryCodecs.readString(in);
+                }
+            }
+            if (!type.isInstance(v)){
+                throw new InvalidObjectException("Expected a " + type.getSimpleName() + " in the video list");
+            }
+            return type.cast(v);
+        }
+        
+        @Override
+        long size(){
+            return size;
+        }
+        
+        @Override
+        public void close(){
+            /* The input is in memory, there's nothing to release. */
+        }
+    }
+    
+    /*
+    The media URLs of a video, in the order they are written.
+    */
+    private static String[] urls(Video v){
+        return new String[]{ v.url, v.sUrl, v.hdUrl, v.sdUrl, v.mobileUrl, v.thumb, v.frame };
+    }
+    
+    private static String prefix(String url){
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+    
+    private static String readUrl(DataInput in, String[] table) throws IOException {
+        int index = BinaryCodecs.readVarInt(in);
+        if (index == 0){
+            return null;
+        }
+        if (index >= table.length){
+            throw new InvalidObjectException("Bad URL prefix index " + index);
+        }
+        return table[index] + BinaryCodecs.readString(in);
+    }
+}
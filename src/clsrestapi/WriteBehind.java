@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class writes the files of the "objects" cache in the background, so that a
+ * refresh doesn't pay for disk I/O in the request path. Turn it on for the whole
+ * process with {@link ClsRestApi#setWriteBehind(clsrestapi.WriteBehind)}.
+ * <br><br>
+ * The API object is still encoded on the caller's thread, which is cheap, and later
+ * changes to the object (e.g. by the {@link Compactor}) don't affect what is written.
+ * Only the file write is queued. A queued write to a file that already has one pending
+ * replaces it, so a burst of refreshes of one API costs one write. Until a file is
+ * written, the cache serves the queued copy, so no one goes back to the network for it.
+ * Every item is written with {@link Cache#writeItem(java.lang.String, byte[])}, which
+ * replaces it atomically.
+ * <br><br>
+ * The queue is bounded. When it is full, the caller writes the file itself, which
+ * slows the callers down instead of losing writes or using unbounded memory. If an
+ * older copy of that file is still queued or being written, the caller waits for it
+ * first, so the older copy can't land on top of the newer one. The
+ * writer is a daemon thread, so call {@link #flush()} or {@link #close()} before
+ * the process exits if the pending writes must not be lost.
+ * @author Ken Lowrie
+ */
+public final class WriteBehind implements Closeable {
+    /**
+     * The default number of files that can be queued.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    
+    /**
+     * A queued write.
+     */
+    private static final class Pending {
+        final Cache cache;
+        final String itemName;
+        final byte[] bytes;
+        final long enqueuedNanos;
+        
+        Pending(Cache cache, String itemName, byte[] bytes, long enqueuedNanos){
+            this.cache = cache;
+            this.itemName = itemName;
+            this.bytes = bytes;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+    
+    private final int capacity;
+    /* The queued writes by the path of the item, oldest first. Guarded by this. */
+    private final Map<String, Pending> queue = new LinkedHashMap<>();
+    private String writingName;
+    private Pending writing;
+    private boolean closed;
+    private int maxDepth;
+    private final Thread writer;
+    
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    
+    /**
+     * Create a write-behind queue with the default capacity.
+     */
+    public WriteBehind(){
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Create a write-behind queue, and start its writer thread.
+     * @param capacity The number of files that can be queued.
+     */
+    public WriteBehind(int capacity){
+        if (capacity < 1){
+            throw new IllegalArgumentException("The capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.writer = new Thread(this::run, "clsrestapi-write-behind-" + THREADS.getAndIncrement());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Queue a cache item to be written.
+     * @param cache The cache the item is written to.
+     * @param itemName The name of the item.
+     * @param bytes The bytes of the item, see {@link Base#toCacheBytes()}.
+     * @return true if the write was queued, false if the queue is full or closed,
+     * in which case the caller must write the item itself. Before false is returned,
+     * any write of the item that is already queued or in progress has finished.
+     */
+    synchronized boolean submit(Cache cache, String itemName, byte[] bytes){
+        String filename = cache.absolutePath(itemName);
+        boolean interrupted = false;
+        
+        try {
+            while (true){
+                Pending previous = queue.get(filename);
+                if (!closed && previous != null){
+                    /*
+                    Keep the time of the first write, so the flush latency includes the
+                    time the file was stale on disk.
+                    */
+                    queue.put(filename, new Pending(cache, itemName, bytes, previous.enqueuedNanos));
+                    collapsed.incrementAndGet();
+                    return true;
+                }
+                if (!closed && queue.size() < capacity){
+                    queue.put(filename, new Pending(cache, itemName, bytes, System.nanoTime()));
+                    enqueued.incrementAndGet();
+                    maxDepth = Math.max(maxDepth, queue.size());
+                    notifyAll();
+                    return true;
+                }
+                if (previous == null && !filename.equals(writingName)){
+                    if (!closed){
+                        overflows.incrementAndGet();
+                    }
+                    return false;
+                }
+                /*
+                The caller has to write the item itself, but the writer thread is writing
+                an older copy of it right now, or, once the queue is closed, still has one
+                queued. Wait for that write, or the older copy could replace this one.
+                */
+                try {
+                    wait();
+                } catch (InterruptedException E){
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Get the bytes of a cache item that is queued or being written.
+     * @param cache The cache the item is written to.
+     * @param itemName The name of the item.
+     * @return The bytes, or null if the item has no pending write.
+     */
+    synchronized byte[] pending(Cache cache, String itemName){
+        String filename = cache.absolutePath(itemName);
+        Pending p = queue.get(filename);
+        if (p == null && filename.equals(writingName)){
+            p = writing;
+        }
+        return p == null ? null : p.bytes;
+    }
+    
+    private void run(){
+        while (true){
+            String name;
+            Pending p;
+            
+            synchronized (this){
+                while (queue.isEmpty() && !closed){
+                    try {
+                        wait();
+                    } catch (InterruptedException E){
+                        /* Only close() stops the writer. */
+                    }
+                }
+                if (queue.isEmpty()){
+                    return;
+                }
+                Iterator<Map.Entry<String, Pending>> it = queue.entrySet().iterator();
+                Map.Entry<String, Pending> e = it.next();
+                it.remove();
+                name = e.getKey();
+                p = e.getValue();
+                writingName = name;
+                writing = p;
+            }
+            
+            try {
+                p.cache.writeItem(p.itemName, p.bytes);
+                written.incrementAndGet();
+            } catch (CRAException E){
+                failed.incrementAndGet();
+            }
+            long nanos = System.nanoTime() - p.enqueuedNanos;
+            flushNanos.addAndGet(nanos);
+            maxFlushNanos.accumulateAndGet(nanos, Math::max);
+            
+            synchronized (this){
+                writingName = null;
+                writing = null;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Wait until every write queued so far has been written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized void flush() throws InterruptedException {
+        while (!queue.isEmpty() || writing != null){
+            wait();
+        }
+    }
+    
+    /**
+     * Write the pending files, and stop the writer thread. Writes submitted after
+     * this are made by the caller.
+     */
+    @Override
+    public void close(){
+        synchronized (this){
+            closed = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()){
+            try {
+                writer.join();
+            } catch (InterruptedException E){
+                interrupted = true;
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Get the number of files waiting to be written.
+     * @return the queue depth.
+     */
+    public synchronized int getQueueDepth(){
+        return queue.size();
+    }
+    
+    /**
+     * Get the largest number of files that have been waiting at once.
+     * @return the maximum queue depth.
+     */
+    public synchronized int getMaxQueueDepth(){
+        return maxDepth;
+    }
+    
+    /**
+     * Get the number of files that have been queued.
+     * @return the number of writes queued.
+     */
+    public long getEnqueued(){
+        return enqueued.get();
+    }
+    
+    /**
+     * Get the number of writes that replaced a pending write of the same file.
+     * @return the number of writes collapsed.
+     */
+    public long getCollapsed(){
+        return collapsed.get();
+    }
+    
+    /**
+     * Get the number of writes the callers made themselves because the queue was full.
+     * @return the number of overflows.
+     */
+    public long getOverflows(){
+        return overflows.get();
+    }
+    
+    /**
+     * Get the number of files written by the writer thread.
+     * @return the number of files written.
+     */
+    public long getWritten(){
+        return written.get();
+    }
+    
+    /**
+     * Get the number of files the writer thread failed to write.
+     * @return the number of failed writes.
+     */
+    public long getFailed(){
+        return failed.get();
+    }
+    
+    /**
+     * Get the average time from queueing a file until it was on disk.
+     * @return the average flush latency in milliseconds.
+     */
+    public double getAvgFlushMillis(){
+        long n = written.get() + failed.get();
+        return n == 0 ? 0 : flushNanos.get() / 1e6 / n;
+    }
+    
+    /**
+     * Get the longest time from queueing a file until it was on disk.
+     * @return the maximum flush latency in milliseconds.
+     */
+    public long getMaxFlushMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get());
+    }
+    
+    /**
+     * Generates a printable version of the queue metrics.
+     * @return String - This is a formatted version of the metrics.
+     */
+    @Override
+    public String toString(){
+        String s;
+        
+        s = "\tqueueDepth: " + getQueueDepth() + Constants.NL +
+            "\tmaxQueueDepth: " + getMaxQueueDepth() + Constants.NL +
+            "\tenqueued: " + getEnqueued() + Constants.NL +
+            "\tcollapsed: " + getCollapsed() + Constants.NL +
+            "\toverflows: " + getOverflows() + Constants.NL +
+            "\twritten: " + getWritten() + Constants.NL +
+            "\tfailed: " + getFailed() + Constants.NL +
+            "\tavgFlushMillis: " + String.format("%.2f", getAvgFlushMillis()) + Constants.NL +
+            "\tmaxFlushMillis: " + getMaxFlushMillis() + Constants.NL;
+        
+        return s;
+    }
+}
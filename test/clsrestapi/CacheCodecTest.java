@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the binary format of the "objects" cache, see {@link CacheCodec}.
+ * @author Ken Lowrie
+ */
+public class CacheCodecTest {
+    
+    public CacheCodecTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(BinaryCodecs.T_STRING);
+        BinaryCodecs.writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    /**
+     * A cache file for an {@link AboutUs} in version 1 of the format, where each
+     * field tag is the full hash code of the field name, written as an int.
+     */
+    private static byte[] aboutUsVersion1() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        
+        out.writeInt(CacheCodec.MAGIC);
+        BinaryCodecs.writeVarInt(out, 1);
+        writeString(out, AboutUs.class.getName());
+        out.writeByte(BinaryCodecs.T_OBJECT);
+        BinaryCodecs.writeVarInt(out, 4);
+        out.writeInt("apiName".hashCode());
+        writeString(out, Constants.API_ABOUT_US);
+        out.writeInt("apiVer".hashCode());
+        out.writeByte(BinaryCodecs.T_OBJECT);
+        BinaryCodecs.writeVarInt(out, 3);
+        out.writeInt("apiName".hashCode());
+        writeString(out, Constants.API_ABOUT_US);
+        out.writeInt("apiVersion".hashCode());
+        writeString(out, "1.0");
+        out.writeInt("apiDataVersion".hashCode());
+        writeString(out, "2.0");
+        // A field this version doesn't know, which must be skipped.
+        out.writeInt("retired".hashCode());
+        out.writeByte(BinaryCodecs.T_OBJECT);
+        BinaryCodecs.writeVarInt(out, 1);
+        out.writeInt("name".hashCode());
+        writeString(out, "skipped");
+        out.writeInt("apiObj".hashCode());
+        out.writeByte(BinaryCodecs.T_OBJECT);
+        BinaryCodecs.writeVarInt(out, 1);
+        out.writeInt("aboutus".hashCode());
+        writeString(out, "We make videos.");
+        out.flush();
+        
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Fill in the common fields of an API object. The equals() methods of the model
+     * classes aren't null safe, so every field gets a value.
+     */
+    private static <T extends Base<?>> T sample(T api, String apiName){
+        api.webHost = "http://cache.test";
+        api.webServiceUrl = api.webHost + "/" + apiName + "/";
+        api.apiName = apiName;
+        api.eTag = "\"0a1b2c\"";
+        api.lastModified = "Sat, 17 Oct 2026 04:00:00 GMT";
+        api.fetchedAt = 1792209600000L;
+        api.apiVer = new ApiVer(apiName, "1.0", "2.0");
+        api.dbgObj = new DbgObj();
+        api.dbgObj.parseOK = true;
+        api.dbgObj.traceMsgQ = Arrays.asList("parsed " + apiName, "done");
+        api.dbgObj.restAPIkeys = Arrays.asList(apiName);
+        api.dbgObj.request_uri = "/" + apiName + "/";
+        api.dbgObj.query_string = "";
+        return api;
+    }
+    
+    private static <T> T apiObj(String json, Class<T> cls){
+        return new Gson().fromJson(json.replace('\'', '"'), cls);
+    }
+    
+    /**
+     * One object of each API class the cache format supports.
+     */
+    static List<Base<?>> samples(){
+        AboutUs aboutUs = sample(new AboutUs(), Constants.API_ABOUT_US);
+        aboutUs.apiObj = apiObj("{'aboutus':'We make videos.'}", ApiObjAboutUs.class);
+        
+        Versions versions = sample(new Versions(), Constants.API_VERSIONS);
+        versions.apiObj = apiObj("{'numApis':1,'apiList':[{'apiName':'reels','apiVersion':'1.0','apiDataVersion':'1.1'}]}", ApiObjVersions.class);
+        
+        ImagePaths imagePaths = sample(new ImagePaths(), Constants.API_IMAGE_PATHS);
+        imagePaths.apiObj = apiObj("{'numPaths':1,'imagePaths':[{'clientID':'JavaDesktop','imagePath':'/images/java/'}]}", ApiObjImagePaths.class);
+        
+        ContactInfo contactInfo = sample(new ContactInfo(), Constants.API_CONTACT_INFO);
+        contactInfo.apiObj = apiObj("{'location':'Austin','address':{'name':'n','street':'s','city':'c','state':'TX','zipcode':'78701'},"
+                + "'email':'e','phone':'p','socialNetworks':[{'network':'Facebook','id':'x','url':'http://fb','image':'fb.png'}]}", ApiObjContactInfo.class);
+        
+        Reels reels = sample(new Reels(), Constants.API_REELS);
+        reels.apiObj = apiObj("{'numReels':2,'reelList':[" + CodecTest.VIDEO + "," + CodecTest.VIDEO + "]}", ApiObjReels.class);
+        
+        OurWork ourWork = sample(new OurWork(), Constants.API_OUR_WORK);
+        ourWork.apiObj = apiObj("{'numVideos':1,'videoList':[" + CodecTest.SHOWCASE_VIDEO + "]}", ApiObjOurWork.class);
+        
+        return Arrays.asList(aboutUs, versions, imagePaths, contactInfo, reels, ourWork);
+    }
+    
+    private static void assertSameObject(Base<?> expected, Base<?> actual, boolean withFetchedAt){
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected, actual);
+        assertEquals(expected.webHost, actual.webHost);
+        assertEquals(expected.webServiceUrl, actual.webServiceUrl);
+        assertEquals(expected.apiName, actual.apiName);
+        assertEquals(expected.eTag, actual.eTag);
+        assertEquals(expected.lastModified, actual.lastModified);
+        if (withFetchedAt){
+            assertEquals(expected.fetchedAt, actual.fetchedAt);
+        }
+    }
+    
+    private static ByteBuffer direct(byte[] bytes){
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes);
+        buf.flip();
+        return buf;
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        for (Base<?> api : samples()){
+            TestHelpers.logMsg(methodName, "checking " + api.getClass().getSimpleName());
+            byte[] bytes = api.toCacheBytes();
+            assertEquals(CacheCodec.MAGIC, ByteBuffer.wrap(bytes).getInt());
+            
+            assertSameObject(api, api.fromCacheBytes(bytes), true);
+            assertSameObject(api, api.fromCacheBuffer(direct(bytes)), true);
+            
+            String filename = TestHelpers.tempFile(api.apiName);
+            api.serialize(filename);
+            assertSameObject(api, api.deSerialize(filename), true);
+        }
+    }
+    
+    @Test
+    public void testReadJavaSerialized() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        for (Base<?> api : samples()){
+            TestHelpers.logMsg(methodName, "checking " + api.getClass().getSimpleName());
+            /*
+            This is the format older versions of the library wrote the cache in. The
+            fetchedAt time is transient, so it isn't in these files.
+            */
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bos)){
+                out.writeObject(api);
+            }
+            byte[] bytes = bos.toByteArray();
+            assertEquals((byte)0xAC, bytes[0]);
+            assertEquals((byte)0xED, bytes[1]);
+            
+            assertSameObject(api, api.fromCacheBytes(bytes), false);
+            assertSameObject(api, api.fromCacheBuffer(direct(bytes)), false);
+            
+            String filename = TestHelpers.tempFile(api.apiName);
+            Files.write(Paths.get(filename), bytes);
+            assertSameObject(api, api.deSerialize(filename), false);
+        }
+    }
+    
+    @Test(expected = CRAException.class)
+    public void testReadJavaSerializedOtherClass() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)){
+            out.writeObject(samples().get(0));
+        }
+        new Reels().fromCacheBytes(bos.toByteArray());
+    }
+    
+    @Test
+    public void testReadVersion1() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        AboutUs obj = new AboutUs().fromCacheBytes(aboutUsVersion1());
+        
+        assertEquals(Constants.API_ABOUT_US, obj.apiName);
+        assertEquals(new ApiVer(Constants.API_ABOUT_US, "1.0", "2.0"), obj.apiVer);
+        assertEquals("We make videos.", obj.apiObj.aboutus);
+        
+        // Written back out, the object is in the current version, and reads the same.
+        byte[] current = obj.toCacheBytes();
+        AboutUs copy = new AboutUs().fromCacheBytes(current);
+        assertEquals(obj.apiVer, copy.apiVer);
+        assertEquals(obj.apiObj, copy.apiObj);
+    }
+    
+    @Test
+    public void testTags() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        String[] names = { "webHost", "webServiceUrl", "apiName", "eTag", "lastModified", "dbgObj", "apiVer", "apiObj", "fetchedAt" };
+        Set<Integer> tags = new HashSet<>();
+        
+        for (String name : names){
+            int tag = BinaryCodecs.tag(name);
+            assertTrue(tag >= 0 && tag <= BinaryCodecs.TAG_MASK);
+            assertTrue("the tag of " + name + " collides", tags.add(tag));
+        }
+        assertNotEquals(BinaryCodecs.tag("numReels"), BinaryCodecs.tag("reelList"));
+        assertNotEquals(BinaryCodecs.tag("numVideos"), BinaryCodecs.tag("videoList"));
+    }
+}
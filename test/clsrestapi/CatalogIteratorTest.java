@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CatalogIterator}, over a cache file and over a response
+ * from a fake {@link Transport}.
+ * @author Ken Lowrie
+ */
+public class CatalogIteratorTest {
+    
+    public CatalogIteratorTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Before
+    public void setUp() {
+        CircuitBreaker.resetAll();
+    }
+    
+    static Video video(int i){
+        Video v = new Video();
+        String base = "http://media.example.com/videos/v" + i + "/";
+        v.title = "Video " + i;
+        v.url = base + "url";
+        v.sUrl = base + "s.m3u8";
+        v.hdUrl = base + "hd.mp4";
+        v.sdUrl = base + "sd.mp4";
+        v.mobileUrl = base + "m.mp4";
+        v.thumb = base + "thumb.jpg";
+        v.frame = base + "frame.jpg";
+        return v;
+    }
+    
+    static Reels reels(int count){
+        Reels reels = new Reels();
+        reels.apiObj = new ApiObjReels();
+        reels.apiObj.numReels = count;
+        reels.apiObj.reelList = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            reels.apiObj.reelList.add(video(i));
+        }
+        return reels;
+    }
+    
+    @Test
+    public void testCacheFile() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        Reels reels = reels(50);
+        String filename = TestHelpers.tempFile(Constants.API_REELS);
+        reels.serialize(filename);
+        
+        try (CatalogIterator<Video> it = new Reels().reelIterator(filename)){
+            assertEquals(50, it.getSize());
+            assertTrue(it.hasNext());
+            assertEquals(reels.apiObj.reelList.get(0), it.next());
+            
+            Spliterator<Video> split = it.spliterator();
+            assertTrue(split.hasCharacteristics(Spliterator.SIZED));
+            assertEquals(49, split.estimateSize());
+        }
+        try (CatalogIterator<Video> it = new Reels().reelIterator(filename)){
+            List<Video> videos = it.stream().collect(Collectors.toList());
+            assertEquals(reels.apiObj.reelList, videos);
+        }
+    }
+    
+    @Test
+    public void testJavaSerializedCacheFile() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        Reels reels = reels(3);
+        String filename = TestHelpers.tempFile(Constants.API_REELS);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))){
+            out.writeObject(reels);
+        }
+        
+        try (CatalogIterator<Video> it = new Reels().reelIterator(filename)){
+            assertEquals(3, it.getSize());
+            assertEquals(reels.apiObj.reelList, it.stream().collect(Collectors.toList()));
+        }
+    }
+    
+    @Test
+    public void testResponseSize() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        String list = "[" + GsonRegistry.get().toJson(video(1)) + "," + GsonRegistry.get().toJson(video(2)) + "]";
+        Reels reels = new Reels(FetchTest.HOST);
+        
+        reels.setTransport(new FetchTest.FixedTransport(200, "{\"apiObj\":{\"numReels\":2,\"reelList\":" + list + "}}"));
+        try (CatalogIterator<Video> it = reels.reelIterator()){
+            assertEquals(2, it.getSize());
+            Spliterator<Video> split = it.spliterator();
+            assertTrue(split.hasCharacteristics(Spliterator.SIZED));
+            assertEquals(2, split.estimateSize());
+        }
+        
+        // When the count comes after the list, the size isn't known while reading it.
+        reels.setTransport(new FetchTest.FixedTransport(200, "{\"apiObj\":{\"reelList\":" + list + ",\"numReels\":2}}"));
+        try (CatalogIterator<Video> it = reels.reelIterator()){
+            assertEquals(-1, it.getSize());
+            assertFalse(it.spliterator().hasCharacteristics(Spliterator.SIZED));
+            assertEquals(video(2), it.stream().skip(1).findFirst().get());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import clsrestapi.CircuitBreaker.State;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the state transitions of the {@link CircuitBreaker}.
+ * @author Ken Lowrie
+ */
+public class CircuitBreakerTest {
+    
+    public CircuitBreakerTest() {
+    }
+    
+    static String className;
+    
+    /*
+    Long enough that the breaker doesn't go half open while a test runs.
+    */
+    static final long LONG_OPEN_TIME = 60000;
+    /*
+    Short enough that a test can wait it out.
+    */
+    static final long SHORT_OPEN_TIME = 50;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        CircuitBreaker.setDefaults(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_TIME);
+        CircuitBreaker.resetAll();
+        TestHelpers.logEnd(className);
+    }
+    
+    /*
+    Wait until the open period of a breaker is over.
+    */
+    private static void waitOut(long openTime) throws InterruptedException {
+        Thread.sleep(openTime * 2);
+    }
+    
+    @Test
+    public void testOpensAfterThreshold() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("http://a", 3, LONG_OPEN_TIME);
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        
+        /*
+        A success resets the count, so only consecutive failures open the breaker.
+        */
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+        TestHelpers.logMsg(methodName, "Completed: " + breaker);
+    }
+    
+    @Test
+    public void testHalfOpenTrialSucceeds() throws InterruptedException {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("http://b", 2, SHORT_OPEN_TIME);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        
+        waitOut(SHORT_OPEN_TIME);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.isOpen());
+        
+        /*
+        Only one trial request goes through until it is recorded.
+        */
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        
+        breaker.recordSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        
+        /*
+        The count started over, so a single failure doesn't re-open it.
+        */
+        breaker.recordFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+        TestHelpers.logMsg(methodName, "Completed: " + breaker);
+    }
+    
+    @Test
+    public void testHalfOpenTrialFails() throws InterruptedException {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("http://c", 2, SHORT_OPEN_TIME);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        waitOut(SHORT_OPEN_TIME);
+        assertTrue(breaker.allowRequest());
+        
+        /*
+        A failed trial re-opens the breaker for a whole new period.
+        */
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        
+        waitOut(SHORT_OPEN_TIME);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        TestHelpers.logMsg(methodName, "Completed: " + breaker);
+    }
+    
+    @Test
+    public void testHalfOpenTrialCancelled() throws InterruptedException {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("http://d", 1, SHORT_OPEN_TIME);
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        waitOut(SHORT_OPEN_TIME);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        
+        /*
+        A cancelled trial says nothing about the host; it only lets another one through.
+        */
+        breaker.recordCancelled();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        TestHelpers.logMsg(methodName, "Completed: " + breaker);
+    }
+    
+    @Test
+    public void testCancelledWhileClosed() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("http://e", 2, LONG_OPEN_TIME);
+        breaker.recordFailure();
+        breaker.recordCancelled();
+        breaker.recordCancelled();
+        assertEquals(State.CLOSED, breaker.getState());
+        
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        breaker.recordCancelled();
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        TestHelpers.logMsg(methodName, "Completed: " + breaker);
+    }
+    
+    @Test
+    public void testForHost() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker.resetAll();
+        CircuitBreaker.setDefaults(1, LONG_OPEN_TIME);
+        CircuitBreaker breaker = CircuitBreaker.forHost("http://f");
+        assertSame(breaker, CircuitBreaker.forHost("http://f"));
+        assertNotSame(breaker, CircuitBreaker.forHost("http://g"));
+        assertEquals("http://f", breaker.getHost());
+        
+        /*
+        The defaults at the time it was created apply, and other hosts aren't affected.
+        */
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(CircuitBreaker.forHost("http://g").isOpen());
+        
+        CircuitBreaker.setDefaults(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_TIME);
+        assertTrue(CircuitBreaker.forHost("http://f").isOpen());
+        
+        CircuitBreaker.resetAll();
+        CircuitBreaker fresh = CircuitBreaker.forHost("http://f");
+        assertNotSame(breaker, fresh);
+        assertEquals(State.CLOSED, fresh.getState());
+        TestHelpers.logMsg(methodName, "Completed");
+    }
+    
+    @Test
+    public void testBadSettings() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        try{
+            new CircuitBreaker("http://h", 0, LONG_OPEN_TIME);
+            fail("A failure threshold of 0 should be rejected");
+        } catch (IllegalArgumentException E){
+            TestHelpers.logMsg(methodName, E.getMessage());
+        }
+        try{
+            CircuitBreaker.setDefaults(1, -1);
+            fail("A negative open time should be rejected");
+        } catch (IllegalArgumentException E){
+            TestHelpers.logMsg(methodName, E.getMessage());
+        }
+        TestHelpers.logMsg(methodName, "Completed");
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the codecs generated for the classes marked with {@link GenerateCodec}.
+ * Each apiObj is parsed with the generated JSON reader and with the reflective
+ * Gson adapter, and the binary codec must give back an equal object.
+ * @author Ken Lowrie
+ */
+public class CodecTest {
+    
+    public CodecTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    /*
+    The samples use single quotes, to keep them readable.
+    */
+    private static String json(String s){
+        return s.replace('\'', '"');
+    }
+    
+    static final String VIDEO = "{'title':'Video 1','url':'http://media.example.com/v1/url','sUrl':'http://media.example.com/v1/s.m3u8',"
+            + "'hdUrl':'http://media.example.com/v1/hd.mp4','sdUrl':'http://media.example.com/v1/sd.mp4',"
+            + "'mobileUrl':'http://media.example.com/v1/m.mp4','thumb':'http://media.example.com/v1/thumb.jpg','frame':'http://media.example.com/v1/frame.jpg'}";
+    
+    static final String SHOWCASE_VIDEO = "{'title':'Video 2','url':'http://media.example.com/v2/url','sUrl':'http://media.example.com/v2/s.m3u8',"
+            + "'hdUrl':'http://media.example.com/v2/hd.mp4','sdUrl':'http://media.example.com/v2/sd.mp4','mobileUrl':'http://media.example.com/v2/m.mp4',"
+            + "'thumb':'http://media.example.com/v2/thumb.jpg','frame':'http://media.example.com/v2/frame.jpg',"
+            + "'type':'Music Video','roles':{'director':'Ken','dp':'Ken','camera':'','editor':'Ken'},"
+            + "'description':'desc\\t2\\n \u00e9 \\u00e8 \ud83c\udfac \\/','extra':[1,{'a':true}]}";
+    
+    private static void writeBinary(ByteArrayDataOutput out, Object obj) throws IOException {
+        if (obj instanceof ApiObjAboutUs) ApiObjAboutUsCodec.writeBinary(out, (ApiObjAboutUs)obj);
+        else if (obj instanceof ApiObjVersions) ApiObjVersionsCodec.writeBinary(out, (ApiObjVersions)obj);
+        else if (obj instanceof ApiObjImagePaths) ApiObjImagePathsCodec.writeBinary(out, (ApiObjImagePaths)obj);
+        else if (obj instanceof ApiObjContactInfo) ApiObjContactInfoCodec.writeBinary(out, (ApiObjContactInfo)obj);
+        else if (obj instanceof ApiObjReels) ApiObjReelsCodec.writeBinary(out, (ApiObjReels)obj);
+        else ApiObjOurWorkCodec.writeBinary(out, (ApiObjOurWork)obj);
+    }
+    
+    private static Object readBinary(ByteArrayDataInput in, Class<?> cls) throws IOException {
+        if (cls == ApiObjAboutUs.class) return ApiObjAboutUsCodec.readBinary(in);
+        if (cls == ApiObjVersions.class) return ApiObjVersionsCodec.readBinary(in);
+        if (cls == ApiObjImagePaths.class) return ApiObjImagePathsCodec.readBinary(in);
+        if (cls == ApiObjContactInfo.class) return ApiObjContactInfoCodec.readBinary(in);
+        if (cls == ApiObjReels.class) return ApiObjReelsCodec.readBinary(in);
+        return ApiObjOurWorkCodec.readBinary(in);
+    }
+    
+    private static <T> void check(String methodName, Class<T> cls, String sample, T generated) throws IOException {
+        TestHelpers.logMsg(methodName, "checking " + cls.getSimpleName());
+        T reflective = new Gson().fromJson(json(sample), cls);
+        
+        assertNotNull(generated);
+        assertEquals(reflective, generated);
+        
+        ByteArrayDataOutput out = new ByteArrayDataOutput(256);
+        writeBinary(out, generated);
+        byte[] bytes = out.toByteArray();
+        ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+        assertEquals(generated, readBinary(in, cls));
+        assertEquals("the codec didn't read the whole value", 0, in.skipBytes(1));
+    }
+    
+    @Test
+    public void testGeneratedMatchesReflective() throws IOException {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        String s;
+        
+        s = "{'aboutus':'We make videos.'}";
+        check(methodName, ApiObjAboutUs.class, s, ApiObjAboutUsCodec.JSON.fromJson(json(s)));
+        
+        s = "{'numApis':2,'apiList':[{'apiName':'reels','apiVersion':'1.0','apiDataVersion':'1.1'},"
+                + "{'apiName':'versions','apiVersion':'1.0','apiDataVersion':'1.0','unknown':'x'}]}";
+        check(methodName, ApiObjVersions.class, s, ApiObjVersionsCodec.JSON.fromJson(json(s)));
+        
+        s = "{'numPaths':1,'imagePaths':[{'clientID':'JavaDesktop','imagePath':'/images/java/'}]}";
+        check(methodName, ApiObjImagePaths.class, s, ApiObjImagePathsCodec.JSON.fromJson(json(s)));
+        
+        s = "{'location':'Austin','address':{'name':'n','street':'s','city':'c','state':'TX','zipcode':'78701'},"
+                + "'email':'e','phone':'p','socialNetworks':[{'network':'Facebook','id':'x','url':'http://fb','image':'fb.png'}]}";
+        check(methodName, ApiObjContactInfo.class, s, ApiObjContactInfoCodec.JSON.fromJson(json(s)));
+        
+        s = "{'numReels':2,'reelList':[" + VIDEO + ",null]}";
+        check(methodName, ApiObjReels.class, s, ApiObjReelsCodec.JSON.fromJson(json(s)));
+        
+        s = "{'numVideos':-1,'videoList':[" + SHOWCASE_VIDEO + "]}";
+        check(methodName, ApiObjOurWork.class, s, ApiObjOurWorkCodec.JSON.fromJson(json(s)));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the retry loop in {@link Base}, using a fake {@link Transport}
+ * that answers every request with a fixed status and body.
+ * @author Ken Lowrie
+ */
+public class FetchTest {
+    
+    public FetchTest() {
+    }
+    
+    static String className;
+    static final String HOST = "http://fetch.test";
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Before
+    public void setUp() {
+        CircuitBreaker.resetAll();
+    }
+    
+    /**
+     * A transport that answers every request with the same status and body.
+     */
+    static class FixedTransport implements Transport {
+        final AtomicInteger calls = new AtomicInteger();
+        final int status;
+        final String body;
+        
+        FixedTransport(int status, String body){
+            this.status = status;
+            this.body = body;
+        }
+        
+        @Override
+        public TransportResponse get(String url, Map<String, String> headers){
+            calls.incrementAndGet();
+            return new TransportResponse(){
+                @Override
+                public int getStatusCode(){
+                    return status;
+                }
+                
+                @Override
+                public String getHeader(String name){
+                    return "Content-Type".equals(name) ? "application/json" : null;
+                }
+                
+                @Override
+                public InputStream getBody(){
+                    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+                }
+                
+                @Override
+                public void close(){
+                }
+            };
+        }
+    }
+    
+    static AboutUs aboutUs(Transport transport, RetryPolicy policy, Deadline deadline){
+        AboutUs instance = new AboutUs(HOST);
+        instance.setTransport(transport);
+        instance.setRetryPolicy(policy);
+        instance.setDeadline(deadline);
+        return instance;
+    }
+    
+    @Test
+    public void testBackoffReportsLastFailure() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        FixedTransport transport = new FixedTransport(503, "");
+        // Every backoff is far longer than the deadline, so the loop gives up after the first attempt.
+        AboutUs instance = aboutUs(transport, new RetryPolicy(2, 60000, 60000), Deadline.after(200));
+        
+        try{
+            instance.loadFromWebService();
+            fail("the load should have failed");
+        } catch (CRAException E){
+            TestHelpers.logMsg(methodName, E.getMessage());
+            assertTrue(E.getMessage().contains("returned status 503"));
+            assertFalse(E.getMessage().contains("deadline exceeded"));
+            assertNotNull(E.getCause());
+        }
+    }
+}
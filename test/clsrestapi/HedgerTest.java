@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Hedger}, using a fake {@link Transport} whose first
+ * request hangs until it is aborted.
+ * @author Ken Lowrie
+ */
+public class HedgerTest {
+    
+    public HedgerTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Before
+    public void setUp() {
+        HedgeStats.resetAll();
+    }
+    
+    /**
+     * A response that either answers right away, or hangs until it is aborted.
+     */
+    static class FakeResponse extends TransportResponse {
+        final CountDownLatch aborted = new CountDownLatch(1);
+        final boolean hang;
+        volatile boolean closed;
+        
+        FakeResponse(boolean hang){
+            this.hang = hang;
+        }
+        
+        @Override
+        public int getStatusCode() throws IOException {
+            if (hang){
+                try{
+                    aborted.await();
+                } catch (InterruptedException E){
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Socket closed");
+            }
+            return 200;
+        }
+        
+        @Override
+        public String getHeader(String name){
+            return null;
+        }
+        
+        @Override
+        public InputStream getBody(){
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        
+        @Override
+        public void close(){
+            closed = true;
+        }
+        
+        @Override
+        public void abort(){
+            aborted.countDown();
+        }
+    }
+    
+    /**
+     * A transport whose first request hangs, and whose later requests answer.
+     */
+    static class SlowFirstTransport implements Transport {
+        final AtomicInteger calls = new AtomicInteger();
+        final FakeResponse slow = new FakeResponse(true);
+        final FakeResponse fast = new FakeResponse(false);
+        
+        @Override
+        public TransportResponse get(String url, Map<String, String> headers){
+            return calls.incrementAndGet() == 1 ? slow : fast;
+        }
+    }
+    
+    @Test
+    public void testLoserIsAborted() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        SlowFirstTransport transport = new SlowFirstTransport();
+        HedgeStats stats = HedgeStats.forName(methodName);
+        Hedger hedger = new Hedger(transport, new HedgePolicy(95, 50, 10), stats, new CircuitBreaker("test", 5, 1000));
+        
+        TransportResponse rsp = hedger.get("http://test/", new HashMap<>(), Deadline.after(5000));
+        
+        assertSame(transport.fast, rsp);
+        assertEquals(2, transport.calls.get());
+        assertEquals(1, stats.getHedgesFired());
+        assertEquals(1, stats.getHedgesWon());
+        assertTrue("the losing request was not aborted", transport.slow.aborted.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testNoHedgeWhileProbing() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        
+        SlowFirstTransport transport = new SlowFirstTransport();
+        HedgeStats stats = HedgeStats.forName(methodName);
+        Hedger hedger = new Hedger(transport, new HedgePolicy(95, 10, 10), stats, breaker);
+        
+        try{
+            hedger.get("http://test/", new HashMap<>(), Deadline.after(300));
+            fail("the trial request should have timed out");
+        } catch (IOException E){
+            // Expected, the only request hung until the deadline.
+        }
+        assertEquals(1, transport.calls.get());
+        assertEquals(0, stats.getHedgesFired());
+        assertTrue("the timed out request was not aborted", transport.slow.aborted.await(5, TimeUnit.SECONDS));
+    }
+}
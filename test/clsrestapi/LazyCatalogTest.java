@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.Gson;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the byte-level scanner behind {@link LazyCatalog}: the fields it decodes
+ * must be the same Strings that Gson reads from the response.
+ * @author Ken Lowrie
+ */
+public class LazyCatalogTest {
+    
+    public LazyCatalogTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    /* A title with every kind of escape, including an escaped surrogate pair. */
+    static final String ESCAPED = "\"\\\"Quoted\\\" \\\\ back\\/slash\\b\\f\\n\\r\\t \\u00e9\\u65E5 \\ud83c\\udfac\"";
+    /* Multi-byte UTF-8 as is: 2, 3 and 4 byte sequences. */
+    static final String RAW = "\"Caf\u00e9 \u65e5\u672c \ud83c\udfac\"";
+    
+    static String response(){
+        return "{\"apiVer\":{\"apiVersion\":\"1.0\",\"apiDataVersion\":\"1.0\"},"
+                + "\"apiObj\":{\"numReels\":3,\"reelList\":["
+                + "{\"title\":" + ESCAPED + ",\"url\":" + RAW + ",\"thumb\":\"\\\\\\\\server\\\\share\"},"
+                + "null,"
+                + "{ \"title\" : " + RAW + " , \"frame\":\"\\u0041\\u00DF\\u20AC\" , \"sdUrl\":\"\\\"\\\"\" }"
+                + "]}}";
+    }
+    
+    static ByteBuffer buffer(String json, boolean direct){
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        buf.put(bytes);
+        buf.flip();
+        return buf;
+    }
+    
+    void checkAgainstGson(boolean direct) throws Exception {
+        Reels expected = new Gson().fromJson(response(), Reels.class);
+        LazyCatalog catalog = LazyCatalog.scan(buffer(response(), direct), "reelList", false);
+        
+        assertEquals(direct, catalog.isDirect());
+        assertEquals(3, catalog.size());
+        assertNull(catalog.get(1));
+        for (int i : new int[]{0, 2}){
+            Video v = expected.apiObj.reelList.get(i);
+            LazyVideo lazy = catalog.get(i);
+            assertEquals(v.title, lazy.getTitle());
+            assertEquals(v.url, lazy.getUrl());
+            assertEquals(v.thumb, lazy.getThumb());
+            assertEquals(v.frame, lazy.getFrame());
+            assertEquals(v.sdUrl, lazy.getSdUrl());
+            assertNull(lazy.getSUrl());
+        }
+    }
+    
+    @Test
+    public void testEscapes() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        checkAgainstGson(false);
+        
+        LazyVideo first = LazyCatalog.scan(buffer(response(), false), "reelList", false).get(0);
+        assertEquals("\"Quoted\" \\ back/slash\b\f\n\r\t \u00e9\u65e5 \ud83c\udfac", first.getTitle());
+        assertEquals("\\\\server\\share", first.getThumb());
+    }
+    
+    @Test
+    public void testMultiByteUtf8() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        checkAgainstGson(true);
+        
+        LazyCatalog catalog = LazyCatalog.scan(buffer(response(), true), "reelList", false);
+        assertEquals("Caf\u00e9 \u65e5\u672c \ud83c\udfac", catalog.get(0).getUrl());
+        assertEquals("Caf\u00e9 \u65e5\u672c \ud83c\udfac", catalog.get(2).getTitle());
+        assertEquals("A\u00df\u20ac", catalog.get(2).getFrame());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testBadEscape() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        String json = "{\"apiObj\":{\"reelList\":[{\"title\":\"bad \\u00\"}]}}";
+        /*
+        The scan only finds where the string ends; the escape is decoded when it's read.
+        */
+        LazyCatalog catalog = LazyCatalog.scan(buffer(json, false), "reelList", false);
+        catalog.get(0).getTitle();
+    }
+}
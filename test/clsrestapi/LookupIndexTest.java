@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.util.ArrayList;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LookupIndex} of the model classes, and when it is rebuilt.
+ * @author Ken Lowrie
+ */
+public class LookupIndexTest {
+    
+    public LookupIndexTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Test
+    public void testRebuild() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        ApiObjVersions versions = new ApiObjVersions();
+        versions.apiList = new ArrayList<>();
+        versions.apiList.add(new ApiVer(Constants.API_REELS, "1.0", "1.0"));
+        assertEquals("1.0", versions.getApiDataVersion(Constants.API_REELS));
+        assertNull(versions.getApiDataVersion(Constants.API_OUR_WORK));
+        
+        /*
+        Adding an element changes the size of the list, which rebuilds the index.
+        */
+        versions.apiList.add(new ApiVer(Constants.API_OUR_WORK, "1.0", "1.0"));
+        assertEquals("1.0", versions.getApiDataVersion(Constants.API_OUR_WORK));
+        versions.apiList.remove(1);
+        assertNull(versions.getApiDataVersion(Constants.API_OUR_WORK));
+        
+        /*
+        Replacing an element in place doesn't, as documented; assigning a new list does.
+        */
+        versions.apiList.set(0, new ApiVer(Constants.API_REELS, "1.0", "2.0"));
+        assertEquals("1.0", versions.getApiDataVersion(Constants.API_REELS));
+        versions.apiList = new ArrayList<>(versions.apiList);
+        assertEquals("2.0", versions.getApiDataVersion(Constants.API_REELS));
+        
+        versions.apiList = null;
+        assertNull(versions.getApiVersionValue(Constants.API_REELS));
+    }
+    
+    @Test
+    public void testFirstKeyWins() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        ApiObjVersions versions = new ApiObjVersions();
+        versions.apiList = new ArrayList<>();
+        versions.apiList.add(null);
+        versions.apiList.add(new ApiVer(null, "1.0", "0.0"));
+        versions.apiList.add(new ApiVer(Constants.API_REELS, "1.0", "1.0"));
+        versions.apiList.add(new ApiVer(Constants.API_REELS, "1.0", "2.0"));
+        assertEquals("1.0", versions.getApiDataVersion(Constants.API_REELS));
+        assertTrue(versions.isCurrent(Constants.API_REELS, new ApiVer(Constants.API_REELS, "1.0", "1.0")));
+        assertFalse(versions.isCurrent(Constants.API_REELS, new ApiVer(Constants.API_REELS, "1.0", "2.0")));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link MappedCache}: items are seen through the mapping as they are
+ * written, and a cache whose data file ends in a torn record opens with the items
+ * before it.
+ * @author Ken Lowrie
+ */
+public class MappedCacheTest {
+    
+    public MappedCacheTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    static MappedCache open(Path dir) throws Exception {
+        return MappedCache.open(dir.getParent().toString(), dir.getFileName().toString());
+    }
+    
+    static byte[] value(String itemName, int size){
+        byte[] bytes = new byte[size];
+        byte[] name = itemName.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++){
+            bytes[i] = name[i % name.length];
+        }
+        return bytes;
+    }
+    
+    static byte[] read(MappedCache cache, String itemName) throws CRAException {
+        ByteBuffer buf = cache.readItem(itemName);
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+    
+    @Test
+    public void testHeadroom() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        Path dir = Files.createTempDirectory("mapped");
+        MappedCache cache = open(dir);
+        try {
+            long maps = cache.getMaps();
+            for (int i = 0; i < 100; i++){
+                cache.writeItem("item" + i, value("item" + i, 100));
+            }
+            /*
+            The writes fit in the room the file was mapped with, so they were read back
+            through the same mapping.
+            */
+            assertEquals(maps, cache.getMaps());
+            assertTrue(cache.getMappedSize() > cache.getFileSize());
+            for (int i = 0; i < 100; i++){
+                assertArrayEquals(value("item" + i, 100), read(cache, "item" + i));
+            }
+            
+            cache.writeItem("big", value("big", 200 * 1024));
+            assertEquals(maps + 1, cache.getMaps());
+            assertTrue(cache.getMappedSize() >= cache.getFileSize());
+            assertArrayEquals(value("big", 200 * 1024), read(cache, "big"));
+            assertArrayEquals(value("item0", 100), read(cache, "item0"));
+            TestHelpers.logMsg(methodName, Constants.NL + cache);
+        } finally {
+            cache.remove();
+        }
+    }
+    
+    /**
+     * Write a cache with two items, end its data file in a torn record, and check that
+     * it opens with the two items, and can be written and opened again.
+     */
+    static void checkTornTail(String methodName, byte[] torn) throws Exception {
+        Path dir = Files.createTempDirectory("mapped");
+        MappedCache cache = open(dir);
+        cache.writeItem("a", value("a", 10));
+        cache.writeItem("b", value("b", 20));
+        long size = cache.getFileSize();
+        cache.close();
+        
+        try (FileChannel ch = FileChannel.open(dir.resolve(MappedCache.STORE_NAME), StandardOpenOption.WRITE)){
+            ch.write(ByteBuffer.wrap(torn), size);
+        }
+        
+        cache = open(dir);
+        try {
+            TestHelpers.logMsg(methodName, "reopened after a torn tail of " + torn.length + " bytes");
+            assertEquals(2, cache.getItemCount());
+            assertEquals(size, cache.getFileSize());
+            assertArrayEquals(value("a", 10), read(cache, "a"));
+            assertArrayEquals(value("b", 20), read(cache, "b"));
+            
+            cache.writeItem("c", value("c", 30));
+            cache.close();
+            cache = open(dir);
+            assertEquals(3, cache.getItemCount());
+            assertArrayEquals(value("b", 20), read(cache, "b"));
+            assertArrayEquals(value("c", 30), read(cache, "c"));
+        } finally {
+            cache.remove();
+        }
+    }
+    
+    @Test
+    public void testReopenAfterTornTail() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        /*
+        A record header that was cut off.
+        */
+        checkTornTail(methodName, new byte[]{ 0, 0, 0, 1, 0, 0 });
+        /*
+        A whole header, but only part of the key and value.
+        */
+        ByteBuffer partial = ByteBuffer.allocate(16);
+        partial.putInt(1).putInt(50).putInt(0x12345678).put((byte)'d').put(value("d", 3));
+        checkTornTail(methodName, partial.array());
+        /*
+        A whole record with the wrong checksum.
+        */
+        ByteBuffer record = ByteBuffer.allocate(12 + 1 + 4);
+        record.putInt(1).putInt(4).putInt(0x12345678).put((byte)'d').put(value("d", 4));
+        checkTornTail(methodName, record.array());
+    }
+}
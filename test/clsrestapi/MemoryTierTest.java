@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the eviction policies of the {@link MemoryTier}.
+ * @author Ken Lowrie
+ */
+public class MemoryTierTest {
+    
+    public MemoryTierTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Test
+    public void testLru() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        MemoryTier tier = new MemoryTier(100, MemoryTier.Eviction.LRU);
+        tier.put("a", "A", 40);
+        tier.put("b", "B", 40);
+        tier.put("c", "C", 40);
+        assertNull(tier.get("a"));
+        assertEquals(2, tier.getSize());
+        assertEquals(80, tier.getWeight());
+        assertEquals(1, tier.getEvictions());
+        
+        /*
+        "b" was used last, so "c" is evicted for "d".
+        */
+        assertEquals("B", tier.get("b"));
+        tier.put("d", "D", 40);
+        assertNull(tier.get("c"));
+        assertEquals("B", tier.get("b"));
+        assertEquals("D", tier.get("d"));
+        
+        /*
+        Replacing an entry updates its weight; an entry heavier than the tier isn't kept.
+        */
+        tier.put("b", "B2", 60);
+        assertEquals(100, tier.getWeight());
+        assertEquals("B2", tier.get("b"));
+        tier.put("b", "B3", 101);
+        assertNull(tier.get("b"));
+        assertEquals(1, tier.getRejections());
+        assertEquals(40, tier.getWeight());
+        
+        tier.invalidate("d");
+        assertEquals(0, tier.getSize());
+        assertEquals(0, tier.getWeight());
+    }
+    
+    @Test
+    public void testLruScan() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        MemoryTier tier = new MemoryTier(10000, MemoryTier.Eviction.LRU);
+        int hot = scan(tier);
+        TestHelpers.logMsg(methodName, "hot entries kept: " + hot + Constants.NL + tier);
+        assertEquals("a scan pushes everything out of an LRU cache", 0, hot);
+    }
+    
+    /*
+    Use five entries all the time, then load fifty entries once each, and count how
+    many of the five are still there.
+    */
+    static int scan(MemoryTier tier){
+        for (int i = 0; i < 5; i++){
+            tier.put("hot" + i, i, 1000);
+        }
+        for (int r = 0; r < 20; r++){
+            for (int i = 0; i < 5; i++){
+                assertNotNull(tier.get("hot" + i));
+            }
+        }
+        for (int i = 0; i < 50; i++){
+            assertNull(tier.get("scan" + i));
+            tier.put("scan" + i, i, 1000);
+        }
+        int hot = 0;
+        for (int i = 0; i < 5; i++){
+            if (tier.get("hot" + i) != null){
+                hot++;
+            }
+        }
+        assertTrue(tier.getWeight() <= tier.getMaxWeight());
+        return hot;
+    }
+    
+    @Test
+    public void testTinyLfuScan() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        MemoryTier tier = new MemoryTier(10000, MemoryTier.Eviction.W_TINY_LFU);
+        int hot = scan(tier);
+        TestHelpers.logMsg(methodName, "hot entries kept: " + hot + Constants.NL + tier);
+        assertEquals("W-TinyLFU keeps the entries that are used all the time", 5, hot);
+        assertTrue(tier.getRejections() > 0);
+    }
+    
+    @Test
+    public void testTinyLfuAdmission() {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        MemoryTier tier = new MemoryTier(100, MemoryTier.Eviction.W_TINY_LFU);
+        tier.put("a", "A", 50);
+        tier.put("b", "B", 50);
+        
+        /*
+        "c" was looked up and then added, which is one use, like each of "a" and "b".
+        It isn't used more often than "a", so it isn't admitted in its place.
+        */
+        assertNull(tier.get("c"));
+        tier.put("c", "C", 50);
+        assertNull(tier.get("c"));
+        assertEquals("A", tier.get("a"));
+        assertEquals(1, tier.getRejections());
+        assertEquals(0, tier.getEvictions());
+        
+        /*
+        "a" was used again, which protects it, so "b" is next in line. Once "d" has
+        been used more often than "b", it is admitted in its place.
+        */
+        assertNull(tier.get("d"));
+        tier.put("d", "D", 50);
+        assertNull(tier.get("d"));
+        assertEquals(2, tier.getRejections());
+        tier.put("d", "D", 50);
+        assertEquals("D", tier.get("d"));
+        assertNull(tier.get("b"));
+        assertEquals("A", tier.get("a"));
+        assertEquals(1, tier.getEvictions());
+        assertEquals(100, tier.getWeight());
+    }
+}
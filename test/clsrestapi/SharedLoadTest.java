@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the loads that {@link ApiWrapper} instances share, using a fake
+ * {@link Transport}.
+ * @author Ken Lowrie
+ */
+public class SharedLoadTest {
+    
+    public SharedLoadTest() {
+    }
+    
+    static String className;
+    static final String HOST = "http://sharedload.test";
+    static final String BODY = "{\"apiObj\":{\"aboutus\":\"We make videos.\"}}";
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    @Before
+    public void setUp() {
+        CircuitBreaker.resetAll();
+    }
+    
+    /**
+     * A transport whose first request hangs until it times out, long after the
+     * deadline of the caller that made it. Later requests get the body.
+     */
+    static class HangFirstTransport implements Transport {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Transport answer = new FetchTest.FixedTransport(200, BODY);
+        final long hang;
+        
+        HangFirstTransport(long hang){
+            this.hang = hang;
+        }
+        
+        @Override
+        public TransportResponse get(String url, Map<String, String> headers) throws IOException {
+            if (calls.incrementAndGet() == 1){
+                started.countDown();
+                try{
+                    Thread.sleep(hang);
+                } catch (InterruptedException E){
+                    Thread.currentThread().interrupt();
+                }
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return answer.get(url, headers);
+        }
+    }
+    
+    static AboutUs aboutUs(Transport transport){
+        AboutUs instance = new AboutUs(HOST);
+        instance.setTransport(transport);
+        return instance;
+    }
+    
+    @Test
+    public void testLoadCutShortByLeaderDeadline() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        Path dir = Files.createTempDirectory("sharedload");
+        Cache cache = new Cache(dir.getParent().toString(), dir.getFileName().toString());
+        HangFirstTransport transport = new HangFirstTransport(600);
+        
+        /*
+        The leader runs the load with a short deadline, and is stuck in the first request.
+        */
+        AtomicReference<ApiWrapper<AboutUs>> leader = new AtomicReference<>();
+        Thread thread = new Thread(() -> leader.set(new ApiWrapper<>(aboutUs(transport), cache, Constants.API_ABOUT_US, null, Deadline.after(200), null)));
+        thread.start();
+        assertTrue(transport.started.await(10, TimeUnit.SECONDS));
+        
+        /*
+        This caller has no deadline, and shares the leader's load until it is cut short.
+        */
+        ApiWrapper<AboutUs> follower = new ApiWrapper<>(aboutUs(transport), cache, Constants.API_ABOUT_US, null, Deadline.none(), null);
+        thread.join(10000);
+        
+        assertFalse(leader.get().loaded);
+        assertTrue(leader.get().timedOut());
+        assertTrue(follower.loaded);
+        assertFalse(follower.timedOut());
+        assertEquals("We make videos.", follower.api.apiObj.aboutus);
+        assertEquals(2, transport.calls.get());
+        TestHelpers.logMsg(methodName, "Completed");
+    }
+    
+    @Test
+    public void testFailedLoadIsShared() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        Path dir = Files.createTempDirectory("sharedload");
+        Cache cache = new Cache(dir.getParent().toString(), dir.getFileName().toString());
+        
+        /*
+        A load that fails within the leader's deadline isn't run again by the callers
+        that shared it.
+        */
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Transport transport = (url, headers) -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try{
+                Thread.sleep(300);
+            } catch (InterruptedException E){
+                Thread.currentThread().interrupt();
+            }
+            return new FetchTest.FixedTransport(404, "").get(url, headers);
+        };
+        
+        AtomicReference<ApiWrapper<AboutUs>> leader = new AtomicReference<>();
+        Thread thread = new Thread(() -> leader.set(new ApiWrapper<>(aboutUs(transport), cache, Constants.API_ABOUT_US, null, Deadline.after(10000), null)));
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        
+        ApiWrapper<AboutUs> follower = new ApiWrapper<>(aboutUs(transport), cache, Constants.API_ABOUT_US, null, Deadline.none(), null);
+        thread.join(10000);
+        
+        assertFalse(leader.get().loaded);
+        assertFalse(follower.loaded);
+        assertEquals(1, calls.get());
+        TestHelpers.logMsg(methodName, "Completed");
+    }
+}
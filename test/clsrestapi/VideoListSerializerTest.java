@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the video lists of {@link ApiObjReels} and {@link ApiObjOurWork}, which
+ * are Java serialized in the {@link VideoListSerializer} format.
+ * @author Ken Lowrie
+ */
+public class VideoListSerializerTest {
+    
+    public VideoListSerializerTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    /*
+    The media URLs of a catalog share a few prefixes, one for each format.
+    */
+    /*
+    The objects of a response have a String of their own for each field, even when
+    the values are the same, which default serialization can't write as a back
+    reference. A round trip through JSON makes the samples like that.
+    */
+    static <T> T parsed(T obj, Class<T> cls){
+        Gson gson = new Gson();
+        return gson.fromJson(gson.toJson(obj), cls);
+    }
+    
+    static <V extends Video> V video(V v, int i){
+        String name = "reel-" + i;
+        String media = "https://media.cloudylogic.com/";
+        v.title = "Reel " + i;
+        v.url = "https://cloudylogic.com/videos/" + name;
+        v.sUrl = media + "hls/" + name + ".m3u8";
+        v.hdUrl = media + "hd/" + name + ".mp4";
+        v.sdUrl = media + "sd/" + name + ".mp4";
+        v.mobileUrl = media + "mobile/" + name + ".mp4";
+        v.thumb = media + "thumbs/" + name + ".jpg";
+        v.frame = media + "frames/" + name + ".jpg";
+        return v;
+    }
+    
+    static ApiObjReels reels(int count){
+        ApiObjReels obj = new ApiObjReels();
+        obj.numReels = count;
+        obj.reelList = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            obj.reelList.add(video(new Video(), i));
+        }
+        return parsed(obj, ApiObjReels.class);
+    }
+    
+    static ApiObjOurWork ourWork(int count){
+        ApiObjOurWork obj = new ApiObjOurWork();
+        obj.numVideos = count;
+        obj.videoList = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            ShowCaseVideo v = video(new ShowCaseVideo(), i);
+            v.type = "Short Film";
+            v.description = "Video " + i + " of the showcase.";
+            v.roles = new Roles();
+            v.roles.director = "Ken Lowrie";
+            v.roles.dp = "Ken Lowrie";
+            v.roles.camera = "Ken Lowrie";
+            v.roles.editor = "Ken Lowrie";
+            obj.videoList.add(v);
+        }
+        return parsed(obj, ApiObjOurWork.class);
+    }
+    
+    static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)){
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+    
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))){
+            return in.readObject();
+        }
+    }
+    
+    /**
+     * Check that a serialized list is at most a percentage of the size of the same
+     * elements in default Java serialization, and that it reads back the same.
+     */
+    static void checkSize(String methodName, Object obj, List<? extends Video> list, int percent) throws Exception {
+        byte[] packed = serialize(obj);
+        int plain = serialize(new ArrayList<>(list)).length;
+        TestHelpers.logMsg(methodName, obj.getClass().getSimpleName() + " with " + list.size()
+                + " videos: " + packed.length + " bytes, default serialization " + plain + " bytes");
+        
+        assertTrue(packed.length + " is more than " + percent + "% of " + plain, packed.length * 100 <= plain * percent);
+        assertEquals(obj, deserialize(packed));
+    }
+    
+    @Test
+    public void testSerializedSize() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        for (int count : new int[]{20, 5000}){
+            /*
+            A reel is almost all media URLs, so the list is about a third of its default size.
+            */
+            ApiObjReels reels = reels(count);
+            checkSize(methodName, reels, reels.reelList, 35);
+            /*
+            A showcase video also has a description and roles, which are written as is.
+            */
+            ApiObjOurWork ourWork = ourWork(count);
+            checkSize(methodName, ourWork, ourWork.videoList, 50);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Ken Lowrie.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package clsrestapi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link WriteBehind} queue: writes to one file collapse, and a caller
+ * that has to write a file itself never races an older queued copy of it.
+ * @author Ken Lowrie
+ */
+public class WriteBehindTest {
+    
+    public WriteBehindTest() {
+    }
+    
+    static String className;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        className = new Object(){}.getClass().getEnclosingClass().getName();
+        
+        if (className.endsWith("Test")) className = className.substring(0, className.length() - 4);
+        
+        TestHelpers.logStart(className);
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+        TestHelpers.logEnd(className);
+    }
+    
+    /**
+     * A cache that records its writes, in the order they finish, and holds the first
+     * write the writer thread makes until it's released, or for 10 seconds.
+     */
+    static class GatedCache extends Cache {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final List<String> writes = new ArrayList<>();
+        
+        GatedCache() throws IOException {
+            this(Files.createTempDirectory("writebehind"));
+        }
+        
+        private GatedCache(Path dir) throws IOException {
+            super(dir.getParent().toString(), dir.getFileName().toString());
+        }
+        
+        @Override
+        public void writeItem(String itemName, byte[] bytes) throws CRAException {
+            if (Thread.currentThread().getName().startsWith("clsrestapi-write-behind") && entered.getCount() > 0){
+                entered.countDown();
+                try {
+                    /* Bounded, so that a failed test can't hang in WriteBehind.close(). */
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException E){
+                    throw new CRAException(E.getMessage());
+                }
+            }
+            super.writeItem(itemName, bytes);
+            synchronized (writes){
+                writes.add(itemName + bytes[0]);
+            }
+        }
+        
+        byte last(String itemName) throws CRAException {
+            return readItem(itemName).get(0);
+        }
+    }
+    
+    static byte[] bytes(int version){
+        return new byte[]{ (byte)version };
+    }
+    
+    @Test
+    public void testCollapse() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        GatedCache cache = new GatedCache();
+        try (WriteBehind queue = new WriteBehind(4)){
+            assertTrue(queue.submit(cache, "a", bytes(1)));
+            assertTrue(cache.entered.await(5, TimeUnit.SECONDS));
+            
+            /*
+            "a" is being written, so these queue up behind it, and collapse into one write.
+            */
+            for (int i = 1; i <= 3; i++){
+                assertTrue(queue.submit(cache, "b", bytes(i)));
+            }
+            assertEquals(1, queue.getQueueDepth());
+            assertEquals(2, queue.getCollapsed());
+            assertEquals(3, queue.pending(cache, "b")[0]);
+            assertEquals(1, queue.pending(cache, "a")[0]);
+            assertNull(queue.pending(cache, "c"));
+            
+            cache.released.countDown();
+            queue.flush();
+            assertEquals(2, queue.getEnqueued());
+            assertEquals(2, queue.getWritten());
+            assertEquals(0, queue.getOverflows());
+            assertNull(queue.pending(cache, "b"));
+        }
+        assertEquals("[a1, b3]", cache.writes.toString());
+        assertEquals(3, cache.last("b"));
+    }
+    
+    @Test
+    public void testOverflow() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        GatedCache cache = new GatedCache();
+        try (WriteBehind queue = new WriteBehind(1)){
+            assertTrue(queue.submit(cache, "x", bytes(1)));
+            assertTrue(cache.entered.await(5, TimeUnit.SECONDS));
+            assertTrue(queue.submit(cache, "y", bytes(1)));
+            assertTrue(queue.submit(cache, "y", bytes(2)));
+            
+            /*
+            The queue is full. A file that the writer doesn't have is written by the caller
+            right away.
+            */
+            assertFalse(queue.submit(cache, "z", bytes(1)));
+            assertEquals(1, queue.getOverflows());
+            
+            /*
+            The writer is writing an older copy of "x", so the caller must wait for that
+            write to finish before it writes the new copy itself.
+            */
+            Thread caller = new Thread(() -> {
+                try {
+                    if (!queue.submit(cache, "x", bytes(2))){
+                        cache.writeItem("x", bytes(2));
+                    }
+                } catch (CRAException E){
+                    throw new RuntimeException(E);
+                }
+            });
+            caller.start();
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (caller.getState() != Thread.State.WAITING && System.currentTimeMillis() < waitUntil){
+                Thread.sleep(10);
+            }
+            assertEquals(Thread.State.WAITING, caller.getState());
+            
+            /*
+            Once "x" is written, the caller either writes the new copy itself, or finds
+            room in the queue because the writer took "y" meanwhile. Either way, the
+            new copy is written after the old one.
+            */
+            cache.released.countDown();
+            caller.join(5000);
+            assertFalse(caller.isAlive());
+            queue.flush();
+        }
+        assertTrue(cache.writes.toString(), cache.writes.indexOf("x1") < cache.writes.indexOf("x2"));
+        assertEquals(2, cache.last("x"));
+        assertEquals(2, cache.last("y"));
+    }
+    
+    @Test
+    public void testClosed() throws Exception {
+        String methodName = new Object(){}.getClass().getEnclosingMethod().getName();
+        
+        TestHelpers.logMsg(methodName, "Running ...");
+        GatedCache cache = new GatedCache();
+        cache.released.countDown();
+        WriteBehind queue = new WriteBehind();
+        assertTrue(queue.submit(cache, "a", bytes(1)));
+        queue.close();
+        
+        assertFalse(queue.submit(cache, "a", bytes(2)));
+        assertEquals(0, queue.getOverflows());
+        assertEquals(1, queue.getWritten());
+        assertEquals(1, cache.last("a"));
+    }
+}